@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Загрузка списка друзей: запрос на каждый id (N+1) против одного пакетного getByIds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class BatchFetchBenchmark {
+    private static final int USERS = 50_000;
+
+    @Param({"memory", "jdbc"})
+    private String storageType;
+
+    @Param({"1000", "10000"})
+    private int friends;
+
+    private UserStorage userStorage;
+    private HikariDataSource dataSource;
+    private List<Long> friendIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("jdbc".equals(storageType)) {
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:batch-fetch;DB_CLOSE_DELAY=-1");
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            userStorage = new JdbcUserStorage(new JdbcTemplate(dataSource));
+        } else {
+            userStorage = new InMemoryUserStorage();
+        }
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(Dataset.user(i));
+        }
+        userStorage.createAll(users);
+
+        Random random = new Random(Dataset.SEED);
+        friendIds = random.longs(friends, 1, USERS + 1)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public List<User> lookupPerId() {
+        return friendIds.stream()
+                .map(userStorage::getById)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<User> batchLookup() {
+        return userStorage.getByIds(friendIds);
+    }
+}
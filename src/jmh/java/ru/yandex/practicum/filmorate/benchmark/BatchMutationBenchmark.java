@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.BatchReport;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 10 тыс. изменений лайков и дружбы: пакетный метод сервиса против вызова addLike/addFriend на каждое изменение.
+ * HTTP в замер не входит, так что выигрыш пакета здесь — только проверка id и блокировки. Вызовы чередуют
+ * добавление и снятие одних и тех же пар, поэтому данные между итерациями не растут. Результат — изменений в секунду.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BatchMutationBenchmark.MUTATIONS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BatchMutationBenchmark {
+    static final int MUTATIONS = 10_000;
+
+    private FilmService filmService;
+    private UserService userService;
+    private List<LikeMutation> addLikes;
+    private List<LikeMutation> removeLikes;
+    private List<FriendMutation> addFriends;
+    private List<FriendMutation> removeFriends;
+    private boolean removing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset dataset = Dataset.generate(100_000, 100_000, 1_000_000, 1_000_000);
+        filmService = dataset.getFilmService();
+        userService = dataset.getUserService();
+
+        Random random = new Random(Dataset.SEED + 1);
+        addLikes = new ArrayList<>(MUTATIONS);
+        removeLikes = new ArrayList<>(MUTATIONS);
+        for (int i = 0; i < MUTATIONS; i++) {
+            long filmId = dataset.skewedFilmId(random);
+            long userId = dataset.randomUserId(random);
+            addLikes.add(new LikeMutation(MutationType.ADD, filmId, userId));
+            removeLikes.add(new LikeMutation(MutationType.REMOVE, filmId, userId));
+        }
+        addFriends = new ArrayList<>(MUTATIONS);
+        removeFriends = new ArrayList<>(MUTATIONS);
+        while (addFriends.size() < MUTATIONS) {
+            long userId = dataset.randomUserId(random);
+            long friendId = dataset.randomUserId(random);
+            if (userId != friendId) {
+                addFriends.add(new FriendMutation(MutationType.ADD, userId, friendId));
+                removeFriends.add(new FriendMutation(MutationType.REMOVE, userId, friendId));
+            }
+        }
+    }
+
+    @Benchmark
+    public void likesOneByOne() {
+        for (LikeMutation mutation : nextLikes()) {
+            if (mutation.getType() == MutationType.ADD) {
+                filmService.addLike(mutation.getFilmId(), mutation.getUserId());
+            } else {
+                filmService.removeLike(mutation.getFilmId(), mutation.getUserId());
+            }
+        }
+    }
+
+    @Benchmark
+    public BatchReport likesBatch() {
+        return filmService.applyLikes(nextLikes());
+    }
+
+    @Benchmark
+    public void friendsOneByOne() {
+        for (FriendMutation mutation : nextFriends()) {
+            if (mutation.getType() == MutationType.ADD) {
+                userService.addFriend(mutation.getUserId(), mutation.getFriendId());
+            } else {
+                userService.removeFriend(mutation.getUserId(), mutation.getFriendId());
+            }
+        }
+    }
+
+    @Benchmark
+    public BatchReport friendsBatch() {
+        return userService.applyFriends(nextFriends());
+    }
+
+    private List<LikeMutation> nextLikes() {
+        List<LikeMutation> mutations = removing ? removeLikes : addLikes;
+        removing = !removing;
+        return mutations;
+    }
+
+    private List<FriendMutation> nextFriends() {
+        List<FriendMutation> mutations = removing ? removeFriends : addFriends;
+        removing = !removing;
+        return mutations;
+    }
+}
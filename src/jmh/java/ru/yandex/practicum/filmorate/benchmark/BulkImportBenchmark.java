@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скорость массового импорта NDJSON в хранилища в памяти, в записях в секунду:
+ * разбор, валидация и пакетная запись вместе.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BulkImportBenchmark {
+    private static final int USERS = 50_000;
+    private static final int FILMS = 50_000;
+    private static final int LIKES = 100_000;
+    private static final int FRIENDSHIPS = 50_000;
+    private static final int RECORDS = USERS + FILMS + LIKES + FRIENDSHIPS;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private byte[] body;
+    private ImportService importService;
+
+    @Setup(Level.Trial)
+    public void generateBody() throws IOException {
+        Random random = new Random(Dataset.SEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < USERS; i++) {
+            writeLine(out, "user", Dataset.user(i));
+        }
+        for (int i = 0; i < FILMS; i++) {
+            writeLine(out, "film", Dataset.film(i));
+        }
+        for (int i = 0; i < LIKES; i++) {
+            writeLine(out, "like", new Like(1L + random.nextInt(FILMS), 1L + random.nextInt(USERS)));
+        }
+        for (int i = 0; i < FRIENDSHIPS; i++) {
+            writeLine(out, "friendship", new Friendship(1L + random.nextInt(USERS), 1L + random.nextInt(USERS)));
+        }
+        body = out.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void createStorages() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+        InMemoryFriendStorage friendStorage = new InMemoryFriendStorage();
+        importService = new ImportService(objectMapper, validator,
+                new FilmService(filmStorage, userStorage, likeStorage),
+                new UserService(userStorage, friendStorage),
+                filmStorage, userStorage, likeStorage, friendStorage);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public ImportReport importNdjson() throws IOException {
+        return importService.importNdjson(new ByteArrayInputStream(body));
+    }
+
+    private void writeLine(ByteArrayOutputStream out, String type, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(Map.of(type, value)));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск общих друзей на графе со степенным распределением степеней:
+ * пересечение множеств Long против AND компрессированных битмапов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class CommonFriendsBenchmark {
+    private static final int PAIRS = 1_024;
+
+    @Param({"100000"})
+    private int users;
+
+    // Показатель степенного закона: чем меньше, тем «тяжелее» хвост хабов
+    @Param({"2.1"})
+    private double alpha;
+
+    @Param({"hubs", "random"})
+    private String pairs;
+
+    private final Map<Long, Set<Long>> boxed = new HashMap<>();
+    private final InMemoryFriendStorage bitmaps = new InMemoryFriendStorage();
+    private long[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        // Предпочтительное присоединение: концы рёбер выбираются пропорционально текущей степени
+        List<Long> endpoints = new ArrayList<>();
+        for (long userId = 1; userId <= users; userId++) {
+            int degree = paretoDegree(random);
+            for (int i = 0; i < degree; i++) {
+                long friendId = endpoints.isEmpty() || random.nextInt(4) == 0
+                        ? 1 + random.nextInt(users)
+                        : endpoints.get(random.nextInt(endpoints.size()));
+                if (friendId != userId && link(userId, friendId)) {
+                    endpoints.add(userId);
+                    endpoints.add(friendId);
+                }
+            }
+        }
+
+        List<Long> byDegree = boxed.keySet().stream()
+                .sorted(Comparator.comparingInt((Long id) -> boxed.get(id).size()).reversed())
+                .collect(Collectors.toList());
+        queries = new long[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            if ("hubs".equals(pairs)) {
+                int top = Math.min(64, byDegree.size());
+                queries[i] = new long[]{byDegree.get(random.nextInt(top)), byDegree.get(random.nextInt(top))};
+            } else {
+                queries[i] = new long[]{1 + random.nextInt(users), 1 + random.nextInt(users)};
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Long> boxedSets() {
+        long[] query = nextQuery();
+        Set<Long> friends1 = boxed.getOrDefault(query[0], Collections.emptySet());
+        Set<Long> friends2 = boxed.getOrDefault(query[1], Collections.emptySet());
+        return friends1.stream()
+                .filter(friends2::contains)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Long> roaringBitmaps() {
+        long[] query = nextQuery();
+        return bitmaps.getCommonFriendIds(query[0], query[1]);
+    }
+
+    private long[] nextQuery() {
+        long[] query = queries[next];
+        next = (next + 1) & (PAIRS - 1);
+        return query;
+    }
+
+    private boolean link(long userId, long friendId) {
+        if (!boxed.computeIfAbsent(userId, k -> new HashSet<>()).add(friendId)) {
+            return false;
+        }
+        boxed.computeIfAbsent(friendId, k -> new HashSet<>()).add(userId);
+        bitmaps.addFriend(userId, friendId);
+        bitmaps.addFriend(friendId, userId);
+        return true;
+    }
+
+    private int paretoDegree(Random random) {
+        double degree = Math.pow(1 - random.nextDouble(), -1 / (alpha - 1));
+        return (int) Math.min(degree * 2, 10_000);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.Getter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Детерминированный (фиксированный seed) набор данных для бенчмарков,
+ * собранный через те же сервисы, что и в приложении.
+ */
+@Getter
+public class Dataset {
+    public static final long SEED = 42;
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+    private final InMemoryFriendStorage friendStorage = new InMemoryFriendStorage();
+    private final FilmService filmService = new FilmService(filmStorage, userStorage, likeStorage);
+    private final UserService userService = new UserService(userStorage, friendStorage);
+    private final int users;
+    private final int films;
+
+    private Dataset(int users, int films) {
+        this.users = users;
+        this.films = films;
+    }
+
+    /**
+     * @param likes       количество лайков; популярность фильмов распределена с «длинным хвостом»
+     * @param friendships количество пар друзей; степени вершин подчиняются степенному закону
+     */
+    public static Dataset generate(int users, int films, int likes, int friendships) {
+        Dataset dataset = new Dataset(users, films);
+        Random random = new Random(SEED);
+        for (int i = 0; i < users; i++) {
+            dataset.userService.create(user(i));
+        }
+        for (int i = 0; i < films; i++) {
+            dataset.filmService.create(film(i));
+        }
+        for (int i = 0; i < likes; i++) {
+            dataset.filmService.addLike(dataset.skewedFilmId(random), dataset.randomUserId(random));
+        }
+        dataset.linkFriends(friendships, random);
+        return dataset;
+    }
+
+    public static Film film(int i) {
+        return Film.builder()
+                .name("Фильм " + i)
+                .description("Описание фильма " + i)
+                .releaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25_000))
+                .duration(3600 + i % 3600)
+                .build();
+    }
+
+    public static User user(int i) {
+        return User.builder()
+                .login("user" + i)
+                .email("user" + i + "@mail.ru")
+                .name("Пользователь " + i)
+                .birthday(LocalDate.of(1970, 1, 1).plusDays(i % 15_000))
+                .build();
+    }
+
+    public long randomUserId(Random random) {
+        return 1 + random.nextInt(users);
+    }
+
+    public long randomFilmId(Random random) {
+        return 1 + random.nextInt(films);
+    }
+
+    // Квадрат равномерного распределения даёт «длинный хвост» непопулярных фильмов
+    public long skewedFilmId(Random random) {
+        double skew = random.nextDouble();
+        return 1 + (long) (skew * skew * films);
+    }
+
+    // Предпочтительное присоединение: друг выбирается пропорционально уже набранной степени
+    private void linkFriends(int friendships, Random random) {
+        if (users < 2 || friendships == 0) {
+            return;
+        }
+        long[] endpoints = new long[friendships * 2];
+        int size = 0;
+        for (int i = 0; i < friendships; i++) {
+            long userId = randomUserId(random);
+            long friendId = size == 0 || random.nextInt(4) == 0
+                    ? randomUserId(random)
+                    : endpoints[random.nextInt(size)];
+            if (userId == friendId) {
+                continue;
+            }
+            userService.addFriend(userId, friendId);
+            endpoints[size++] = userId;
+            endpoints[size++] = friendId;
+        }
+    }
+}
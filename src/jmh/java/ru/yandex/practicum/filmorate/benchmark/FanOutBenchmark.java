@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Большие списки друзей под конкурентной нагрузкой: JSON-массив из {@code UserController#getFriends}
+ * против NDJSON-потока. Ответ собирается сервером целиком против выдачи порциями по мере записи;
+ * расход памяти смотреть с {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Threads(64)
+public class FanOutBenchmark {
+    private static final int HUBS = 16;
+
+    @Param({"10000"})
+    private int friends;
+
+    @Param({"list", "stream"})
+    private String api;
+
+    @Param({"memory", "jdbc"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private String accept;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--logging.level.org.zalando.logbook=OFF",
+                "--logging.level.root=WARN"));
+        if ("jdbc".equals(storage)) {
+            // H2 в памяти без кэша: каждый запрос действительно читает строки из базы
+            args.addAll(List.of("--spring.profiles.active=jdbc",
+                    "--spring.datasource.url=jdbc:h2:mem:fanout;DB_CLOSE_DELAY=-1",
+                    "--filmorate.cache.users.enabled=false"));
+        }
+        context = new SpringApplicationBuilder(FilmorateApplication.class).run(args.toArray(String[]::new));
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        FriendStorage friendStorage = context.getBean(FriendStorage.class);
+        userStorage.createAll(IntStream.range(0, HUBS + friends).mapToObj(Dataset::user).toList());
+        // Первые HUBS пользователей дружат со всеми остальными
+        List<Friendship> friendships = new ArrayList<>(HUBS * friends);
+        for (long hub = 1; hub <= HUBS; hub++) {
+            for (long friend = HUBS + 1; friend <= HUBS + friends; friend++) {
+                friendships.add(new Friendship(hub, friend));
+            }
+        }
+        friendStorage.addFriends(friendships);
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/users/";
+        accept = "stream".equals(api) ? "application/x-ndjson" : "application/json";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public long getFriends() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(baseUrl + (1 + ThreadLocalRandom.current().nextInt(HUBS)) + "/friends"))
+                .header("Accept", accept)
+                .build();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        // Клиент читает ответ по мере поступления и не копит его целиком
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Неожиданный ответ: " + response.statusCode());
+            }
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                total += read;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * «Возможные друзья» для пользователя с большим числом друзей: счётчики общих друзей из индекса
+ * против подсчёта по спискам друзей на каждый запрос, а также цена поддержки индекса при записи.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class FriendSuggestionsBenchmark {
+    private static final long USER = 1;
+    private static final int USERS = 100_000;
+    private static final int FRIENDS_OF_FRIEND = 50;
+    private static final int COUNT = 10;
+
+    @Param({"500", "5000"})
+    private int friends;
+
+    private InMemoryFriendStorage storage;
+    private long stranger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = new InMemoryFriendStorage();
+        Random random = new Random(Dataset.SEED);
+        List<Friendship> friendships = new ArrayList<>();
+        for (long friend = 2; friend < 2 + friends; friend++) {
+            friendships.add(new Friendship(USER, friend));
+            friendships.add(new Friendship(friend, USER));
+            for (int i = 0; i < FRIENDS_OF_FRIEND; i++) {
+                long other = 2 + random.nextInt(USERS - 1);
+                if (other != friend) {
+                    friendships.add(new Friendship(friend, other));
+                    friendships.add(new Friendship(other, friend));
+                }
+            }
+        }
+        storage.addFriends(friendships);
+        // Самый вероятный кандидат: у него есть друзья, и его дружба меняет счётчики пользователя из индекса
+        stranger = storage.getSuggestedFriendIds(USER, COUNT).get(0);
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return storage.getSuggestedFriendIds(USER, COUNT);
+    }
+
+    /**
+     * Запрос сразу после изменения дружбы: запомненная выборка сброшена, кандидаты ранжируются заново.
+     */
+    @Benchmark
+    public List<Long> indexAfterWrite() {
+        addAndRemoveFriend();
+        return storage.getSuggestedFriendIds(USER, COUNT);
+    }
+
+    @Benchmark
+    public List<Long> recompute() {
+        Set<Long> userFriends = new HashSet<>(storage.getFriendIds(USER));
+        Map<Long, Integer> mutual = new HashMap<>();
+        for (Long friend : userFriends) {
+            for (Long candidate : storage.getFriendIds(friend)) {
+                if (candidate != USER && !userFriends.contains(candidate)) {
+                    mutual.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return mutual.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(COUNT)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Дружба пользователя из индекса с кандидатом: обе стороны добавляются и удаляются.
+     */
+    @Benchmark
+    public boolean addAndRemoveFriend() {
+        storage.addFriend(USER, stranger);
+        storage.addFriend(stranger, USER);
+        storage.removeFriend(USER, stranger);
+        return storage.removeFriend(stranger, USER);
+    }
+}
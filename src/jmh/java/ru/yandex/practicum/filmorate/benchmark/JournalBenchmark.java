@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Цена журналирования лайков при разных политиках fsync по сравнению с хранилищем без журнала.
+ * Число и среднее время fsync печатаются после каждой итерации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Threads(4)
+public class JournalBenchmark {
+    private static final int FILMS = 10_000;
+
+    @Param({"none", "always", "batch", "interval"})
+    private String fsync;
+
+    private final AtomicLong userIds = new AtomicLong();
+    private InMemoryLikeStorage likeStorage;
+    private PersistenceManager manager;
+    private Path directory;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        likeStorage = new InMemoryLikeStorage();
+        if ("none".equals(fsync)) {
+            return;
+        }
+        directory = Files.createTempDirectory("journal-benchmark");
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("filmorate.persistence.dir", directory.toString())
+                .withProperty("filmorate.persistence.fsync", fsync)
+                .withProperty("filmorate.persistence.snapshot-interval-ms", "3600000");
+        manager = new PersistenceManager(new InMemoryFilmStorage(), new InMemoryUserStorage(),
+                likeStorage, new InMemoryFriendStorage(), environment);
+        manager.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (manager == null) {
+            return;
+        }
+        manager.closeLog();
+        long count = manager.getFsyncCount();
+        System.out.printf("%nfsync: %d раз, в среднем %d мкс%n", count,
+                count > 0 ? manager.getFsyncTime().toNanos() / count / 1000 : 0);
+        FileSystemUtils.deleteRecursively(directory);
+        manager = null;
+    }
+
+    @Benchmark
+    public boolean addLike() {
+        return likeStorage.addLike(1 + ThreadLocalRandom.current().nextLong(FILMS), userIds.incrementAndGet());
+    }
+}
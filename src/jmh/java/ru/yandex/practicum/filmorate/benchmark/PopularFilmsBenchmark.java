@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сравнение рейтинга популярных фильмов: полная сортировка каталога против индекса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class PopularFilmsBenchmark {
+    private static final int USERS = 1_000;
+
+    @Param({"10000", "100000", "1000000"})
+    private int films;
+
+    @Param({"10"})
+    private int count;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryLikeStorage likeStorage;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset dataset = Dataset.generate(USERS, films, films, 0);
+        filmStorage = dataset.getFilmStorage();
+        likeStorage = dataset.getLikeStorage();
+        filmService = dataset.getFilmService();
+    }
+
+    @Benchmark
+    public List<Film> sortEverything() {
+        return filmStorage.findAll().stream()
+                .sorted(Comparator.comparingInt(f -> -likeStorage.getLikesCount(f.getId())))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Film> popularityIndex() {
+        return filmService.getPopularFilms(count);
+    }
+}
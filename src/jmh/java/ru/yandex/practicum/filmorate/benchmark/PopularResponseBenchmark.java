@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.serializer.PopularFilmsResponseCache;
+import ru.yandex.practicum.filmorate.serializer.SmileHttpMessageConverter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ GET /films/popular: рейтинг и сериализация на каждый запрос против готовых байт из
+ * {@link PopularFilmsResponseCache}. Варианты {@code ...WithTailLike} перед каждым запросом ставят или снимают
+ * лайк фильма из хвоста, который не попадает в ответ, — так выглядит кэш под обычной записью.
+ * Аллокации — с {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class PopularResponseBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 10_000;
+
+    @Param({"10", "100"})
+    private int count;
+
+    private FilmService filmService;
+    private ObjectMapper objectMapper;
+    private PopularFilmsResponseCache cache;
+    private long[] tailFilmIds;
+    private long[] tailUserIds;
+    private int next;
+    private boolean removing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset dataset = Dataset.generate(USERS, FILMS, 1_000_000, 0);
+        filmService = dataset.getFilmService();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cache = new PopularFilmsResponseCache(filmService, dataset.getLikeStorage(), objectMapper,
+                new SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.json()));
+
+        Random random = new Random(Dataset.SEED + 1);
+        tailFilmIds = new long[1024];
+        tailUserIds = new long[tailFilmIds.length];
+        for (int i = 0; i < tailFilmIds.length; i++) {
+            // Последняя десятая часть каталога: у этих фильмов единицы лайков
+            tailFilmIds[i] = FILMS - random.nextInt(FILMS / 10);
+            tailUserIds[i] = dataset.randomUserId(random);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeEachTime() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(filmService.getPopularFilms(count));
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return cache.get(count).body();
+    }
+
+    @Benchmark
+    public byte[] serializeWithTailLike() throws JsonProcessingException {
+        likeTailFilm();
+        return objectMapper.writeValueAsBytes(filmService.getPopularFilms(count));
+    }
+
+    @Benchmark
+    public byte[] cachedWithTailLike() {
+        likeTailFilm();
+        return cache.get(count).body();
+    }
+
+    // Лайки ставятся по кругу, а на следующем круге снимаются, так что данные между итерациями не растут
+    private void likeTailFilm() {
+        int i = next;
+        if (removing) {
+            filmService.removeLike(tailFilmIds[i], tailUserIds[i]);
+        } else {
+            filmService.addLike(tailFilmIds[i], tailUserIds[i]);
+        }
+        if (++next == tailFilmIds.length) {
+            next = 0;
+            removing = !removing;
+        }
+    }
+}
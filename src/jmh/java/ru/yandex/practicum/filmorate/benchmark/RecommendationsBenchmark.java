@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации по совместным лайкам на синтетических данных: 1 млн пользователей, 10 млн лайков,
+ * популярность фильмов с длинным хвостом. Замеряются выдача рекомендаций, точная пересборка соседей
+ * и лайк с приближённым обновлением соседей.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class RecommendationsBenchmark {
+    private static final int USERS = 1_000_000;
+    private static final int FILMS = 100_000;
+    private static final int LIKES = 10_000_000;
+    private static final int BATCH = 100_000;
+    private static final int COUNT = 10;
+
+    private InMemoryLikeStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = new InMemoryLikeStorage();
+        Random random = new Random(Dataset.SEED);
+        List<Like> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < LIKES; i++) {
+            double skew = random.nextDouble();
+            batch.add(new Like(1 + (long) (skew * skew * FILMS), 1L + random.nextInt(USERS)));
+            if (batch.size() == BATCH) {
+                storage.addLikes(batch);
+                batch = new ArrayList<>(BATCH);
+            }
+        }
+        storage.addLikes(batch);
+        storage.rebuildRecommendations();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<Long> recommend() {
+        return storage.getRecommendedFilmIds(1L + ThreadLocalRandom.current().nextInt(USERS), COUNT);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public boolean likeAndUnlike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = 1L + random.nextInt(FILMS);
+        long userId = 1L + random.nextInt(USERS);
+        if (storage.addLike(filmId, userId)) {
+            return storage.removeLike(filmId, userId);
+        }
+        return false;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void rebuild() {
+        storage.rebuildRecommendations();
+    }
+}
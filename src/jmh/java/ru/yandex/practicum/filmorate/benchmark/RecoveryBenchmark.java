@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время восстановления после перезапуска: весь журнал против снимка с пустым хвостом журнала.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RecoveryBenchmark {
+    private static final int USERS = 100_000;
+    private static final int FILMS = 100_000;
+    private static final int LIKES = 1_000_000;
+    private static final int FRIENDSHIPS = 100_000;
+
+    @Param({"log", "snapshot"})
+    private String source;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("recovery-benchmark");
+        Storages storages = new Storages();
+        PersistenceManager manager = storages.manager(directory, "batch");
+        manager.start();
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(Dataset.user(i));
+        }
+        storages.users.createAll(users);
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(Dataset.film(i));
+        }
+        storages.films.createAll(films);
+        Random random = new Random(Dataset.SEED);
+        for (int i = 0; i < LIKES; i++) {
+            storages.likes.addLike(1L + random.nextInt(FILMS), 1L + random.nextInt(USERS));
+        }
+        for (int i = 0; i < FRIENDSHIPS; i++) {
+            long userId = 1L + random.nextInt(USERS);
+            long friendId = 1L + random.nextInt(USERS);
+            storages.friends.addFriend(userId, friendId);
+            storages.friends.addFriend(friendId, userId);
+        }
+
+        if ("snapshot".equals(source)) {
+            manager.snapshot();
+        }
+        manager.closeLog();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public InMemoryLikeStorage recover() throws IOException {
+        Storages storages = new Storages();
+        PersistenceManager manager = storages.manager(directory, "batch");
+        manager.start();
+        manager.closeLog();
+        return storages.likes;
+    }
+
+    private static class Storages {
+        private final InMemoryFilmStorage films = new InMemoryFilmStorage();
+        private final InMemoryUserStorage users = new InMemoryUserStorage();
+        private final InMemoryLikeStorage likes = new InMemoryLikeStorage();
+        private final InMemoryFriendStorage friends = new InMemoryFriendStorage();
+
+        PersistenceManager manager(Path directory, String fsync) {
+            MockEnvironment environment = new MockEnvironment()
+                    .withProperty("filmorate.persistence.dir", directory.toString())
+                    .withProperty("filmorate.persistence.fsync", fsync)
+                    .withProperty("filmorate.persistence.snapshot-interval-ms", "3600000");
+            return new PersistenceManager(films, users, likes, friends, environment);
+        }
+    }
+}
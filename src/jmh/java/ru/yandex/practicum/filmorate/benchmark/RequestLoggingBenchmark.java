@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена логирования запросов на запущенном приложении: настройки по умолчанию (Logbook на TRACE, лог контроллеров
+ * по каждому запросу) против профиля prod (выборка 1% запросов, без тел, асинхронный аппендер).
+ * Аллокации на запрос — gc.alloc.rate.norm при запуске с {@code -prof gc}; в неё входит и HTTP-клиент,
+ * одинаковый в обоих режимах. Консоль подменяется пустым потоком: измеряется формирование логов, а не терминал.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class RequestLoggingBenchmark {
+    private static final int FILMS = 10_000;
+    private static final String FILM_JSON = """
+            {"name":"film","description":"description","releaseDate":"2000-01-01","duration":100}""";
+
+    @Param({"default", "prod"})
+    private String logging;
+
+    private PrintStream stdout;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FilmorateApplication.class);
+        if ("prod".equals(logging)) {
+            builder.profiles("prod");
+        }
+        context = builder.run("--server.port=0");
+        FilmStorage storage = context.getBean(FilmStorage.class);
+        for (int i = 0; i < FILMS; i++) {
+            storage.create(Dataset.film(i));
+        }
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/films";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public int getFilm() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + (1 + ThreadLocalRandom.current().nextInt(FILMS))))
+                .build(), 200);
+    }
+
+    @Benchmark
+    public int createFilm() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(FILM_JSON))
+                .build(), 201);
+    }
+
+    private int send(HttpRequest request, int expectedStatus) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException("Неожиданный ответ: " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
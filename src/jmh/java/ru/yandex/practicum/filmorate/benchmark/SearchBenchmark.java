@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.TextSearchIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по 1 млн фильмов: инвертированный индекс хранилища против фильтрации всех фильмов по словам,
+ * как сейчас делают клиенты. Названия и описания собраны из словаря выдуманных слов с «длинным хвостом»
+ * частот. Запросы: начало частого слова из двух и четырёх букв, редкое слово, частое слово с недописанным вторым.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class SearchBenchmark {
+    private static final int FILMS = 1_000_000;
+    private static final int VOCABULARY = 50_000;
+    private static final int LIMIT = 20;
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ла", "то", "ве", "ны", "за", "пе", "ду",
+            "со", "ли", "ра", "ки", "мо", "на", "ти", "бе", "го", "ша"};
+
+    @Param({"prefix2", "prefix4", "rare", "twoWords"})
+    private String kind;
+
+    private InMemoryFilmStorage storage;
+    private String query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(Dataset.SEED);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        storage = new InMemoryFilmStorage();
+        List<Film> batch = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            batch.add(Film.builder()
+                    .name(text(words, random, 1 + random.nextInt(4)))
+                    .description(text(words, random, 10 + random.nextInt(10)))
+                    .releaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25_000))
+                    .duration(5400)
+                    .build());
+            if (batch.size() == 10_000) {
+                storage.createAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        storage.createAll(batch);
+        query = switch (kind) {
+            case "prefix2" -> words[0].substring(0, 2);
+            case "prefix4" -> words[0].substring(0, 4);
+            case "rare" -> words[VOCABULARY - 1];
+            case "twoWords" -> words[0] + " " + words[1].substring(0, 3);
+            default -> throw new IllegalArgumentException(kind);
+        };
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return storage.searchIds(query, LIMIT);
+    }
+
+    /**
+     * Те же правила совпадения без индекса: все слова, кроме последнего, целиком, последнее — началом слова.
+     * Как и индекс, сначала фильмы с совпадением в названии, поэтому обходятся все фильмы.
+     */
+    @Benchmark
+    public List<Long> scan() {
+        List<String> words = TextSearchIndex.tokens(query);
+        List<Long> inName = new ArrayList<>();
+        List<Long> inText = new ArrayList<>();
+        for (Film film : storage.findAll()) {
+            List<String> name = TextSearchIndex.tokens(film.getName());
+            if (inName.size() < LIMIT && matches(name, words)) {
+                inName.add(film.getId());
+            } else if (inName.size() + inText.size() < LIMIT) {
+                List<String> text = new ArrayList<>(name);
+                text.addAll(TextSearchIndex.tokens(film.getDescription()));
+                if (matches(text, words)) {
+                    inText.add(film.getId());
+                }
+            }
+        }
+        inName.addAll(inText);
+        return inName.subList(0, Math.min(LIMIT, inName.size()));
+    }
+
+    private static boolean matches(List<String> text, List<String> words) {
+        for (int i = 0; i < words.size() - 1; i++) {
+            if (!text.contains(words.get(i))) {
+                return false;
+            }
+        }
+        String prefix = words.get(words.size() - 1);
+        for (String word : text) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Куб равномерного распределения: частые слова встречаются почти в каждом фильме, редкие — единицы раз
+    private static String text(String[] words, Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double skew = random.nextDouble();
+            text.append(i > 0 ? " " : "").append(words[(int) (skew * skew * skew * words.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути сервисов на наборе данных, близком к реальному по объёму.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ServiceBenchmark {
+    private static final int QUERIES = 4_096;
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"100000"})
+    private int films;
+
+    @Param({"1000000"})
+    private int likes;
+
+    @Param({"1000000"})
+    private int friendships;
+
+    private FilmService filmService;
+    private UserService userService;
+    private long[] filmIds;
+    private long[] userIds;
+    private long[] otherUserIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset dataset = Dataset.generate(users, films, likes, friendships);
+        filmService = dataset.getFilmService();
+        userService = dataset.getUserService();
+
+        Random random = new Random(Dataset.SEED + 1);
+        filmIds = new long[QUERIES];
+        userIds = new long[QUERIES];
+        otherUserIds = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            filmIds[i] = dataset.skewedFilmId(random);
+            userIds[i] = dataset.randomUserId(random);
+            otherUserIds[i] = dataset.randomUserId(random);
+        }
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public void addAndRemoveLike() {
+        int i = nextIndex();
+        filmService.addLike(filmIds[i], userIds[i]);
+        filmService.removeLike(filmIds[i], userIds[i]);
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userService.getFriends(userIds[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        int i = nextIndex();
+        return userService.getCommonFriends(userIds[i], otherUserIds[i]);
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (i + 1) & (QUERIES - 1);
+        return i;
+    }
+}
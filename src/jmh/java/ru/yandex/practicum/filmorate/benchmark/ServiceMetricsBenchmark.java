@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import ru.yandex.practicum.filmorate.config.ServiceMetricsPostProcessor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена таймера filmorate.service на горячем пути: FilmService.getById без метрик, с простым таймером,
+ * с перцентилями, считаемыми в приложении, и с гистограммой для Prometheus (как в application.properties).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ServiceMetricsBenchmark {
+    private static final int FILMS = 10_000;
+
+    @Param({"none", "timer", "percentiles", "histogram"})
+    private String metrics;
+
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FilmService service = Dataset.generate(100, FILMS, 0, 0).getFilmService();
+        if ("none".equals(metrics)) {
+            filmService = service;
+            return;
+        }
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        if (!"timer".equals(metrics)) {
+            DistributionStatisticConfig distribution = "percentiles".equals(metrics)
+                    ? DistributionStatisticConfig.builder().percentiles(0.5, 0.95, 0.99).build()
+                    : DistributionStatisticConfig.builder().percentilesHistogram(true).build();
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return distribution.merge(config);
+                }
+            });
+        }
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("registry", registry);
+        filmService = (FilmService) new ServiceMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class))
+                .postProcessAfterInitialization(service, "filmService");
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmService.getById(1 + ThreadLocalRandom.current().nextLong(FILMS));
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.MappedCatalog;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Время от старта до обслуживания запросов: загрузка каталога фильмов и пользователей из JSON
+ * против отображения двоичного каталога в память, плюс первые {@value #LOOKUPS} обращений по случайным id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class StartupBenchmark {
+    private static final int LOOKUPS = 1_000;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"json", "mapped"})
+    private String format;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("startup-benchmark");
+        if ("json".equals(format)) {
+            try (SequenceWriter films = objectMapper.writer().withRootValueSeparator("\n")
+                    .writeValues(directory.resolve("films.json").toFile());
+                 SequenceWriter users = objectMapper.writer().withRootValueSeparator("\n")
+                         .writeValues(directory.resolve("users.json").toFile())) {
+                for (int i = 0; i < size; i++) {
+                    films.write(withId(Dataset.film(i), i));
+                    users.write(withId(Dataset.user(i), i));
+                }
+            }
+        } else {
+            MappedCatalog.writeFilms(directory.resolve("films.cat"),
+                    consumer -> IntStream.range(0, size).mapToObj(i -> withId(Dataset.film(i), i)).forEach(consumer));
+            MappedCatalog.writeUsers(directory.resolve("users.cat"),
+                    consumer -> IntStream.range(0, size).mapToObj(i -> withId(Dataset.user(i), i)).forEach(consumer));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long startAndServe() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        if ("json".equals(format)) {
+            try (MappingIterator<Film> iterator = objectMapper.readerFor(Film.class)
+                    .readValues(directory.resolve("films.json").toFile())) {
+                iterator.forEachRemaining(films::restore);
+            }
+            try (MappingIterator<User> iterator = objectMapper.readerFor(User.class)
+                    .readValues(directory.resolve("users.json").toFile())) {
+                iterator.forEachRemaining(users::restore);
+            }
+        } else {
+            films.attachCatalog(MappedCatalog.openFilms(directory.resolve("films.cat")));
+            users.attachCatalog(MappedCatalog.openUsers(directory.resolve("users.cat")));
+        }
+
+        Random random = new Random(Dataset.SEED);
+        long checksum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            checksum += films.getById(1L + random.nextInt(size)).getDurationSeconds();
+            checksum += users.getById(1L + random.nextInt(size)).getLogin().length();
+        }
+        return checksum;
+    }
+
+    private static Film withId(Film film, int i) {
+        film.setId(i + 1L);
+        return film;
+    }
+
+    private static User withId(User user, int i) {
+        user.setId(i + 1L);
+        return user;
+    }
+}
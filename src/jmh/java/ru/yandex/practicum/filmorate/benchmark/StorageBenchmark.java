@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Создание и чтение по id в in-memory хранилищах.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StorageBenchmark {
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private int created;
+
+    // Пересоздаём хранилища на каждой итерации, чтобы create не раздувал их бесконечно
+    @Setup(Level.Iteration)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        for (int i = 0; i < size; i++) {
+            filmStorage.create(Dataset.film(i));
+            userStorage.create(Dataset.user(i));
+        }
+        created = size;
+    }
+
+    @Benchmark
+    public Film createFilm() {
+        return filmStorage.create(Dataset.film(created++));
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getById(1 + ThreadLocalRandom.current().nextLong(size));
+    }
+
+    @Benchmark
+    public User createUser() {
+        return userStorage.create(Dataset.user(created++));
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userStorage.getById(1 + ThreadLocalRandom.current().nextLong(size));
+    }
+}
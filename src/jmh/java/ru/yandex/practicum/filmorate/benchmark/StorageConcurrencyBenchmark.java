@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.TextSearchIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность хранилища фильмов под нагрузкой из нескольких потоков:
+ * конкурентная реализация против «наивной» с synchronized на каждом методе.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+public class StorageConcurrencyBenchmark {
+    private static final int PRELOADED = 100_000;
+
+    @Param({"concurrent", "synchronized"})
+    private String storageType;
+
+    private FilmStorage storage;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        storage = "concurrent".equals(storageType) ? new InMemoryFilmStorage() : new SynchronizedFilmStorage();
+        for (int i = 0; i < PRELOADED; i++) {
+            storage.create(film());
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Film read() {
+        return storage.getById(1 + ThreadLocalRandom.current().nextLong(PRELOADED));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public Film write() {
+        return storage.create(film());
+    }
+
+    @Benchmark
+    public Film createOnly() {
+        return storage.create(film());
+    }
+
+    private static Film film() {
+        return Film.builder()
+                .name("film")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(5400)
+                .build();
+    }
+
+    static class SynchronizedFilmStorage implements FilmStorage {
+        private final TreeMap<Long, Film> films = new TreeMap<>();
+        private long idCounter = 1;
+
+        @Override
+        public synchronized Collection<Film> findAll() {
+            return films.values();
+        }
+
+        @Override
+        public synchronized List<Film> findPage(long afterId, int limit) {
+            return films.tailMap(afterId, false).values().stream()
+                    .limit(limit)
+                    .toList();
+        }
+
+        @Override
+        public synchronized Film create(Film film) {
+            film.setId(idCounter++);
+            films.put(film.getId(), film);
+            return film;
+        }
+
+        @Override
+        public synchronized List<Film> createAll(List<Film> films) {
+            films.forEach(this::create);
+            return films;
+        }
+
+        @Override
+        public synchronized Film update(Film film) {
+            if (!films.containsKey(film.getId())) {
+                throw new NotFoundException("Фильм с таким id не найден: " + film.getId());
+            }
+            films.put(film.getId(), film);
+            return film;
+        }
+
+        @Override
+        public synchronized Film getById(Long id) {
+            Film film = films.get(id);
+            if (film == null) {
+                throw new NotFoundException("Фильм с id=" + id + " не найден");
+            }
+            return film;
+        }
+
+        @Override
+        public synchronized List<Film> getByIds(Collection<Long> ids) {
+            List<Film> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Film film = films.get(id);
+                if (film != null) {
+                    result.add(film);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized List<Long> searchIds(String query, int limit) {
+            // Без индекса, как в JdbcFilmStorage: полный проход с поиском каждого слова подстрокой
+            List<String> words = TextSearchIndex.tokens(query);
+            if (words.isEmpty()) {
+                return List.of();
+            }
+            List<Long> inName = new ArrayList<>();
+            List<Long> inDescription = new ArrayList<>();
+            for (Film film : films.values()) {
+                String name = normalize(film.getName());
+                String description = normalize(film.getDescription());
+                if (words.stream().allMatch(name::contains)) {
+                    inName.add(film.getId());
+                    if (inName.size() == limit) {
+                        break;
+                    }
+                } else if (words.stream().allMatch(word -> name.contains(word) || description.contains(word))) {
+                    inDescription.add(film.getId());
+                }
+            }
+            inName.addAll(inDescription);
+            return List.copyOf(inName.subList(0, Math.min(limit, inName.size())));
+        }
+
+        @Override
+        public synchronized void delete(Long id) {
+            films.remove(id);
+        }
+
+        @Override
+        public synchronized long count() {
+            return films.size();
+        }
+
+        private static String normalize(String text) {
+            return text != null ? text.toLowerCase().replace('ё', 'е') : "";
+        }
+    }
+}
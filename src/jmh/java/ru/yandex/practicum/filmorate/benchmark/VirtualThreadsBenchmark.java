@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест GET /films/{id} на запущенном приложении: пул потоков Tomcat против виртуальных потоков.
+ * Хранилище фильмов отвечает с искусственной задержкой {@value #STORAGE_LATENCY_MS} мс, имитируя сеть до базы;
+ * клиентов больше, чем потоков в пуле Tomcat по умолчанию (200). Режим SampleTime даёт p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Threads(400)
+public class VirtualThreadsBenchmark {
+    private static final long STORAGE_LATENCY_MS = 50;
+    private static final int FILMS = 10_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Аргументами командной строки, а не properties(): те ниже application.properties по приоритету
+        context = new SpringApplicationBuilder(FilmorateApplication.class, SimulatedLatency.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                        "--logging.level.org.zalando.logbook=OFF",
+                        "--logging.level.root=WARN");
+        FilmStorage storage = context.getBean(FilmStorage.class);
+        for (int i = 0; i < FILMS; i++) {
+            storage.create(Dataset.film(i));
+        }
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/films/";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int getFilm() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create(baseUrl + (1 + ThreadLocalRandom.current().nextInt(FILMS)))).build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Неожиданный ответ: " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    // Без @Configuration, чтобы сканирование компонентов в тестах не подхватило задержку
+    static class SimulatedLatency {
+        @Bean
+        static BeanPostProcessor slowFilmStorage() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof FilmStorage storage)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(FilmStorage.class.getClassLoader(),
+                            new Class<?>[]{FilmStorage.class}, (proxy, method, args) -> {
+                                if ("getById".equals(method.getName())) {
+                                    Thread.sleep(STORAGE_LATENCY_MS);
+                                }
+                                try {
+                                    return method.invoke(storage, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serializer.SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и разбор списков фильмов и пользователей (как в GET /films и GET /users) в JSON и Smile.
+ * Настройки ObjectMapper те же, что у Spring Boot: даты строкой. Размер ответов печатается при подготовке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class WireFormatBenchmark {
+    private static final TypeReference<List<Film>> FILMS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<User>> USERS = new TypeReference<>() {
+    };
+
+    @Param({"100", "1000"})
+    private int size;
+
+    @Param({"json", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private List<Film> films;
+    private List<User> users;
+    private byte[] encodedFilms;
+    private byte[] encodedUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper = "smile".equals(format)
+                ? new SmileHttpMessageConverter(builder).getObjectMapper()
+                : builder.build();
+        films = new ArrayList<>(size);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Film film = Dataset.film(i);
+            film.setId(i + 1L);
+            films.add(film);
+            User user = Dataset.user(i);
+            user.setId(i + 1L);
+            users.add(user);
+        }
+        encodedFilms = objectMapper.writeValueAsBytes(films);
+        encodedUsers = objectMapper.writeValueAsBytes(users);
+        System.out.printf("%n%s, %d записей: фильмы %d байт, пользователи %d байт%n", format, size,
+                encodedFilms.length, encodedUsers.length);
+    }
+
+    @Benchmark
+    public byte[] encodeFilms() throws IOException {
+        return objectMapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    public List<Film> decodeFilms() throws IOException {
+        return objectMapper.readValue(encodedFilms, FILMS);
+    }
+
+    @Benchmark
+    public byte[] encodeUsers() throws IOException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public List<User> decodeUsers() throws IOException {
+        return objectMapper.readValue(encodedUsers, USERS);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.JdbcLikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.WriteBehindLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.WriteBehindQueue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время лайка для вызывающего: запись в H2 на каждый вызов против отложенной записи пачками.
+ * Вызовы проходят по кругу 100 тыс. случайных пар, ставя лайк или снимая уже стоящий, поэтому данные не растут.
+ * {@code writeBehindFlushed} пишет очередь в базу в каждом вызове — это цена той же записи без пачек.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class WriteBehindBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+    private static final int PAIRS = 100_000;
+
+    private HikariDataSource dataSource;
+    private LikeStorage direct;
+    private WriteBehindLikeStorage writeBehind;
+    private long[] filmIds;
+    private long[] userIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(Dataset.film(i));
+        }
+        new JdbcFilmStorage(jdbcTemplate).createAll(films);
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(Dataset.user(i));
+        }
+        new JdbcUserStorage(jdbcTemplate).createAll(users);
+
+        direct = new JdbcLikeStorage(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        writeBehind = new WriteBehindLikeStorage(direct, new WriteBehindQueue.Settings(100_000, 1_000,
+                Duration.ofMillis(50), WriteBehindQueue.Overflow.BLOCK, Duration.ofSeconds(10), true,
+                Duration.ofSeconds(30)));
+        writeBehind.start();
+
+        Random random = new Random(Dataset.SEED);
+        filmIds = new long[PAIRS];
+        userIds = new long[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            filmIds[i] = 1 + random.nextInt(FILMS);
+            userIds[i] = 1 + random.nextInt(USERS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writeBehind.stop();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean direct() {
+        return toggle(direct);
+    }
+
+    @Benchmark
+    public boolean writeBehind() {
+        return toggle(writeBehind);
+    }
+
+    @Benchmark
+    public boolean writeBehindFlushed() {
+        boolean changed = toggle(writeBehind);
+        writeBehind.flush();
+        return changed;
+    }
+
+    private boolean toggle(LikeStorage storage) {
+        int i = next++ % PAIRS;
+        return storage.hasLike(filmIds[i], userIds[i])
+                ? storage.removeLike(filmIds[i], userIds[i])
+                : storage.addLike(filmIds[i], userIds[i]);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Условие Logbook: логируется только доля запросов filmorate.logging.sample-rate (от 0 до 1, по умолчанию все).
+ * Имя бина заменяет условие автоконфигурации; исключения logbook.predicate.exclude по-прежнему применяются.
+ * Для невыбранных запросов Logbook не буферизует тело и ничего не форматирует.
+ */
+@Component("requestCondition")
+@Slf4j
+public class SampledRequestCondition implements Predicate<HttpRequest> {
+    private final double sampleRate;
+
+    @Autowired
+    public SampledRequestCondition(Environment environment) {
+        this(environment.getProperty("filmorate.logging.sample-rate", Double.class, 1.0));
+    }
+
+    SampledRequestCondition(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Доля логируемых запросов должна быть от 0 до 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        if (sampleRate < 1) {
+            log.info("Логируется доля запросов {}", sampleRate);
+        }
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
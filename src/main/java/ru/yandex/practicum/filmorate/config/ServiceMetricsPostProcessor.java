@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет каждый публичный метод сервисов (@Service) таймером filmorate.service
+ * с тегами service, method и exception. Вызовы внутри сервиса через this не считаются.
+ */
+@Component
+public class ServiceMetricsPostProcessor implements BeanPostProcessor {
+    public static final String TIMER_NAME = "filmorate.service";
+
+    // Реестр берётся лениво: ранняя инициализация из BeanPostProcessor обошла бы его настройку Spring Boot
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public ServiceMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!AnnotatedElementUtils.hasAnnotation(bean.getClass(), Service.class)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TimingInterceptor(bean.getClass().getSimpleName()));
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private final class TimingInterceptor implements MethodInterceptor {
+        private final String service;
+        // Таймеры успешных вызовов кэшируются по методу, чтобы не искать их в реестре на каждый вызов
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        private TimingInterceptor(String service) {
+            this.service = service;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            long started = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                Timer timer = timers.get(method);
+                if (timer == null) {
+                    timer = timers.computeIfAbsent(method, m -> timer(m, "none"));
+                }
+                timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                timer(method, e.getClass().getSimpleName()).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer timer(Method method, String exception) {
+            return Timer.builder(TIMER_NAME)
+                    .description("Service method execution time")
+                    .tag("service", service)
+                    .tag("method", method.getName())
+                    .tag("exception", exception)
+                    .register(registry.getObject());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+/**
+ * Оборачивает хранилища фильмов и пользователей в кэш, если он включён в настройках
+ * (filmorate.cache.films.enabled / filmorate.cache.users.enabled).
+ */
+@Component
+@Slf4j
+public class StorageCachePostProcessor implements BeanPostProcessor {
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Environment environment;
+
+    public StorageCachePostProcessor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof FilmStorage filmStorage && !(bean instanceof CachingFilmStorage)
+                && isEnabled("films")) {
+            log.info("Кэш фильмов включён для {}, размер {}", beanName, maximumSize("films"));
+            return new CachingFilmStorage(filmStorage, maximumSize("films"));
+        }
+        if (bean instanceof UserStorage userStorage && !(bean instanceof CachingUserStorage)
+                && isEnabled("users")) {
+            log.info("Кэш пользователей включён для {}, размер {}", beanName, maximumSize("users"));
+            return new CachingUserStorage(userStorage, maximumSize("users"));
+        }
+        return bean;
+    }
+
+    private boolean isEnabled(String storage) {
+        return environment.getProperty("filmorate.cache." + storage + ".enabled", Boolean.class, false);
+    }
+
+    private long maximumSize(String storage) {
+        return environment.getProperty("filmorate.cache." + storage + ".maximum-size", Long.class,
+                DEFAULT_MAXIMUM_SIZE);
+    }
+}
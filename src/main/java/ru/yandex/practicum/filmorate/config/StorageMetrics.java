@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.WriteBehindFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.WriteBehindLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Размеры хранилищ, статистика кэшей чтения, очереди отложенной записи и fsync журнала. Значения читаются при каждом опросе
+ * (/actuator/prometheus): для хранилища в памяти это счётчики, для JDBC — COUNT(*).
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeStorage likeStorage;
+    private final FriendStorage friendStorage;
+    private final ObjectProvider<PersistenceManager> persistenceManager;
+
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage, LikeStorage likeStorage,
+                          FriendStorage friendStorage, ObjectProvider<PersistenceManager> persistenceManager) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeStorage = likeStorage;
+        this.friendStorage = friendStorage;
+        this.persistenceManager = persistenceManager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::count)
+                .description("Number of films")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::count)
+                .description("Number of users")
+                .register(registry);
+        Gauge.builder("filmorate.likes", likeStorage, LikeStorage::getTotalLikesCount)
+                .description("Number of likes")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", friendStorage, FriendStorage::getTotalFriendsCount)
+                .description("Number of friendship edges, each direction counted separately")
+                .register(registry);
+
+        if (filmStorage instanceof CachingFilmStorage caching) {
+            bindCache(registry, "films", caching, CachingFilmStorage::getStats);
+        }
+        if (userStorage instanceof CachingUserStorage caching) {
+            bindCache(registry, "users", caching, CachingUserStorage::getStats);
+        }
+        if (likeStorage instanceof WriteBehindLikeStorage writeBehind) {
+            Gauge.builder("filmorate.write.behind.queue", writeBehind, WriteBehindLikeStorage::getQueueSize)
+                    .description("Mutations waiting for the background writer")
+                    .tag("storage", "likes")
+                    .register(registry);
+        }
+        if (friendStorage instanceof WriteBehindFriendStorage writeBehind) {
+            Gauge.builder("filmorate.write.behind.queue", writeBehind, WriteBehindFriendStorage::getQueueSize)
+                    .description("Mutations waiting for the background writer")
+                    .tag("storage", "friends")
+                    .register(registry);
+        }
+        persistenceManager.ifAvailable(manager -> FunctionTimer.builder("filmorate.wal.fsync", manager,
+                        PersistenceManager::getFsyncCount, m -> m.getFsyncTime().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Write-ahead log fsync calls")
+                .tag("policy", manager.getFsyncPolicy().name().toLowerCase())
+                .register(registry));
+    }
+
+    // Имена и теги как у CaffeineCacheMetrics из Micrometer, но по статистике, а не по самому кэшу.
+    // Micrometer держит объект метрики по слабой ссылке, поэтому передаётся сам бин хранилища, а не лямбда
+    private static <T> void bindCache(MeterRegistry registry, String cache, T storage, Function<T, CacheStats> stats) {
+        FunctionCounter.builder("cache.gets", storage, s -> stats.apply(s).hitCount())
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", storage, s -> stats.apply(s).missCount())
+                .tag("cache", cache)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", storage, s -> stats.apply(s).evictionCount())
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.WriteBehindFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.WriteBehindLikeStorage;
+import ru.yandex.practicum.filmorate.storage.WriteBehindQueue;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Включает отложенную запись лайков и дружбы (filmorate.write-behind.enabled): хранилища оборачиваются в очередь,
+ * которую фоновый поток пишет пачками. Запуск и остановку очереди выполняет контекст — как у SmartLifecycle.
+ */
+@Component
+@Slf4j
+public class StorageWriteBehindPostProcessor implements BeanPostProcessor {
+    private final Environment environment;
+
+    public StorageWriteBehindPostProcessor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!environment.getProperty("filmorate.write-behind.enabled", Boolean.class, false)) {
+            return bean;
+        }
+        if (bean instanceof LikeStorage likeStorage && !(bean instanceof WriteBehindLikeStorage)) {
+            WriteBehindQueue.Settings settings = settings();
+            log.info("Отложенная запись лайков включена для {}: {}", beanName, settings);
+            return new WriteBehindLikeStorage(likeStorage, settings);
+        }
+        if (bean instanceof FriendStorage friendStorage && !(bean instanceof WriteBehindFriendStorage)) {
+            WriteBehindQueue.Settings settings = settings();
+            log.info("Отложенная запись дружбы включена для {}: {}", beanName, settings);
+            return new WriteBehindFriendStorage(friendStorage, settings);
+        }
+        return bean;
+    }
+
+    private WriteBehindQueue.Settings settings() {
+        return new WriteBehindQueue.Settings(
+                environment.getProperty("filmorate.write-behind.capacity", Integer.class, 100_000),
+                environment.getProperty("filmorate.write-behind.batch-size", Integer.class, 1_000),
+                Duration.ofMillis(environment.getProperty("filmorate.write-behind.flush-interval-ms", Long.class, 50L)),
+                WriteBehindQueue.Overflow.valueOf(environment.getProperty("filmorate.write-behind.overflow", "block")
+                        .toUpperCase(Locale.ROOT)),
+                Duration.ofMillis(environment.getProperty("filmorate.write-behind.block-timeout-ms", Long.class, 1_000L)),
+                environment.getProperty("filmorate.write-behind.drain-on-shutdown", Boolean.class, true),
+                Duration.ofMillis(environment.getProperty("filmorate.write-behind.shutdown-timeout-ms", Long.class,
+                        30_000L)));
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Сильные ETag ответов, посчитанные по версиям записей без сериализации. Тег списка — хэш id и версий
+ * его элементов по порядку: он меняется, только когда меняется состав, порядок или одна из записей списка.
+ * Сильный тег различает представления, поэтому к тегу не-JSON ответа добавляется подтип формата.
+ */
+@Component
+public class EntityTags {
+    // Версии в памяти после перезапуска начинаются заново; эпоха не даёт старому тегу совпасть с новым
+    private final String epoch = Long.toHexString(new SecureRandom().nextLong());
+
+    public String of(Film film, MediaType mediaType) {
+        return tag(Long.toHexString(film.getVersion()), mediaType);
+    }
+
+    public String of(User user, MediaType mediaType) {
+        return tag(Long.toHexString(user.getVersion()), mediaType);
+    }
+
+    public String ofUsers(List<User> users, MediaType mediaType) {
+        return digest(users, User::getId, User::getVersion, mediaType);
+    }
+
+    private <T> String digest(List<T> entities, ToLongFunction<T> id, ToLongFunction<T> version,
+                              MediaType mediaType) {
+        ByteBuffer buffer = ByteBuffer.allocate(entities.size() * 2 * Long.BYTES);
+        for (T entity : entities) {
+            buffer.putLong(id.applyAsLong(entity)).putLong(version.applyAsLong(entity));
+        }
+        return tag(DigestUtils.md5DigestAsHex(buffer.array()), mediaType);
+    }
+
+    private String tag(String value, MediaType mediaType) {
+        String format = MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType) ? "" : "-" + mediaType.getSubtype();
+        return "\"" + epoch + "-" + value + format + "\"";
+    }
+}
@@ -1,12 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchReport;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.serializer.NdjsonWriter;
+import ru.yandex.practicum.filmorate.serializer.PopularFilmsResponseCache;
+import ru.yandex.practicum.filmorate.serializer.SmileHttpMessageConverter;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
@@ -17,28 +27,62 @@ import java.util.List;
 @Slf4j
 public class FilmController {
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
+    private final EntityTags entityTags;
+    private final PopularFilmsResponseCache popularFilmsCache;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, NdjsonWriter ndjsonWriter, EntityTags entityTags,
+                          PopularFilmsResponseCache popularFilmsCache) {
         this.filmService = filmService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.entityTags = entityTags;
+        this.popularFilmsCache = popularFilmsCache;
     }
 
     @GetMapping
-    public Collection<Film> findAll() {
-        log.info("Запрос на получение всех фильмов");
-        return filmService.findAll();
+    public Collection<Film> findAll(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Запрос на получение всех фильмов");
+            return filmService.findAll();
+        }
+        log.info("Запрос на получение страницы фильмов: after={}, limit={}", after, limit);
+        return filmService.findPage(after, limit);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll(@RequestParam(required = false) Long after) {
+        log.info("Запрос на потоковую выгрузку фильмов: after={}", after);
+        return ndjsonWriter.write(after != null ? after : 0, filmService::findPage, Film::getId);
+    }
+
+    // При совпадении If-None-Match ответ 304 уходит без тела — сериализация не выполняется
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable Long id) {
+    public ResponseEntity<Film> getFilm(@PathVariable Long id) {
+        return getFilm(id, MediaType.APPLICATION_JSON);
+    }
+
+    @GetMapping(value = "/{id}", produces = SmileHttpMessageConverter.APPLICATION_SMILE_VALUE)
+    public ResponseEntity<Film> getFilmSmile(@PathVariable Long id) {
+        return getFilm(id, SmileHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    // Тег зависит от формата ответа, поэтому формат выбирается сопоставлением по Accept до проверки If-None-Match
+    private ResponseEntity<Film> getFilm(Long id, MediaType mediaType) {
         log.info("Получение фильма с id={}", id);
-        return filmService.getById(id);
+        Film film = filmService.getById(id);
+        return ResponseEntity.ok()
+                .eTag(entityTags.of(film, mediaType))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(film);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Film create(@Valid @RequestBody Film film) {
-        log.info("Запрос на создание нового фильма: {}", film);
+        log.info("Запрос на создание нового фильма: {}", film.getName());
         return filmService.create(film);
     }
 
@@ -48,22 +92,73 @@ public class FilmController {
         return filmService.update(film);
     }
 
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable Long id) {
+        log.info("Запрос на удаление фильма с id={}", id);
+        filmService.delete(id);
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable Long id, @PathVariable Long userId) {
         log.info("Запрос на добавление лайка фильму id={} от пользователя id={}", id, userId);
         filmService.addLike(id, userId);
     }
 
+    @PostMapping("/likes/batch")
+    public BatchReport applyLikes(@RequestBody List<LikeMutation> mutations) {
+        log.info("Запрос на пакетное изменение лайков: {} операций", mutations.size());
+        return filmService.applyLikes(mutations);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void removeLike(@PathVariable Long id, @PathVariable Long userId) {
         log.info("Запрос на удаление лайка у фильма id={} от пользователя id={}", id, userId);
         filmService.removeLike(id, userId);
     }
 
+    // Готовый JSON из кэша пишется в ответ как есть, без повторной сериализации
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(
-            @RequestParam(defaultValue = "10") @Min(1) Integer count) {
+    public ResponseEntity<byte[]> getPopularFilms(
+            @RequestParam(defaultValue = "10") @Min(1) @Max(FilmService.MAX_PAGE_SIZE) Integer count) {
         log.info("Запрос на получение {} самых популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+        return popularResponse(popularFilmsCache.get(count), MediaType.APPLICATION_JSON);
+    }
+
+    @GetMapping(value = "/popular", produces = SmileHttpMessageConverter.APPLICATION_SMILE_VALUE)
+    public ResponseEntity<byte[]> getPopularFilmsSmile(
+            @RequestParam(defaultValue = "10") @Min(1) @Max(FilmService.MAX_PAGE_SIZE) Integer count) {
+        log.info("Запрос на получение {} самых популярных фильмов в Smile", count);
+        return popularResponse(popularFilmsCache.getSmile(count), SmileHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    private ResponseEntity<byte[]> popularResponse(PopularFilmsResponseCache.Response response, MediaType mediaType) {
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .eTag(response.etag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(response.body());
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(FilmService.MAX_PAGE_SIZE) int count) {
+        log.info("Поиск фильмов: query={}, count={}", query, count);
+        return filmService.search(query, count);
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(FilmService.MAX_PAGE_SIZE) int count) {
+        log.info("Запрос на получение {} фильмов в тренде за период {}", count, period);
+        return filmService.getTrendingFilms(period, count);
+    }
+
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamPopularFilms(
+            @RequestParam(defaultValue = "10") @Min(1) @Max(FilmService.MAX_PAGE_SIZE) Integer count) {
+        log.info("Запрос на потоковую выгрузку {} самых популярных фильмов", count);
+        return ndjsonWriter.write(filmService.getPopularFilmIds(count), filmService::getByIds);
     }
 }
\ No newline at end of file
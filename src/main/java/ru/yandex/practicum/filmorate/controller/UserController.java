@@ -2,12 +2,23 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
 import jakarta.validation.ValidationException;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchReport;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serializer.NdjsonWriter;
+import ru.yandex.practicum.filmorate.serializer.SmileHttpMessageConverter;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -18,28 +29,61 @@ import java.util.List;
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
+    private final EntityTags entityTags;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, NdjsonWriter ndjsonWriter,
+                          EntityTags entityTags) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.entityTags = entityTags;
     }
 
     @GetMapping
-    public Collection<User> findAll() {
-        log.info("Запрос на получение всех пользователей");
-        return userService.findAll();
+    public Collection<User> findAll(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Запрос на получение всех пользователей");
+            return userService.findAll();
+        }
+        log.info("Запрос на получение страницы пользователей: after={}, limit={}", after, limit);
+        return userService.findPage(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll(@RequestParam(required = false) Long after) {
+        log.info("Запрос на потоковую выгрузку пользователей: after={}", after);
+        return ndjsonWriter.write(after != null ? after : 0, userService::findPage, User::getId);
     }
 
+    // При совпадении If-None-Match ответ 304 уходит без тела — сериализация не выполняется
     @GetMapping("/{id}")
-    public User getUser(@PathVariable Long id) {
+    public ResponseEntity<User> getUser(@PathVariable Long id) {
+        return getUser(id, MediaType.APPLICATION_JSON);
+    }
+
+    @GetMapping(value = "/{id}", produces = SmileHttpMessageConverter.APPLICATION_SMILE_VALUE)
+    public ResponseEntity<User> getUserSmile(@PathVariable Long id) {
+        return getUser(id, SmileHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    private ResponseEntity<User> getUser(Long id, MediaType mediaType) {
         log.info("Получение пользователя с id={}", id);
-        return userService.getById(id);
+        User user = userService.getById(id);
+        return ResponseEntity.ok()
+                .eTag(entityTags.of(user, mediaType))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(user);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public User create(@Valid @RequestBody User user) {
-        log.info("Запрос на создание пользователя: {}", user);
+        log.info("Запрос на создание пользователя: {}", user.getLogin());
         if (user.getLogin().contains(" ")) {
             throw new ValidationException("Логин не может содержать пробелов");
         }
@@ -58,6 +102,12 @@ public class UserController {
         userService.addFriend(id, friendId);
     }
 
+    @PostMapping("/friends/batch")
+    public BatchReport applyFriends(@RequestBody List<FriendMutation> mutations) {
+        log.info("Запрос на пакетное изменение дружбы: {} операций", mutations.size());
+        return userService.applyFriends(mutations);
+    }
+
     @DeleteMapping("/{userId}/friends/{friendId}")
     public ResponseEntity<Void> removeFriend(
             @PathVariable Long userId,
@@ -68,8 +118,50 @@ public class UserController {
 
     @GetMapping("/{userId}/friends")
     public ResponseEntity<List<User>> getFriends(@PathVariable Long userId) {
+        return getFriends(userId, MediaType.APPLICATION_JSON);
+    }
+
+    @GetMapping(value = "/{userId}/friends", produces = SmileHttpMessageConverter.APPLICATION_SMILE_VALUE)
+    public ResponseEntity<List<User>> getFriendsSmile(@PathVariable Long userId) {
+        return getFriends(userId, SmileHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    private ResponseEntity<List<User>> getFriends(Long userId, MediaType mediaType) {
         List<User> friends = userService.getFriends(userId);
-        return ResponseEntity.ok(friends);
+        return ResponseEntity.ok()
+                .eTag(entityTags.ofUsers(friends, mediaType))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(friends);
+    }
+
+    @GetMapping(value = "/{userId}/friends", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamFriends(@PathVariable Long userId) {
+        log.info("Запрос на потоковую выгрузку друзей пользователя {}", userId);
+        return ndjsonWriter.write(userService.getFriendIds(userId), userService::getByIds);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(UserService.MAX_PAGE_SIZE) int count) {
+        log.info("Запрос на получение {} возможных друзей пользователя {}", count, id);
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/search")
+    public List<User> search(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(UserService.MAX_PAGE_SIZE) int count) {
+        log.info("Поиск пользователей: query={}, count={}", query, count);
+        return userService.search(query, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(FilmService.MAX_PAGE_SIZE) int count) {
+        log.info("Запрос на получение {} рекомендованных фильмов для пользователя {}", count, id);
+        return filmService.getRecommendations(id, count);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -79,4 +171,12 @@ public class UserController {
         log.info("Запрос на получение общих друзей пользователей {} и {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping(value = "/{id}/friends/common/{otherId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamCommonFriends(
+            @PathVariable Long id,
+            @PathVariable Long otherId) {
+        log.info("Запрос на потоковую выгрузку общих друзей пользователей {} и {}", id, otherId);
+        return ndjsonWriter.write(userService.getCommonFriendIds(id, otherId), userService::getByIds);
+    }
 }
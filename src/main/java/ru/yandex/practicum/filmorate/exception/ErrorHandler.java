@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.springframework.http.HttpStatus;
@@ -7,15 +9,22 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
 public class ErrorHandler {
+    private final MeterRegistry meterRegistry;
+
+    public ErrorHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
+        count(e, HttpStatus.BAD_REQUEST);
         String errorMessage = e.getBindingResult()
                 .getFieldErrors()
                 .stream()
@@ -25,9 +34,26 @@ public class ErrorHandler {
         return new ErrorResponse("Validation failed", errorMessage);
     }
 
+    // Ограничения на параметрах запроса, например @Max у count
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleHandlerMethodValidationException(HandlerMethodValidationException e) {
+        count(e, HttpStatus.BAD_REQUEST);
+        String errorMessage = e.getAllValidationResults()
+                .stream()
+                .flatMap(result -> result.getResolvableErrors()
+                        .stream()
+                        .map(error -> result.getMethodParameter().getParameterName() + ": "
+                                + error.getDefaultMessage()))
+                .collect(Collectors.joining(", "));
+
+        return new ErrorResponse("Validation failed", errorMessage);
+    }
+
     @ExceptionHandler(ValidationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(ValidationException ex) {
+        count(ex, HttpStatus.BAD_REQUEST);
         return new ErrorResponse(
                 "Ошибка валидации",
                 ex.getMessage()
@@ -37,27 +63,47 @@ public class ErrorHandler {
     @ExceptionHandler
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleNotFoundException(final NotFoundException e) {
+        count(e, HttpStatus.NOT_FOUND);
         return new ErrorResponse("Объект не найден", e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorResponse handleThrowable(final Throwable e) {
+        count(e, HttpStatus.INTERNAL_SERVER_ERROR);
         return new ErrorResponse("Внутренняя ошибка сервера", e.getMessage());
     }
 
     @ExceptionHandler
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse handleDuplicatedDataException(final DuplicatedDataException e) {
+        count(e, HttpStatus.CONFLICT);
         return new ErrorResponse("Конфликт данных", e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleOverloadedException(final OverloadedException e) {
+        count(e, HttpStatus.SERVICE_UNAVAILABLE);
+        return new ErrorResponse("Сервис перегружен", e.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleIllegalArgumentException(final IllegalArgumentException e) {
+        count(e, HttpStatus.BAD_REQUEST);
         return new ErrorResponse("Некорректный аргумент", e.getMessage());
     }
 
+    private void count(Throwable e, HttpStatus status) {
+        Counter.builder("filmorate.errors")
+                .description("Errors returned to clients by the exception handler")
+                .tag("exception", e.getClass().getSimpleName())
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry)
+                .increment();
+    }
+
     @Data
     @AllArgsConstructor
     private static class ErrorResponse {
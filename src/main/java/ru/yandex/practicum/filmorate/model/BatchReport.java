@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Результат пакетного изменения: по элементу на каждую операцию запроса, в том же порядке.
+ */
+@Data
+public class BatchReport {
+    private int applied;
+    private int unchanged;
+    private int failed;
+    private List<Item> results;
+
+    public BatchReport(List<Item> results) {
+        this.results = results;
+        for (Item item : results) {
+            switch (item.getStatus()) {
+                case APPLIED -> applied++;
+                case UNCHANGED -> unchanged++;
+                case FAILED -> failed++;
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private int index;
+        private Status status;
+        private String message;
+
+        public static Item done(int index, boolean changed) {
+            return new Item(index, changed ? Status.APPLIED : Status.UNCHANGED, null);
+        }
+
+        public static Item failed(int index, String message) {
+            return new Item(index, Status.FAILED, message);
+        }
+    }
+
+    public enum Status {
+        // Операция изменила данные
+        @JsonProperty("applied")
+        APPLIED,
+        // Лайк или дружба уже были в нужном состоянии
+        @JsonProperty("unchanged")
+        UNCHANGED,
+        @JsonProperty("failed")
+        FAILED
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import ru.yandex.practicum.filmorate.annotation.ValidReleaseDate;
 
@@ -29,6 +30,11 @@ public class Film {
     @Size(max = 200)
     private String description;
 
+    // Растёт при каждом изменении фильма; из него строится ETag, в JSON не входит
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
+
     @Builder
     public Film(Long id, String name, String description, LocalDate releaseDate, long duration) {
         this.id = id;
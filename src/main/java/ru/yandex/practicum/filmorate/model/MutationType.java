@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Вид операции в пакетном изменении лайков и дружбы.
+ */
+public enum MutationType {
+    @JsonProperty("add")
+    ADD,
+    @JsonProperty("remove")
+    REMOVE
+}
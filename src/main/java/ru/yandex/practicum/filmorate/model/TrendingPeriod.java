@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Период для фильмов в тренде. Окно скользит корзинами: учитываются лайки последних {@code buckets} корзин,
+ * включая текущую, так что окно покрывает от (buckets − 1) до buckets длин корзины.
+ */
+@Getter
+public enum TrendingPeriod {
+    HOUR(Duration.ofHours(1), 12),
+    DAY(Duration.ofDays(1), 24),
+    WEEK(Duration.ofDays(7), 28);
+
+    private final Duration length;
+    private final int buckets;
+
+    TrendingPeriod(Duration length, int buckets) {
+        this.length = length;
+        this.buckets = buckets;
+    }
+
+    public Duration getBucketLength() {
+        return length.dividedBy(buckets);
+    }
+}
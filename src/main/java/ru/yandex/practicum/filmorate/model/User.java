@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 import java.time.LocalDate;
 
@@ -24,6 +26,11 @@ public class User {
     @Past
     private LocalDate birthday;
 
+    // Растёт при каждом изменении пользователя; из него строится ETag, в JSON не входит
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
+
     @Builder
     public User(Long id, String login, String email, String name, LocalDate birthday) {
         this.id = id;
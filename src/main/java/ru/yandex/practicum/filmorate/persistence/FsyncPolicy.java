@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+/**
+ * Когда журнал вызывает fsync.
+ */
+public enum FsyncPolicy {
+    /**
+     * Изменение подтверждается только после fsync; одновременные записи делят один fsync (group commit).
+     */
+    ALWAYS,
+    /**
+     * fsync после каждых fsync-batch-size записей и не реже fsync-interval-ms; запись не ждёт fsync.
+     */
+    BATCH,
+    /**
+     * fsync по таймеру раз в fsync-interval-ms; запись не ждёт fsync.
+     */
+    INTERVAL
+}
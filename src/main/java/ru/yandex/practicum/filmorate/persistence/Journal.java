@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Журнал изменений хранилищ в памяти. Хранилища вызывают методы записи под той же блокировкой,
+ * под которой применяют изменение, и до самого изменения: порядок в журнале совпадает с порядком применения,
+ * а изменение, которое не удалось записать в журнал, не становится видимым.
+ * {@link #commit()} вызывается уже после снятия блокировок и ждёт надёжной записи, если этого требует политика fsync.
+ */
+public interface Journal {
+    Journal NONE = new Journal() {
+    };
+
+    // Время лайка, загруженного пачкой или из старого журнала: такой лайк считается давним
+    long UNKNOWN_TIME = 0;
+
+    default void filmSaved(Film film) {
+    }
+
+    default void filmDeleted(long filmId) {
+    }
+
+    default void userSaved(User user) {
+    }
+
+    default void userDeleted(long userId) {
+    }
+
+    default void likeAdded(long filmId, long userId, long likedAt) {
+    }
+
+    default void likeRemoved(long filmId, long userId) {
+    }
+
+    default void filmLikesDeleted(long filmId) {
+    }
+
+    default void friendAdded(long userId, long friendId) {
+    }
+
+    default void friendRemoved(long userId, long friendId) {
+    }
+
+    default void commit() {
+    }
+}
@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Двоичное представление изменений: байт типа и поля фиксированной ширины,
+ * строки — длиной и UTF-8, даты — номером дня от эпохи.
+ */
+final class JournalRecords {
+    static final byte FILM_SAVED = 1;
+    static final byte FILM_DELETED = 2;
+    static final byte USER_SAVED = 3;
+    static final byte USER_DELETED = 4;
+    static final byte LIKE_ADDED = 5;
+    static final byte LIKE_REMOVED = 6;
+    static final byte FILM_LIKES_DELETED = 7;
+    static final byte FRIEND_ADDED = 8;
+    static final byte FRIEND_REMOVED = 9;
+    // Только в снимках: все лайки фильма или все друзья пользователя одной записью
+    static final byte FILM_LIKES = 10;
+    static final byte USER_FRIENDS = 11;
+    // Лайк со временем; LIKE_ADDED пишется для лайков, загруженных пачкой, и встречается в старых сегментах
+    static final byte LIKE_ADDED_AT = 12;
+    // Только в снимках старого формата: корзина окна трендов — фильмы и число их лайков
+    static final byte TRENDING_BUCKET = 13;
+    // Только в снимках: время недавних лайков фильма, по которому восстанавливаются окна трендов
+    static final byte TRENDING_LIKES = 14;
+
+    private static final int NULL_LENGTH = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private JournalRecords() {
+    }
+
+    static byte[] filmSaved(Film film) {
+        byte[] name = utf8(film.getName());
+        byte[] description = utf8(film.getDescription());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + sizeOf(name) + sizeOf(description)
+                + Long.BYTES + Long.BYTES);
+        buffer.put(FILM_SAVED).putLong(film.getId());
+        putString(buffer, name);
+        putString(buffer, description);
+        putDate(buffer, film.getReleaseDate());
+        buffer.putLong(film.getDurationSeconds());
+        return buffer.array();
+    }
+
+    static Film readFilm(ByteBuffer buffer) {
+        return Film.builder()
+                .id(buffer.getLong())
+                .name(getString(buffer))
+                .description(getString(buffer))
+                .releaseDate(getDate(buffer))
+                .duration(buffer.getLong())
+                .build();
+    }
+
+    static Film decodeFilm(ByteBuffer record) {
+        expectType(record, FILM_SAVED);
+        return readFilm(record);
+    }
+
+    static byte[] userSaved(User user) {
+        byte[] email = utf8(user.getEmail());
+        byte[] login = utf8(user.getLogin());
+        byte[] name = utf8(user.getName());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + sizeOf(email) + sizeOf(login) + sizeOf(name)
+                + Long.BYTES);
+        buffer.put(USER_SAVED).putLong(user.getId());
+        putString(buffer, email);
+        putString(buffer, login);
+        putString(buffer, name);
+        putDate(buffer, user.getBirthday());
+        return buffer.array();
+    }
+
+    static User readUser(ByteBuffer buffer) {
+        return User.builder()
+                .id(buffer.getLong())
+                .email(getString(buffer))
+                .login(getString(buffer))
+                .name(getString(buffer))
+                .birthday(getDate(buffer))
+                .build();
+    }
+
+    static User decodeUser(ByteBuffer record) {
+        expectType(record, USER_SAVED);
+        return readUser(record);
+    }
+
+    static byte[] id(byte type, long id) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(type).putLong(id).array();
+    }
+
+    static byte[] pair(byte type, long first, long second) {
+        return ByteBuffer.allocate(1 + 2 * Long.BYTES).put(type).putLong(first).putLong(second).array();
+    }
+
+    static byte[] likeAddedAt(long filmId, long userId, long likedAt) {
+        return ByteBuffer.allocate(1 + 3 * Long.BYTES).put(LIKE_ADDED_AT).putLong(filmId).putLong(userId)
+                .putLong(likedAt).array();
+    }
+
+    static byte[] likeTimes(long filmId, long[] userIds, long[] likedAt) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + userIds.length * 2 * Long.BYTES);
+        buffer.put(TRENDING_LIKES).putLong(filmId).putInt(userIds.length);
+        for (int i = 0; i < userIds.length; i++) {
+            buffer.putLong(userIds[i]).putLong(likedAt[i]);
+        }
+        return buffer.array();
+    }
+
+    static TrendingPeriod readTrendingPeriod(ByteBuffer buffer) {
+        return TrendingPeriod.valueOf(getString(buffer));
+    }
+
+    static byte[] ids(byte type, long ownerId, long[] ids) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Integer.BYTES + ids.length * Long.BYTES);
+        buffer.put(type).putLong(ownerId).putInt(ids.length);
+        for (long id : ids) {
+            buffer.putLong(id);
+        }
+        return buffer.array();
+    }
+
+    static long[] readIds(ByteBuffer buffer) {
+        long[] ids = new long[buffer.getInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = buffer.getLong();
+        }
+        return ids;
+    }
+
+    private static void expectType(ByteBuffer record, byte type) {
+        byte actual = record.get();
+        if (actual != type) {
+            throw new IllegalStateException("Ожидалась запись типа " + type + ", а не " + actual);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int sizeOf(byte[] value) {
+        return Integer.BYTES + (value != null ? value.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        // Буфер может быть отображённым в память, поэтому без buffer.array()
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putDate(ByteBuffer buffer, LocalDate date) {
+        buffer.putLong(date != null ? date.toEpochDay() : NULL_DATE);
+    }
+
+    private static LocalDate getDate(ByteBuffer buffer) {
+        long epochDay = buffer.getLong();
+        return epochDay != NULL_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Неизменяемый каталог сущностей в файле, отображённом в память. Открытие не читает записи:
+ * поиск идёт двоичным поиском по индексу прямо в отображении, а объект собирается только при обращении.
+ * <p>
+ * Формат: заголовок [magic int][version int][count int][reserved int][indexOffset long],
+ * затем записи [длина int][данные] и в конце индекс из count пар [id long][смещение long] по возрастанию id.
+ * Отображение одним {@link MappedByteBuffer} ограничивает размер файла 2 ГБ.
+ */
+public class MappedCatalog<T> {
+    private static final int MAGIC = 0x464D4354;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int indexOffset;
+    private final Function<ByteBuffer, T> decoder;
+
+    private MappedCatalog(MappedByteBuffer buffer, int size, int indexOffset, Function<ByteBuffer, T> decoder) {
+        this.buffer = buffer;
+        this.size = size;
+        this.indexOffset = indexOffset;
+        this.decoder = decoder;
+    }
+
+    public static <T> MappedCatalog<T> open(Path file, Function<ByteBuffer, T> decoder) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Каталог больше 2 ГБ не поддерживается: " + file);
+            }
+            if (length < HEADER_SIZE) {
+                throw new IOException("Файл " + file + " не является каталогом");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Файл " + file + " не является каталогом");
+            }
+            int size = buffer.getInt(8);
+            long indexOffset = buffer.getLong(16);
+            if (size < 0 || indexOffset < HEADER_SIZE || indexOffset + (long) size * INDEX_ENTRY_SIZE != length) {
+                throw new IOException("Каталог " + file + " повреждён");
+            }
+            return new MappedCatalog<>(buffer, size, (int) indexOffset, decoder);
+        }
+    }
+
+    public static MappedCatalog<Film> openFilms(Path file) throws IOException {
+        return open(file, JournalRecords::decodeFilm);
+    }
+
+    public static MappedCatalog<User> openUsers(Path file) throws IOException {
+        return open(file, JournalRecords::decodeUser);
+    }
+
+    public static int writeFilms(Path file, Consumer<Consumer<Film>> source) throws IOException {
+        return write(file, source, Film::getId, JournalRecords::filmSaved);
+    }
+
+    public static int writeUsers(Path file, Consumer<Consumer<User>> source) throws IOException {
+        return write(file, source, User::getId, JournalRecords::userSaved);
+    }
+
+    /**
+     * Записывает каталог; source должен выдавать сущности по возрастанию id.
+     *
+     * @return количество записей
+     */
+    public static <T> int write(Path file, Consumer<Consumer<T>> source, ToLongFunction<T> idExtractor,
+                                Function<T, byte[]> encoder) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Index index = new Index();
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE));
+            out.write(new byte[HEADER_SIZE]);
+            try {
+                source.accept(entity -> {
+                    byte[] payload = encoder.apply(entity);
+                    try {
+                        index.add(idExtractor.applyAsLong(entity), out.size());
+                        out.writeInt(payload.length);
+                        out.write(payload);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            long indexOffset = out.size();
+            for (int i = 0; i < index.size; i++) {
+                out.writeLong(index.ids[i]);
+                out.writeLong(index.offsets[i]);
+            }
+            out.flush();
+            if (indexOffset + (long) index.size * INDEX_ENTRY_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Каталог больше 2 ГБ не поддерживается: " + file);
+            }
+            // Заголовок пишется последним: до этого файл не открывается как каталог
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(index.size).putInt(0).putLong(indexOffset);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+            return index.size;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long idAt(int index) {
+        return buffer.getLong(indexOffset + index * INDEX_ENTRY_SIZE);
+    }
+
+    public T getAt(int index) {
+        int offset = (int) buffer.getLong(indexOffset + index * INDEX_ENTRY_SIZE + Long.BYTES);
+        int length = buffer.getInt(offset);
+        return decoder.apply(buffer.slice(offset + Integer.BYTES, length));
+    }
+
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * @return сущность с данным id, собранная заново при каждом вызове, или null
+     */
+    public T get(long id) {
+        int index = indexOf(id);
+        return index >= 0 ? getAt(index) : null;
+    }
+
+    public long maxId() {
+        return size > 0 ? idAt(size - 1) : 0;
+    }
+
+    /**
+     * @return позиция первой записи с id больше данного
+     */
+    public int indexAfter(long id) {
+        int index = indexOf(id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Обходит по возрастанию id объединение каталога и изменений поверх него: запись из overlay
+     * заменяет одноимённую запись каталога, id из deleted пропускаются.
+     */
+    public void forEachMerged(NavigableMap<Long, T> overlay, Set<Long> deleted, Consumer<T> consumer) {
+        Iterator<Map.Entry<Long, T>> entries = overlay.entrySet().iterator();
+        Map.Entry<Long, T> next = entries.hasNext() ? entries.next() : null;
+        for (int i = 0; i < size; i++) {
+            long id = idAt(i);
+            while (next != null && next.getKey() < id) {
+                consumer.accept(next.getValue());
+                next = entries.hasNext() ? entries.next() : null;
+            }
+            if (next != null && next.getKey() == id) {
+                consumer.accept(next.getValue());
+                next = entries.hasNext() ? entries.next() : null;
+            } else if (!deleted.contains(id)) {
+                consumer.accept(getAt(i));
+            }
+        }
+        while (next != null) {
+            consumer.accept(next.getValue());
+            next = entries.hasNext() ? entries.next() : null;
+        }
+    }
+
+    private int indexOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = idAt(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static class Index {
+        private long[] ids = new long[1024];
+        private long[] offsets = new long[1024];
+        private int size;
+
+        void add(long id, long offset) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalStateException("Записи каталога должны идти по возрастанию id: " + id);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            size++;
+        }
+    }
+}
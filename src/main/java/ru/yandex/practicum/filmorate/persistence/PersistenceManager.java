@@ -0,0 +1,412 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.WriteBehindFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.WriteBehindLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Сохраняет хранилища в памяти на диск: журнал изменений (wal-N.log) и периодические снимки.
+ * Снимок поколения N — это каталоги фильмов и пользователей (films-N.cat, users-N.cat) и лайки с друзьями
+ * (snapshot-N.bin); он содержит всё, что попало в сегменты журнала младше N. При старте каталоги только
+ * отображаются в память и читаются хранилищами лениво, остальное загружается, а поверх применяются
+ * сегменты начиная с N. Снимок снимается без остановки записи: изменения, попавшие и в снимок,
+ * и в журнал, при повторном применении дают тот же результат.
+ */
+@Component
+@ConditionalOnExpression("${filmorate.persistence.enabled:false} and '${filmorate.storage.type:memory}' == 'memory'")
+@Slf4j
+public class PersistenceManager {
+    private static final int SNAPSHOT_MAGIC = 0x464D534E;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final Pattern CATALOG_FILE = Pattern.compile("(?:films|users)-(\\d+)\\.cat");
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final InMemoryLikeStorage likeStorage;
+    private final InMemoryFriendStorage friendStorage;
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final int fsyncBatchSize;
+    private final Duration fsyncInterval;
+    private final Duration snapshotInterval;
+
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public PersistenceManager(FilmStorage filmStorage, UserStorage userStorage,
+                              LikeStorage likeStorage, FriendStorage friendStorage, Environment environment) {
+        this.filmStorage = inMemory(filmStorage instanceof CachingFilmStorage caching
+                ? caching.getDelegate() : filmStorage, InMemoryFilmStorage.class);
+        this.userStorage = inMemory(userStorage instanceof CachingUserStorage caching
+                ? caching.getDelegate() : userStorage, InMemoryUserStorage.class);
+        this.likeStorage = inMemory(likeStorage instanceof WriteBehindLikeStorage writeBehind
+                ? writeBehind.getDelegate() : likeStorage, InMemoryLikeStorage.class);
+        this.friendStorage = inMemory(friendStorage instanceof WriteBehindFriendStorage writeBehind
+                ? writeBehind.getDelegate() : friendStorage, InMemoryFriendStorage.class);
+        this.directory = Path.of(environment.getProperty("filmorate.persistence.dir", "./data"));
+        this.fsyncPolicy = FsyncPolicy.valueOf(environment.getProperty("filmorate.persistence.fsync", "batch")
+                .toUpperCase(Locale.ROOT));
+        this.fsyncBatchSize = environment.getProperty("filmorate.persistence.fsync-batch-size", Integer.class, 1000);
+        this.fsyncInterval = Duration.ofMillis(
+                environment.getProperty("filmorate.persistence.fsync-interval-ms", Long.class, 50L));
+        this.snapshotInterval = Duration.ofMillis(
+                environment.getProperty("filmorate.persistence.snapshot-interval-ms", Long.class, 600_000L));
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        long snapshotGeneration = latest(SNAPSHOT_FILE);
+        long catalogRecords = snapshotGeneration > 0 ? attachCatalogs(snapshotGeneration) : 0;
+        long snapshotRecords = snapshotGeneration > 0 ? loadSnapshot(snapshotGeneration) : 0;
+
+        long logRecords = 0;
+        long lastGeneration = snapshotGeneration;
+        for (long generation : generations(SEGMENT_FILE)) {
+            if (generation < snapshotGeneration) {
+                continue;
+            }
+            Path segment = directory.resolve(WriteAheadLog.segmentName(generation));
+            RecordFiles.ReadResult result = RecordFiles.read(segment, this::apply);
+            if (result.truncated()) {
+                log.warn("Сегмент {} оборван после {} записей, хвост пропущен", segment, result.records());
+            }
+            logRecords += result.records();
+            lastGeneration = generation;
+        }
+        if (snapshotRecords > 0 || logRecords > 0) {
+            // Лайки снимка загружались пачками по фильму; производные индексы пересчитываются один раз
+            likeStorage.likesLoaded();
+        }
+        deleteObsolete(snapshotGeneration);
+
+        wal = new WriteAheadLog(directory, lastGeneration + 1, fsyncPolicy, fsyncBatchSize, fsyncInterval);
+        Journal journal = new WalJournal(wal);
+        filmStorage.setJournal(journal);
+        userStorage.setJournal(journal);
+        likeStorage.setJournal(journal);
+        friendStorage.setJournal(journal);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotInterval.toMillis(),
+                snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        log.info("Данные восстановлены из {} за {} мс: записей в каталогах {}, записей снимка {}, "
+                        + "записей журнала {}; fsync: {}", directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                catalogRecords, snapshotRecords, logRecords, fsyncPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdown();
+        snapshot();
+        closeLog();
+    }
+
+    /**
+     * Снимает снимок и удаляет ставшие ненужными сегменты журнала.
+     *
+     * @return поколение снимка
+     */
+    public long snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long started = System.nanoTime();
+            long generation = wal.roll();
+            Path target = directory.resolve(snapshotName(generation));
+            Path temporary = directory.resolve(snapshotName(generation) + ".tmp");
+            long[] records = new long[1];
+            records[0] += writeCatalog(catalogName("films", generation),
+                    file -> MappedCatalog.writeFilms(file, filmStorage::forEachOrdered));
+            records[0] += writeCatalog(catalogName("users", generation),
+                    file -> MappedCatalog.writeUsers(file, userStorage::forEachOrdered));
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream out = new DataOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE))) {
+                RecordFiles.write(out, ByteBuffer.allocate(16)
+                        .putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(generation).array());
+                try {
+                    // Время лайков пишется после самих лайков и восстанавливается только для лайков, которые есть:
+                    // лайк, снятый между проходами, не вернётся из снимка, а поставленный — придёт из журнала
+                    likeStorage.forEachFilmLikes((filmId, userIds) ->
+                            write(out, JournalRecords.ids(JournalRecords.FILM_LIKES, filmId, userIds), records));
+                    likeStorage.forEachTrendingLikeTimes((filmId, userIds, likedAt) ->
+                            write(out, JournalRecords.likeTimes(filmId, userIds, likedAt), records));
+                    friendStorage.forEachUserFriends((userId, friendIds) ->
+                            write(out, JournalRecords.ids(JournalRecords.USER_FRIENDS, userId, friendIds), records));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                RecordFiles.writeEnd(out);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            RecordFiles.syncDirectory(directory);
+            deleteObsolete(generation);
+            log.info("Снимок {} записан за {} мс: {} записей", target,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), records[0]);
+            return generation;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public long getFsyncCount() {
+        return wal.getFsyncCount();
+    }
+
+    public Duration getFsyncTime() {
+        return Duration.ofNanos(wal.getFsyncNanos());
+    }
+
+    /**
+     * Закрывает журнал без снимка; следующий старт восстановит данные из журнала, как после аварии.
+     */
+    public void closeLog() throws IOException {
+        scheduler.shutdownNow();
+        filmStorage.setJournal(Journal.NONE);
+        userStorage.setJournal(Journal.NONE);
+        likeStorage.setJournal(Journal.NONE);
+        friendStorage.setJournal(Journal.NONE);
+        wal.close();
+        if (wal.getFsyncCount() > 0) {
+            log.info("Журнал закрыт: fsync {} раз, в среднем {} мкс", wal.getFsyncCount(),
+                    TimeUnit.NANOSECONDS.toMicros(wal.getFsyncNanos() / wal.getFsyncCount()));
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок", e);
+        }
+    }
+
+    private long writeCatalog(String name, CatalogWriter writer) throws IOException {
+        Path temporary = directory.resolve(name + ".tmp");
+        int records = writer.write(temporary);
+        Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        return records;
+    }
+
+    private long attachCatalogs(long generation) throws IOException {
+        Path films = directory.resolve(catalogName("films", generation));
+        Path users = directory.resolve(catalogName("users", generation));
+        long records = 0;
+        // Снимок без каталогов хранит фильмы и пользователей обычными записями
+        if (Files.exists(films)) {
+            MappedCatalog<Film> catalog = MappedCatalog.openFilms(films);
+            filmStorage.attachCatalog(catalog);
+            records += catalog.size();
+        }
+        if (Files.exists(users)) {
+            MappedCatalog<User> catalog = MappedCatalog.openUsers(users);
+            userStorage.attachCatalog(catalog);
+            records += catalog.size();
+        }
+        return records;
+    }
+
+    private long loadSnapshot(long generation) throws IOException {
+        Path snapshot = directory.resolve(snapshotName(generation));
+        boolean[] header = new boolean[1];
+        RecordFiles.ReadResult result = RecordFiles.read(snapshot, record -> {
+            if (header[0]) {
+                apply(record);
+                return;
+            }
+            if (record.getInt() != SNAPSHOT_MAGIC || record.getInt() != SNAPSHOT_VERSION
+                    || record.getLong() != generation) {
+                throw new IllegalStateException("Файл " + snapshot + " не является снимком поколения " + generation);
+            }
+            header[0] = true;
+        });
+        if (!result.complete()) {
+            throw new IllegalStateException("Снимок " + snapshot + " повреждён после " + result.records() + " записей");
+        }
+        return result.records() - 1;
+    }
+
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case JournalRecords.FILM_SAVED -> filmStorage.restore(JournalRecords.readFilm(record));
+            case JournalRecords.FILM_DELETED -> filmStorage.delete(record.getLong());
+            case JournalRecords.USER_SAVED -> userStorage.restore(JournalRecords.readUser(record));
+            case JournalRecords.USER_DELETED -> userStorage.delete(record.getLong());
+            case JournalRecords.LIKE_ADDED -> likeStorage.addLike(record.getLong(), record.getLong(),
+                    Journal.UNKNOWN_TIME);
+            case JournalRecords.LIKE_ADDED_AT -> likeStorage.addLike(record.getLong(), record.getLong(),
+                    record.getLong());
+            case JournalRecords.LIKE_REMOVED -> likeStorage.removeLike(record.getLong(), record.getLong());
+            case JournalRecords.FILM_LIKES_DELETED -> likeStorage.deleteFilm(record.getLong());
+            case JournalRecords.FRIEND_ADDED -> friendStorage.addFriend(record.getLong(), record.getLong());
+            case JournalRecords.FRIEND_REMOVED -> friendStorage.removeFriend(record.getLong(), record.getLong());
+            case JournalRecords.FILM_LIKES -> {
+                long filmId = record.getLong();
+                List<Like> likes = new ArrayList<>();
+                for (long userId : JournalRecords.readIds(record)) {
+                    likes.add(new Like(filmId, userId));
+                }
+                likeStorage.addLikes(likes);
+            }
+            case JournalRecords.USER_FRIENDS -> {
+                long userId = record.getLong();
+                List<Friendship> friendships = new ArrayList<>();
+                for (long friendId : JournalRecords.readIds(record)) {
+                    friendships.add(new Friendship(userId, friendId));
+                }
+                friendStorage.addFriends(friendships);
+            }
+            case JournalRecords.TRENDING_BUCKET -> {
+                TrendingPeriod period = JournalRecords.readTrendingPeriod(record);
+                long bucket = record.getLong();
+                long[] filmIds = new long[record.getInt()];
+                int[] counts = new int[filmIds.length];
+                for (int i = 0; i < filmIds.length; i++) {
+                    filmIds[i] = record.getLong();
+                    counts[i] = record.getInt();
+                }
+                likeStorage.restoreTrendingBucket(period, bucket, filmIds, counts);
+            }
+            case JournalRecords.TRENDING_LIKES -> {
+                long filmId = record.getLong();
+                long[] userIds = new long[record.getInt()];
+                long[] likedAt = new long[userIds.length];
+                for (int i = 0; i < userIds.length; i++) {
+                    userIds[i] = record.getLong();
+                    likedAt[i] = record.getLong();
+                }
+                likeStorage.restoreTrendingLikeTimes(filmId, userIds, likedAt);
+            }
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private static void write(DataOutputStream out, byte[] payload, long[] records) {
+        try {
+            RecordFiles.write(out, payload);
+            records[0]++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deleteObsolete(long snapshotGeneration) throws IOException {
+        for (long generation : generations(SEGMENT_FILE)) {
+            if (generation < snapshotGeneration) {
+                Files.deleteIfExists(directory.resolve(WriteAheadLog.segmentName(generation)));
+            }
+        }
+        for (long generation : generations(SNAPSHOT_FILE)) {
+            if (generation < snapshotGeneration) {
+                Files.deleteIfExists(directory.resolve(snapshotName(generation)));
+            }
+        }
+        // Старый каталог может быть ещё отображён хранилищем; на Linux удаление файла этому не мешает
+        for (long generation : generations(CATALOG_FILE)) {
+            if (generation < snapshotGeneration) {
+                for (String kind : List.of("films", "users")) {
+                    try {
+                        Files.deleteIfExists(directory.resolve(catalogName(kind, generation)));
+                    } catch (IOException e) {
+                        log.warn("Не удалось удалить устаревший каталог поколения {}", generation, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private long latest(Pattern pattern) throws IOException {
+        List<Long> generations = generations(pattern);
+        return generations.isEmpty() ? 0 : generations.get(generations.size() - 1);
+    }
+
+    private List<Long> generations(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String catalogName(String kind, long generation) {
+        return String.format("%s-%012d.cat", kind, generation);
+    }
+
+    private static String snapshotName(long generation) {
+        return String.format("snapshot-%012d.bin", generation);
+    }
+
+    private static <T> T inMemory(Object storage, Class<T> type) {
+        if (!type.isInstance(storage)) {
+            throw new IllegalStateException("Журнал поддерживается только для хранилищ в памяти, а не для "
+                    + storage.getClass().getSimpleName());
+        }
+        return type.cast(storage);
+    }
+
+    @FunctionalInterface
+    private interface CatalogWriter {
+        int write(Path file) throws IOException;
+    }
+}
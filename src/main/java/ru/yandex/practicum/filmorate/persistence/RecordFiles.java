@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Формат записей в файлах журнала и снимков: [длина int][CRC32C int][данные].
+ * Запись нулевой длины — маркер конца снимка.
+ */
+final class RecordFiles {
+    static final int HEADER_SIZE = 8;
+    static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private RecordFiles() {
+    }
+
+    static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static void write(ByteBuffer out, byte[] payload) {
+        out.putInt(payload.length).putInt(crc(payload)).put(payload);
+    }
+
+    static void write(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeInt(crc(payload));
+        out.write(payload);
+    }
+
+    static void writeEnd(DataOutputStream out) throws IOException {
+        out.writeInt(0);
+    }
+
+    /**
+     * Читает записи до конца файла, маркера конца или первой повреждённой записи.
+     */
+    static ReadResult read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return new ReadResult(records, false, false);
+                }
+                if (length == 0) {
+                    return new ReadResult(records, true, false);
+                }
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    return new ReadResult(records, false, true);
+                }
+                byte[] payload = new byte[length];
+                try {
+                    int crc = in.readInt();
+                    in.readFully(payload);
+                    if (crc != crc(payload)) {
+                        return new ReadResult(records, false, true);
+                    }
+                } catch (EOFException e) {
+                    return new ReadResult(records, false, true);
+                }
+                consumer.accept(ByteBuffer.wrap(payload));
+                records++;
+            }
+        }
+    }
+
+    // Новый или переименованный файл надёжен только после fsync каталога
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Не все ОС позволяют открыть каталог как файл
+        }
+    }
+
+    /**
+     * @param complete  встречен маркер конца
+     * @param truncated файл оборван или повреждён на записи с номером records
+     */
+    record ReadResult(long records, boolean complete, boolean truncated) {
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Пишет изменения в {@link WriteAheadLog}. Запись кодируется сразу, в потоке вызова,
+ * поэтому последующие изменения объекта не попадут в журнал задним числом.
+ */
+public class WalJournal implements Journal {
+    private final WriteAheadLog log;
+    // Номер последней записи потока: commit ждёт только свои изменения
+    private final ThreadLocal<long[]> lastSequence = ThreadLocal.withInitial(() -> new long[1]);
+
+    public WalJournal(WriteAheadLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        append(JournalRecords.filmSaved(film));
+    }
+
+    @Override
+    public void filmDeleted(long filmId) {
+        append(JournalRecords.id(JournalRecords.FILM_DELETED, filmId));
+    }
+
+    @Override
+    public void userSaved(User user) {
+        append(JournalRecords.userSaved(user));
+    }
+
+    @Override
+    public void userDeleted(long userId) {
+        append(JournalRecords.id(JournalRecords.USER_DELETED, userId));
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId, long likedAt) {
+        if (likedAt == UNKNOWN_TIME) {
+            append(JournalRecords.pair(JournalRecords.LIKE_ADDED, filmId, userId));
+        } else {
+            append(JournalRecords.likeAddedAt(filmId, userId, likedAt));
+        }
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId) {
+        append(JournalRecords.pair(JournalRecords.LIKE_REMOVED, filmId, userId));
+    }
+
+    @Override
+    public void filmLikesDeleted(long filmId) {
+        append(JournalRecords.id(JournalRecords.FILM_LIKES_DELETED, filmId));
+    }
+
+    @Override
+    public void friendAdded(long userId, long friendId) {
+        append(JournalRecords.pair(JournalRecords.FRIEND_ADDED, userId, friendId));
+    }
+
+    @Override
+    public void friendRemoved(long userId, long friendId) {
+        append(JournalRecords.pair(JournalRecords.FRIEND_REMOVED, userId, friendId));
+    }
+
+    @Override
+    public void commit() {
+        long[] sequence = lastSequence.get();
+        if (sequence[0] > 0) {
+            long upTo = sequence[0];
+            sequence[0] = 0;
+            log.awaitDurable(upTo);
+        }
+    }
+
+    private void append(byte[] payload) {
+        lastSequence.get()[0] = log.append(payload);
+    }
+}
@@ -0,0 +1,288 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Журнал упреждающей записи из сегментов wal-&lt;поколение&gt;.log. Потоки только ставят записи в очередь,
+ * а единственный поток-писатель забирает всю накопившуюся очередь, пишет её одним проходом через
+ * {@link FileChannel} и делает fsync по {@link FsyncPolicy} — один fsync на всю пачку (group commit).
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final int batchSize;
+    private final long intervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition stateChanged = lock.newCondition();
+    private List<byte[]> pending = new ArrayList<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean rollRequested;
+    private boolean closed;
+    private IOException failure;
+    private long generation;
+
+    private final Thread writer;
+    private FileChannel channel;
+    private volatile long fsyncCount;
+    private volatile long fsyncNanos;
+
+    public WriteAheadLog(Path directory, long generation, FsyncPolicy policy, int batchSize, Duration interval)
+            throws IOException {
+        this.directory = directory;
+        this.generation = generation;
+        this.policy = policy;
+        this.batchSize = batchSize;
+        this.intervalNanos = interval.toNanos();
+        this.channel = openSegment(generation);
+        this.writer = new Thread(this::runWriter, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static String segmentName(long generation) {
+        return String.format("wal-%012d.log", generation);
+    }
+
+    /**
+     * Ставит запись в очередь и возвращает её порядковый номер для {@link #awaitDurable(long)}.
+     */
+    public long append(byte[] payload) {
+        lock.lock();
+        try {
+            checkOpen();
+            pending.add(payload);
+            workAvailable.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт fsync записи с данным номером. Для политик BATCH и INTERVAL возвращается сразу.
+     */
+    public void awaitDurable(long sequence) {
+        if (policy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                checkFailure();
+                stateChanged.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Дописывает очередь в текущий сегмент и переключается на новый.
+     *
+     * @return поколение нового сегмента; все записи, поставленные до вызова, лежат в более ранних сегментах
+     */
+    public long roll() {
+        lock.lock();
+        try {
+            checkOpen();
+            rollRequested = true;
+            workAvailable.signal();
+            while (rollRequested) {
+                checkFailure();
+                stateChanged.awaitUninterruptibly();
+            }
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getGeneration() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getFsyncCount() {
+        return fsyncCount;
+    }
+
+    public long getFsyncNanos() {
+        return fsyncNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void runWriter() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        long unsynced = 0;
+        long lastSync = System.nanoTime();
+        try {
+            while (true) {
+                List<byte[]> batch;
+                long upTo;
+                boolean roll;
+                boolean stop;
+                lock.lock();
+                try {
+                    while (pending.isEmpty() && !rollRequested && !closed) {
+                        if (unsynced == 0 || policy == FsyncPolicy.ALWAYS) {
+                            workAvailable.awaitUninterruptibly();
+                            continue;
+                        }
+                        long wait = intervalNanos - (System.nanoTime() - lastSync);
+                        if (wait <= 0) {
+                            break;
+                        }
+                        try {
+                            workAvailable.awaitNanos(wait);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    upTo = appendedSequence;
+                    roll = rollRequested;
+                    stop = closed;
+                } finally {
+                    lock.unlock();
+                }
+
+                write(batch, buffer);
+                unsynced += batch.size();
+                boolean sync = unsynced > 0 && (roll || stop || switch (policy) {
+                    case ALWAYS -> true;
+                    case BATCH -> unsynced >= batchSize || System.nanoTime() - lastSync >= intervalNanos;
+                    case INTERVAL -> System.nanoTime() - lastSync >= intervalNanos;
+                });
+                if (sync) {
+                    long started = System.nanoTime();
+                    channel.force(false);
+                    lastSync = System.nanoTime();
+                    fsyncNanos += lastSync - started;
+                    fsyncCount++;
+                    unsynced = 0;
+                }
+                if (roll) {
+                    channel.close();
+                    channel = openSegment(generation + 1);
+                }
+
+                lock.lock();
+                try {
+                    if (sync) {
+                        durableSequence = upTo;
+                    }
+                    if (roll) {
+                        generation++;
+                        rollRequested = false;
+                    }
+                    stateChanged.signalAll();
+                    if (stop && pending.isEmpty()) {
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.error("Запись в журнал {} не удалась, изменения больше не журналируются", segmentName(generation), e);
+            lock.lock();
+            try {
+                failure = e;
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(List<byte[]> batch, ByteBuffer buffer) throws IOException {
+        for (byte[] payload : batch) {
+            if (buffer.remaining() < RecordFiles.HEADER_SIZE + payload.length) {
+                flush(buffer);
+            }
+            if (buffer.remaining() < RecordFiles.HEADER_SIZE + payload.length) {
+                // Запись больше буфера пишется отдельно
+                ByteBuffer large = ByteBuffer.allocate(RecordFiles.HEADER_SIZE + payload.length);
+                RecordFiles.write(large, payload);
+                flush(large);
+            } else {
+                RecordFiles.write(buffer, payload);
+            }
+        }
+        flush(buffer);
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private FileChannel openSegment(long segmentGeneration) throws IOException {
+        FileChannel segment = FileChannel.open(directory.resolve(segmentName(segmentGeneration)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        RecordFiles.syncDirectory(directory);
+        return segment;
+    }
+
+    private void checkOpen() {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("Журнал закрыт");
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал недоступен", failure);
+        }
+    }
+}
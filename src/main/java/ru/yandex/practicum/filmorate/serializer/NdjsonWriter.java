@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Пишет сущности в ответ построчно (NDJSON), подгружая их страницами по курсору,
+ * чтобы не собирать весь каталог в один список.
+ */
+@Component
+public class NdjsonWriter {
+    private static final int BATCH_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+
+    @Autowired
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Сбрасываем буфер раз в страницу, а не после каждой сущности
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public <T> StreamingResponseBody write(long after, BiFunction<Long, Integer, List<T>> pageLoader,
+                                           ToLongFunction<T> idExtractor) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                long cursor = after;
+                List<T> page;
+                do {
+                    page = pageLoader.apply(cursor, BATCH_SIZE);
+                    for (T entity : page) {
+                        objectWriter.writeValue(generator, entity);
+                        generator.writeRaw('\n');
+                        cursor = idExtractor.applyAsLong(entity);
+                    }
+                    generator.flush();
+                } while (page.size() == BATCH_SIZE);
+            }
+        };
+    }
+
+    /**
+     * Пишет сущности в порядке ids, читая их из хранилища порциями по {@value #BATCH_SIZE}:
+     * следующая порция загружается, только когда предыдущая записана в ответ.
+     */
+    public <T> StreamingResponseBody write(List<Long> ids, Function<List<Long>, List<T>> loader) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                    for (T entity : loader.apply(ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE)))) {
+                        objectWriter.writeValue(generator, entity);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                }
+            }
+        };
+    }
+}
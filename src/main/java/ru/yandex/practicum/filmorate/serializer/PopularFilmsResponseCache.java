@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.serializer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikesListener;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Готовые ответы популярных фильмов для каждого count в JSON и Smile: попадание в кэш отдаёт тот же массив байт
+ * и ETag без обращения к рейтингу и Jackson. Оба формата строятся из одного снимка рейтинга, Smile — при первом запросе.
+ * <p>
+ * Ответ сбрасывается, только когда лайк может изменить его состав или порядок: лайк фильма из ответа
+ * или фильма, который теперь обгоняет последний фильм ответа. Лайки остальных фильмов ответ не трогают.
+ * Создание, изменение и удаление фильмов сбрасывают все ответы.
+ */
+@Component
+public class PopularFilmsResponseCache {
+    // Больше FilmService.MAX_PAGE_SIZE фильмов в ответе не кэшируется
+    private static final int MAX_CACHED_COUNT = FilmService.MAX_PAGE_SIZE;
+
+    public record Response(byte[] body, String etag) {
+    }
+
+    private final FilmService filmService;
+    private final LikeStorage likeStorage;
+    // Индекс — Format.ordinal()
+    private final ObjectMapper[] objectMappers;
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(MAX_CACHED_COUNT + 1);
+    // Слушатель лайков обходит только запрошенные count, а не все возможные
+    private final List<Slot> activeSlots = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public PopularFilmsResponseCache(FilmService filmService, LikeStorage likeStorage, ObjectMapper objectMapper,
+                                     SmileHttpMessageConverter smileConverter) {
+        this.filmService = filmService;
+        this.likeStorage = likeStorage;
+        this.objectMappers = new ObjectMapper[]{objectMapper, smileConverter.getObjectMapper()};
+        likeStorage.addLikesListener(this::likesChanged);
+        filmService.addFilmsListener(this::invalidateAll);
+    }
+
+    public Response get(int count) {
+        return get(count, Format.JSON);
+    }
+
+    public Response getSmile(int count) {
+        return get(count, Format.SMILE);
+    }
+
+    private Response get(int count, Format format) {
+        if (count < 1 || count > MAX_CACHED_COUNT) {
+            return render(filmService.getPopularFilms(count), format);
+        }
+        Slot slot = slot(count);
+        // Версия читается до рейтинга: любой лайк, пришедший во время сборки, её поменяет
+        long version = slot.version.get();
+        Snapshot snapshot = slot.snapshot;
+        if (snapshot == null || snapshot.version != version) {
+            snapshot = snapshot(version, count, filmService.getPopularFilms(count));
+            slot.snapshot = snapshot;
+        }
+        Response response = snapshot.responses.get(format.ordinal());
+        if (response == null) {
+            // Сериализация детерминирована: если два потока соберут ответ одновременно, байты совпадут
+            response = render(snapshot.films, format);
+            snapshot.responses.set(format.ordinal(), response);
+        }
+        return response;
+    }
+
+    public void invalidateAll() {
+        for (Slot slot : activeSlots) {
+            slot.version.incrementAndGet();
+        }
+    }
+
+    private void likesChanged(long filmId, int likes) {
+        for (Slot slot : activeSlots) {
+            Snapshot snapshot = slot.snapshot;
+            // Пока ответа нет или он устарел, его может собирать другой поток — сбрасывается любым лайком
+            if (snapshot == null || snapshot.version != slot.version.get() || snapshot.affectedBy(filmId, likes)) {
+                slot.version.incrementAndGet();
+            }
+        }
+    }
+
+    private Slot slot(int count) {
+        Slot slot = slots.get(count);
+        if (slot == null) {
+            Slot created = new Slot();
+            slot = slots.compareAndExchange(count, null, created);
+            if (slot == null) {
+                activeSlots.add(created);
+                slot = created;
+            }
+        }
+        return slot;
+    }
+
+    private Snapshot snapshot(long version, int count, List<Film> films) {
+        long[] ids = new long[films.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = films.get(i).getId();
+        }
+        long lastId = ids.length > 0 ? ids[ids.length - 1] : 0;
+        int lastLikes = ids.length > 0 ? likeStorage.getLikesCount(lastId) : 0;
+        Arrays.sort(ids);
+        return new Snapshot(version, ids, ids.length == count, lastId, lastLikes, films,
+                new AtomicReferenceArray<>(Format.values().length));
+    }
+
+    private Response render(List<Film> films, Format format) {
+        try {
+            byte[] body = objectMappers[format.ordinal()].writeValueAsBytes(films);
+            return new Response(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать популярные фильмы", e);
+        }
+    }
+
+    private enum Format {
+        JSON,
+        SMILE
+    }
+
+    private static final class Slot {
+        private final AtomicLong version = new AtomicLong();
+        private volatile Snapshot snapshot;
+    }
+
+    /**
+     * @param ids       id фильмов ответа по возрастанию
+     * @param full      в ответе ровно count фильмов; иначе в него попали все фильмы, и новый фильм с лайком его меняет
+     * @param responses готовые ответы по Format.ordinal(), null — формат ещё не запрашивали
+     */
+    private record Snapshot(long version, long[] ids, boolean full, long lastId, int lastLikes, List<Film> films,
+                            AtomicReferenceArray<Response> responses) {
+        boolean affectedBy(long filmId, int likes) {
+            if (likes == LikesListener.UNKNOWN || Arrays.binarySearch(ids, filmId) >= 0 || !full) {
+                return true;
+            }
+            // Тот же порядок, что у рейтинга: по убыванию лайков, при равенстве — по возрастанию id
+            return likes > lastLikes || likes == lastLikes && filmId < lastId;
+        }
+    }
+}
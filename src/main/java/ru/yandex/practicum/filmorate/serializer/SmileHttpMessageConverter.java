@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.serializer;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Двоичный формат Smile для внутренних клиентов ({@code Accept: application/x-jackson-smile}), в запросах и ответах.
+ * ObjectMapper собирается тем же построителем Spring Boot, что и для JSON, поэтому схема та же: даты строкой,
+ * длительность фильма в секундах. Заменяет Smile-конвертер Spring MVC по умолчанию, настроенный без учёта Boot.
+ */
+@Component
+public class SmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    @Autowired
+    public SmileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        super(objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+}
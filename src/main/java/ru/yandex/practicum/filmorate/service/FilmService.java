@@ -4,37 +4,74 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchReport;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Service
 public class FilmService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final Map<Long, Set<Long>> likes = new HashMap<>();
+    private final LikeStorage likeStorage;
+    private final List<Runnable> filmsListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, LikeStorage likeStorage) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.likeStorage = likeStorage;
     }
 
     public Collection<Film> findAll() {
         return filmStorage.findAll();
     }
 
+    public List<Film> findPage(Long after, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (after != null && after < 0) {
+            throw new ValidationException("Курсор страницы не может быть отрицательным");
+        }
+        return filmStorage.findPage(after != null ? after : 0, pageSize);
+    }
+
     public Film getById(Long id) {
         return filmStorage.getById(id);
     }
 
+    /**
+     * Подписывает на создание, изменение и удаление фильмов; слушатель вызывается после записи в хранилище.
+     */
+    public void addFilmsListener(Runnable listener) {
+        filmsListeners.add(listener);
+    }
+
     public Film create(Film film) {
         validateFilm(film);
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        filmsChanged();
+        return created;
+    }
+
+    public List<Film> createAll(List<Film> films) {
+        films.forEach(this::validateFilm);
+        List<Film> created = filmStorage.createAll(films);
+        filmsChanged();
+        return created;
     }
 
     public Film update(Film film) {
@@ -46,7 +83,9 @@ public class FilmService {
             throw new ValidationException("Описание не может быть пустым");
         }
         validateFilm(film);
-        return filmStorage.update(film);
+        Film updated = filmStorage.update(film);
+        filmsChanged();
+        return updated;
     }
 
     public void addLike(Long filmId, Long userId) {
@@ -58,7 +97,7 @@ public class FilmService {
         if (user == null) {
             throw new NotFoundException("Юзер с id " + userId + " не найден.");
         }
-        likes.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+        likeStorage.addLike(filmId, userId);
     }
 
     public void removeLike(Long filmId, Long userId) {
@@ -70,23 +109,132 @@ public class FilmService {
         if (user == null) {
             throw new NotFoundException("Юзер с id " + userId + " не найден.");
         }
-        if (likes.containsKey(filmId)) {
-            likes.get(filmId).remove(userId);
+        likeStorage.removeLike(filmId, userId);
+    }
+
+    /**
+     * Пакет добавлений и снятий лайков: фильмы и пользователи проверяются двумя запросами на всю пачку,
+     * ошибочная операция не мешает остальным. Операции применяются в порядке запроса.
+     */
+    public BatchReport applyLikes(List<LikeMutation> mutations) {
+        if (mutations == null || mutations.isEmpty() || mutations.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пачка должна содержать от 1 до " + MAX_BATCH_SIZE + " операций");
+        }
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (LikeMutation mutation : mutations) {
+            if (mutation != null) {
+                filmIds.add(mutation.getFilmId());
+                userIds.add(mutation.getUserId());
+            }
+        }
+        filmIds.remove(null);
+        userIds.remove(null);
+        Set<Long> existingFilms = new HashSet<>();
+        filmStorage.getByIds(filmIds).forEach(film -> existingFilms.add(film.getId()));
+        Set<Long> existingUsers = new HashSet<>();
+        userStorage.getByIds(userIds).forEach(user -> existingUsers.add(user.getId()));
+
+        BatchReport.Item[] results = new BatchReport.Item[mutations.size()];
+        List<LikeMutation> valid = new ArrayList<>(mutations.size());
+        int[] positions = new int[mutations.size()];
+        for (int i = 0; i < results.length; i++) {
+            LikeMutation mutation = mutations.get(i);
+            if (mutation == null || mutation.getType() == null
+                    || mutation.getFilmId() == null || mutation.getUserId() == null) {
+                results[i] = BatchReport.Item.failed(i, "Операция должна содержать type, filmId и userId");
+            } else if (!existingFilms.contains(mutation.getFilmId())) {
+                results[i] = BatchReport.Item.failed(i, "Фильм с id " + mutation.getFilmId() + " не найден");
+            } else if (!existingUsers.contains(mutation.getUserId())) {
+                results[i] = BatchReport.Item.failed(i, "Юзер с id " + mutation.getUserId() + " не найден");
+            } else {
+                positions[valid.size()] = i;
+                valid.add(mutation);
+            }
         }
+        boolean[] changed = valid.isEmpty() ? new boolean[0] : likeStorage.applyLikes(valid);
+        for (int j = 0; j < changed.length; j++) {
+            results[positions[j]] = BatchReport.Item.done(positions[j], changed[j]);
+        }
+        return new BatchReport(Arrays.asList(results));
+    }
+
+    public void delete(Long id) {
+        filmStorage.getById(id);
+        filmStorage.delete(id);
+        likeStorage.deleteFilm(id);
+        filmsChanged();
     }
 
     public List<Film> getPopularFilms(int count) {
-        return filmStorage.findAll().stream()
-                .sorted(Comparator.comparingInt(f -> -getLikesCount(f.getId())))
-                .limit(count)
-                .collect(Collectors.toList());
+        return filmStorage.getByIds(getPopularFilmIds(count));
+    }
+
+    public List<Long> getPopularFilmIds(int count) {
+        List<Long> filmIds = new ArrayList<>(likeStorage.getPopularFilmIds(count));
+        if (filmIds.size() < count) {
+            addFilmsWithoutLikes(filmIds, count);
+        }
+        return filmIds;
+    }
+
+    public List<Film> getByIds(List<Long> ids) {
+        return filmStorage.getByIds(ids);
+    }
+
+    public List<Film> getRecommendations(Long userId, int count) {
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("Юзер с id " + userId + " не найден");
+        }
+        return filmStorage.getByIds(likeStorage.getRecommendedFilmIds(userId, count));
+    }
+
+    public List<Film> search(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        return filmStorage.getByIds(filmStorage.searchIds(query, count));
+    }
+
+    public List<Film> getTrendingFilms(String period, int count) {
+        return filmStorage.getByIds(likeStorage.getTrendingFilmIds(parsePeriod(period), count));
+    }
+
+    private void filmsChanged() {
+        for (Runnable listener : filmsListeners) {
+            listener.run();
+        }
+    }
+
+    private static TrendingPeriod parsePeriod(String period) {
+        for (TrendingPeriod value : TrendingPeriod.values()) {
+            if (value.name().equalsIgnoreCase(period)) {
+                return value;
+            }
+        }
+        throw new ValidationException("Период должен быть одним из: hour, day, week");
     }
 
-    private int getLikesCount(Long filmId) {
-        return likes.getOrDefault(filmId, Collections.emptySet()).size();
+    // Рейтинг может не содержать фильмов без лайков — добираем их по порядку id
+    private void addFilmsWithoutLikes(List<Long> filmIds, int count) {
+        Set<Long> ranked = new HashSet<>(filmIds);
+        long cursor = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.findPage(cursor, count);
+            for (Film film : page) {
+                if (filmIds.size() >= count) {
+                    return;
+                }
+                if (!ranked.contains(film.getId())) {
+                    filmIds.add(film.getId());
+                }
+                cursor = film.getId();
+            }
+        } while (page.size() == count);
     }
 
-    private void validateFilm(Film film) {
+    public void validateFilm(Film film) {
         if (film.getReleaseDate() == null) {
             throw new ValidationException("Дата релиза не может быть пустой");
         }
@@ -0,0 +1,317 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Массовый импорт из NDJSON: каждая строка — объект вида {"user": {...}}, {"film": {...}},
+ * {"like": {"filmId": 1, "userId": 2}} или {"friendship": {"userId": 1, "friendId": 2}}.
+ * Записи копятся пачками и пишутся в хранилища пакетно; ошибочные строки попадают в отчёт
+ * и не прерывают импорт. Лайки и дружбы могут ссылаться на сущности из предыдущих строк того же файла.
+ */
+@Service
+@Slf4j
+public class ImportService {
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader userReader;
+    private final ObjectReader filmReader;
+    private final ObjectReader likeReader;
+    private final ObjectReader friendshipReader;
+    private final Validator validator;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final LikeStorage likeStorage;
+    private final FriendStorage friendStorage;
+
+    @Autowired
+    public ImportService(ObjectMapper objectMapper, Validator validator,
+                         FilmService filmService, UserService userService,
+                         FilmStorage filmStorage, UserStorage userStorage,
+                         LikeStorage likeStorage, FriendStorage friendStorage) {
+        this.objectMapper = objectMapper;
+        this.userReader = objectMapper.readerFor(User.class);
+        this.filmReader = objectMapper.readerFor(Film.class);
+        this.likeReader = objectMapper.readerFor(Like.class);
+        this.friendshipReader = objectMapper.readerFor(Friendship.class);
+        this.validator = validator;
+        this.filmService = filmService;
+        this.userService = userService;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likeStorage = likeStorage;
+        this.friendStorage = friendStorage;
+    }
+
+    public ImportReport importNdjson(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(body, StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    readRecord(line, lineNumber, batch);
+                } catch (JsonProcessingException e) {
+                    batch.error(lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+                }
+            }
+            batch.report.setLines(lineNumber);
+        }
+        batch.flushAll();
+        ImportReport report = batch.report;
+        if (report.getLikes() > 0) {
+            likeStorage.likesLoaded();
+        }
+        // Ошибки пачек находятся при сбросе, поэтому приводим отчёт к порядку строк
+        report.getErrors().sort(Comparator.comparingLong(ImportReport.LineError::getLine));
+        log.info("Импорт завершён: строк={}, пользователей={}, фильмов={}, лайков={}, дружб={}, ошибок={}",
+                report.getLines(), report.getUsers(), report.getFilms(), report.getLikes(),
+                report.getFriendships(), report.getErrorCount());
+        return report;
+    }
+
+    private void readRecord(String line, long lineNumber, Batch batch) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+                batch.error(lineNumber, "Ожидается объект вида {\"<тип>\": {...}}");
+                return;
+            }
+            String type = parser.currentName();
+            parser.nextToken();
+            Object value = switch (type) {
+                case "user" -> userReader.readValue(parser);
+                case "film" -> filmReader.readValue(parser);
+                case "like" -> likeReader.readValue(parser);
+                case "friendship" -> friendshipReader.readValue(parser);
+                default -> null;
+            };
+            if (value == null) {
+                batch.error(lineNumber, "Неизвестный тип записи: " + type);
+                return;
+            }
+            if (parser.nextToken() != JsonToken.END_OBJECT) {
+                batch.error(lineNumber, "В строке должна быть ровно одна запись");
+                return;
+            }
+            batch.add(lineNumber, value);
+        }
+    }
+
+    private <T> String violations(T value) {
+        Set<ConstraintViolation<T>> violations = validator.validate(value);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static <T> Set<Long> existingIds(List<T> entities, Function<T, Long> idExtractor) {
+        Set<Long> ids = new HashSet<>(entities.size() * 2);
+        for (T entity : entities) {
+            ids.add(idExtractor.apply(entity));
+        }
+        return ids;
+    }
+
+    private record Pending<T>(long line, T value) {
+    }
+
+    // Состояние одного импорта: накопленные пачки и отчёт
+    private class Batch {
+        private final ImportReport report = new ImportReport();
+        private final List<Pending<User>> users = new ArrayList<>(BATCH_SIZE);
+        private final List<Pending<Film>> films = new ArrayList<>(BATCH_SIZE);
+        private final List<Pending<Like>> likes = new ArrayList<>(BATCH_SIZE);
+        private final List<Pending<Friendship>> friendships = new ArrayList<>(BATCH_SIZE);
+
+        void add(long line, Object value) {
+            if (value instanceof User user) {
+                users.add(new Pending<>(line, user));
+                if (users.size() >= BATCH_SIZE) {
+                    flushUsers();
+                }
+            } else if (value instanceof Film film) {
+                films.add(new Pending<>(line, film));
+                if (films.size() >= BATCH_SIZE) {
+                    flushFilms();
+                }
+            } else if (value instanceof Like like) {
+                likes.add(new Pending<>(line, like));
+                if (likes.size() >= BATCH_SIZE) {
+                    // Ссылки могут указывать на ещё не записанные сущности из предыдущих строк
+                    flushUsers();
+                    flushFilms();
+                    flushLikes();
+                }
+            } else if (value instanceof Friendship friendship) {
+                friendships.add(new Pending<>(line, friendship));
+                if (friendships.size() >= BATCH_SIZE) {
+                    flushUsers();
+                    flushFriendships();
+                }
+            }
+        }
+
+        void flushAll() {
+            flushUsers();
+            flushFilms();
+            flushLikes();
+            flushFriendships();
+        }
+
+        void error(long line, String message) {
+            report.setErrorCount(report.getErrorCount() + 1);
+            if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+                report.getErrors().add(new ImportReport.LineError(line, message));
+            }
+        }
+
+        private void flushUsers() {
+            if (users.isEmpty()) {
+                return;
+            }
+            List<User> valid = new ArrayList<>(users.size());
+            for (Pending<User> pending : users) {
+                String violations = violations(pending.value());
+                if (violations != null) {
+                    error(pending.line(), violations);
+                    continue;
+                }
+                valid.add(pending.value());
+            }
+            userService.createAll(valid);
+            report.setUsers(report.getUsers() + valid.size());
+            users.clear();
+        }
+
+        private void flushFilms() {
+            if (films.isEmpty()) {
+                return;
+            }
+            List<Film> valid = new ArrayList<>(films.size());
+            for (Pending<Film> pending : films) {
+                String violations = violations(pending.value());
+                if (violations != null) {
+                    error(pending.line(), violations);
+                    continue;
+                }
+                try {
+                    filmService.validateFilm(pending.value());
+                } catch (ValidationException e) {
+                    error(pending.line(), e.getMessage());
+                    continue;
+                }
+                valid.add(pending.value());
+            }
+            filmService.createAll(valid);
+            report.setFilms(report.getFilms() + valid.size());
+            films.clear();
+        }
+
+        private void flushLikes() {
+            if (likes.isEmpty()) {
+                return;
+            }
+            Set<Long> filmIds = new HashSet<>();
+            Set<Long> userIds = new HashSet<>();
+            for (Pending<Like> pending : likes) {
+                filmIds.add(pending.value().getFilmId());
+                userIds.add(pending.value().getUserId());
+            }
+            filmIds.remove(null);
+            userIds.remove(null);
+            // Существование проверяется одним запросом на пачку, а не по записи
+            Set<Long> existingFilms = existingIds(filmStorage.getByIds(filmIds), Film::getId);
+            Set<Long> existingUsers = existingIds(userStorage.getByIds(userIds), User::getId);
+
+            List<Like> valid = new ArrayList<>(likes.size());
+            for (Pending<Like> pending : likes) {
+                Like like = pending.value();
+                String violations = violations(like);
+                if (violations != null) {
+                    error(pending.line(), violations);
+                } else if (!existingFilms.contains(like.getFilmId())) {
+                    error(pending.line(), "Фильм с id " + like.getFilmId() + " не найден");
+                } else if (!existingUsers.contains(like.getUserId())) {
+                    error(pending.line(), "Юзер с id " + like.getUserId() + " не найден");
+                } else {
+                    valid.add(like);
+                }
+            }
+            likeStorage.addLikes(valid);
+            report.setLikes(report.getLikes() + valid.size());
+            likes.clear();
+        }
+
+        private void flushFriendships() {
+            if (friendships.isEmpty()) {
+                return;
+            }
+            Set<Long> userIds = new HashSet<>();
+            for (Pending<Friendship> pending : friendships) {
+                userIds.add(pending.value().getUserId());
+                userIds.add(pending.value().getFriendId());
+            }
+            userIds.remove(null);
+            Set<Long> existingUsers = existingIds(userStorage.getByIds(userIds), User::getId);
+
+            // Дружба взаимная, как и в UserService.addFriend
+            List<Friendship> valid = new ArrayList<>(friendships.size() * 2);
+            for (Pending<Friendship> pending : friendships) {
+                Friendship friendship = pending.value();
+                String violations = violations(friendship);
+                if (violations != null) {
+                    error(pending.line(), violations);
+                } else if (!existingUsers.contains(friendship.getUserId())) {
+                    error(pending.line(), "Юзер с id " + friendship.getUserId() + " не найден");
+                } else if (!existingUsers.contains(friendship.getFriendId())) {
+                    error(pending.line(), "Юзер с id " + friendship.getFriendId() + " не найден");
+                } else if (friendship.getUserId().equals(friendship.getFriendId())) {
+                    error(pending.line(), "Пользователь не может добавить в друзья самого себя");
+                } else {
+                    valid.add(friendship);
+                    valid.add(new Friendship(friendship.getFriendId(), friendship.getUserId()));
+                }
+            }
+            friendStorage.addFriends(valid);
+            report.setFriendships(report.getFriendships() + valid.size() / 2);
+            friendships.clear();
+        }
+    }
+}
@@ -1,29 +1,47 @@
 package ru.yandex.practicum.filmorate.service;
 
-import jakarta.validation.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchReport;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class UserService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final UserStorage userStorage;
-    private final Map<Long, Set<Long>> friends = new HashMap<>();
+    private final FriendStorage friendStorage;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FriendStorage friendStorage) {
         this.userStorage = userStorage;
+        this.friendStorage = friendStorage;
     }
 
     public Collection<User> findAll() {
         return userStorage.findAll();
     }
 
+    public List<User> findPage(Long after, Integer limit) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (after != null && after < 0) {
+            throw new ValidationException("Курсор страницы не может быть отрицательным");
+        }
+        return userStorage.findPage(after != null ? after : 0, pageSize);
+    }
+
     public User getById(Long id) {
         return userStorage.getById(id);
     }
@@ -33,6 +51,11 @@ public class UserService {
         return userStorage.create(user);
     }
 
+    public List<User> createAll(List<User> users) {
+        users.forEach(this::validateUser);
+        return userStorage.createAll(users);
+    }
+
     public User update(User user) {
         if (!userStorage.existsById(user.getId())) {
             throw new NotFoundException("Юзер с id " + user.getId() + " не найден");
@@ -49,8 +72,59 @@ public class UserService {
         User user = userStorage.getById(userId);
         User friend = userStorage.getById(friendId);
 
-        friends.computeIfAbsent(userId, k -> new HashSet<>()).add(friendId);
-        friends.computeIfAbsent(friendId, k -> new HashSet<>()).add(userId);
+        if (userId.equals(friendId)) {
+            throw new ValidationException("Пользователь не может дружить сам с собой");
+        }
+
+        friendStorage.addFriend(userId, friendId);
+        friendStorage.addFriend(friendId, userId);
+    }
+
+    /**
+     * Пакет добавлений и удалений друзей: пользователи проверяются одним запросом на всю пачку,
+     * ошибочная операция не мешает остальным. Дружба взаимная, как и в {@link #addFriend}.
+     */
+    public BatchReport applyFriends(List<FriendMutation> mutations) {
+        if (mutations == null || mutations.isEmpty() || mutations.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пачка должна содержать от 1 до " + MAX_BATCH_SIZE + " операций");
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (FriendMutation mutation : mutations) {
+            if (mutation != null) {
+                userIds.add(mutation.getUserId());
+                userIds.add(mutation.getFriendId());
+            }
+        }
+        userIds.remove(null);
+        Set<Long> existingUsers = new HashSet<>();
+        userStorage.getByIds(userIds).forEach(user -> existingUsers.add(user.getId()));
+
+        BatchReport.Item[] results = new BatchReport.Item[mutations.size()];
+        // Каждая операция — два встречных изменения подряд
+        List<FriendMutation> directed = new ArrayList<>(mutations.size() * 2);
+        int[] positions = new int[mutations.size()];
+        for (int i = 0; i < results.length; i++) {
+            FriendMutation mutation = mutations.get(i);
+            if (mutation == null || mutation.getType() == null
+                    || mutation.getUserId() == null || mutation.getFriendId() == null) {
+                results[i] = BatchReport.Item.failed(i, "Операция должна содержать type, userId и friendId");
+            } else if (!existingUsers.contains(mutation.getUserId())) {
+                results[i] = BatchReport.Item.failed(i, "Юзер с id " + mutation.getUserId() + " не найден");
+            } else if (!existingUsers.contains(mutation.getFriendId())) {
+                results[i] = BatchReport.Item.failed(i, "Юзер с id " + mutation.getFriendId() + " не найден");
+            } else if (mutation.getUserId().equals(mutation.getFriendId())) {
+                results[i] = BatchReport.Item.failed(i, "Пользователь не может дружить сам с собой");
+            } else {
+                positions[directed.size() / 2] = i;
+                directed.add(mutation);
+                directed.add(new FriendMutation(mutation.getType(), mutation.getFriendId(), mutation.getUserId()));
+            }
+        }
+        boolean[] changed = directed.isEmpty() ? new boolean[0] : friendStorage.applyFriends(directed);
+        for (int j = 0; j < changed.length / 2; j++) {
+            results[positions[j]] = BatchReport.Item.done(positions[j], changed[2 * j] || changed[2 * j + 1]);
+        }
+        return new BatchReport(Arrays.asList(results));
     }
 
     public void removeFriend(Long userId, Long friendId) {
@@ -62,34 +136,52 @@ public class UserService {
             throw new NotFoundException("Юзер с id " + friendId + " не найден");
         }
 
-        if (friends.containsKey(userId)) {
-            friends.get(userId).remove(friendId);
-        }
-        if (friends.containsKey(friendId)) {
-            friends.get(friendId).remove(userId);
-        }
+        friendStorage.removeFriend(userId, friendId);
+        friendStorage.removeFriend(friendId, userId);
     }
 
     public List<User> getFriends(Long userId) {
         if (!userStorage.existsById(userId)) {
             throw new NotFoundException("User with id " + userId + " not found");
         }
-        return friends.getOrDefault(userId, Collections.emptySet()).stream()
-                .map(userStorage::getById)
-                .collect(Collectors.toList());
+        return userStorage.getByIds(friendStorage.getFriendIds(userId));
     }
 
     public List<User> getCommonFriends(Long userId1, Long userId2) {
-        Set<Long> friends1 = friends.getOrDefault(userId1, Collections.emptySet());
-        Set<Long> friends2 = friends.getOrDefault(userId2, Collections.emptySet());
+        return userStorage.getByIds(friendStorage.getCommonFriendIds(userId1, userId2));
+    }
+
+    public List<User> getFriendSuggestions(Long userId, int count) {
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("User with id " + userId + " not found");
+        }
+        return userStorage.getByIds(friendStorage.getSuggestedFriendIds(userId, count));
+    }
+
+    public List<User> search(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        return userStorage.getByIds(userStorage.searchIds(query, count));
+    }
+
+    // Проверка существования — до начала записи, чтобы 404 ушёл обычным ответом, а не оборвал поток
+    public List<Long> getFriendIds(Long userId) {
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException("User with id " + userId + " not found");
+        }
+        return friendStorage.getFriendIds(userId);
+    }
+
+    public List<Long> getCommonFriendIds(Long userId1, Long userId2) {
+        return friendStorage.getCommonFriendIds(userId1, userId2);
+    }
 
-        return friends1.stream()
-                .filter(friends2::contains)
-                .map(userStorage::getById)
-                .collect(Collectors.toList());
+    public List<User> getByIds(List<Long> ids) {
+        return userStorage.getByIds(ids);
     }
 
-    private void validateUser(User user) {
+    public void validateUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
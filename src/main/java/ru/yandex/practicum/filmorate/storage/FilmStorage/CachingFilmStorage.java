@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш чтения по id поверх любого {@link FilmStorage}: ограничен по размеру (W-TinyLFU),
+ * сбрасывает запись при изменении или удалении фильма.
+ */
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final Cache<Long, Film> cache;
+    // Загрузка, пересёкшаяся со сбросом, не должна оставить в кэше устаревшее значение
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingFilmStorage(FilmStorage delegate, long maximumSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Film getById(Long id) {
+        if (id == null) {
+            return delegate.getById(id);
+        }
+        // Не cache.get(id, loader): загрузчик выполнялся бы под synchronized внутри ConcurrentHashMap,
+        // и запрос к базе закреплял бы виртуальный поток. Одновременные промахи по одному id допустимы
+        Film cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long before = invalidations.get();
+        Film loaded = delegate.getById(id);
+        cache.put(id, loaded);
+        if (invalidations.get() != before) {
+            invalidations.incrementAndGet();
+            cache.invalidate(id);
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Long> ids) {
+        List<Long> keys = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        // Промахи догружаются из хранилища одним запросом
+        long before = invalidations.get();
+        Map<Long, Film> found = cache.getAll(keys, missing -> delegate.getByIds(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity())));
+        if (invalidations.get() != before) {
+            cache.invalidateAll(keys);
+        }
+        List<Film> result = new ArrayList<>(keys.size());
+        for (Long id : keys) {
+            Film entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Long> searchIds(String query, int limit) {
+        return delegate.searchIds(query, limit);
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    public Cache<Long, Film> getCache() {
+        return cache;
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    public FilmStorage getDelegate() {
+        return delegate;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private void invalidate(Long id) {
+        if (id != null) {
+            invalidations.incrementAndGet();
+            cache.invalidate(id);
+        }
+    }
+}
@@ -3,16 +3,31 @@ package ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface FilmStorage {
 
     Collection<Film> findAll();
 
+    List<Film> findPage(long afterId, int limit);
+
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     Film getById(Long id);
 
+    List<Film> getByIds(Collection<Long> ids);
+
+    /**
+     * Не больше limit id записей, содержащих все слова запроса; последнее слово может быть недописанным.
+     * Выше — записи, где все слова нашлись в названии.
+     */
+    List<Long> searchIds(String query, int limit);
+
     void delete(Long id);
+
+    long count();
 }
@@ -1,50 +1,309 @@
 package ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.persistence.Journal;
+import ru.yandex.practicum.filmorate.persistence.MappedCatalog;
+import ru.yandex.practicum.filmorate.storage.TextSearchIndex;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+@Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
-    private long idCounter = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    // Упорядоченная по id карта: конкурентный доступ без общей блокировки и стабильный порядок в findAll
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final AtomicLong idCounter = new AtomicLong(1);
+    // Число живых записей вместе с ещё не загруженными из каталога; size() у карты — полный обход
+    private final AtomicLong size = new AtomicLong();
+    // Изменения одной записи журналируются под блокировкой её полосы, в порядке применения.
+    // ReentrantLock, а не synchronized: под блокировкой читается отображённый каталог, а чтение страницы
+    // с диска внутри synchronized закрепило бы виртуальный поток за несущим
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private volatile Journal journal = Journal.NONE;
+    // Каталог на диске под картой: записи собираются из него при первом обращении и остаются в карте
+    private volatile MappedCatalog<Film> catalog;
+    private volatile boolean catalogMaterialized = true;
+    private final Set<Long> deletedFromCatalog = ConcurrentHashMap.newKeySet();
+    // Меняется под блокировкой полосы записи; записи каталога индексируются в фоне после подключения
+    private final TextSearchIndex searchIndex = new TextSearchIndex();
+
+    public InMemoryFilmStorage() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Подключает каталог, загруженный при старте; вызывается до восстановления журнала.
+     */
+    public void attachCatalog(MappedCatalog<Film> catalog) {
+        this.catalog = catalog;
+        this.catalogMaterialized = catalog.size() == 0;
+        size.addAndGet(catalog.size());
+        idCounter.accumulateAndGet(catalog.maxId() + 1, Math::max);
+        if (catalog.size() > 0) {
+            ForkJoinPool.commonPool().execute(() -> indexCatalog(catalog));
+        }
+    }
 
     @Override
     public Collection<Film> findAll() {
+        materializeAfter(0, Integer.MAX_VALUE);
         return films.values();
     }
 
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        materializeAfter(afterId, limit);
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Film create(Film film) {
-        film.setId(idCounter++);
-        films.put(film.getId(), film);
+        insert(film);
+        journal.commit();
         return film;
     }
 
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        films.forEach(this::insert);
+        journal.commit();
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
-        if (!films.containsKey(film.getId())) {
+        if (film.getId() == null) {
             throw new NotFoundException("Фильм с таким id не найден: " + film.getId());
         }
-        films.put(film.getId(), film);
+        ReentrantLock lock = lockFor(film.getId());
+        lock.lock();
+        try {
+            Film old = find(film.getId());
+            if (old == null) {
+                throw new NotFoundException("Фильм с таким id не найден: " + film.getId());
+            }
+            film.setVersion(old.getVersion() + 1);
+            // Сначала журнал: если запись не удалась, изменение не станет видимым
+            journal.filmSaved(film);
+            films.put(film.getId(), film);
+            searchIndex.update(film.getId(), old.getName(), old.getDescription(), film.getName(), film.getDescription());
+        } finally {
+            lock.unlock();
+        }
+        journal.commit();
         return film;
     }
 
     @Override
     public Film getById(Long id) throws NotFoundException {
-        Film film = films.get(id);
+        Film film = id != null ? find(id) : null;
         if (film == null) {
             throw new NotFoundException("Фильм с id=" + id + " не найден");
         }
         return film;
     }
 
+    @Override
+    public List<Film> getByIds(Collection<Long> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film entity = id != null ? find(id) : null;
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void delete(Long id) {
-        films.remove(id);
+        if (id == null) {
+            return;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Film old = films.get(id);
+            MappedCatalog<Film> base = catalog;
+            boolean inCatalog = base != null && base.contains(id) && !deletedFromCatalog.contains(id);
+            if (old == null && !inCatalog) {
+                return;
+            }
+            journal.filmDeleted(id);
+            films.remove(id);
+            if (inCatalog) {
+                if (old == null && searchIndex.contains(id)) {
+                    old = base.get(id);
+                }
+                deletedFromCatalog.add(id);
+            }
+            if (old != null) {
+                searchIndex.remove(id, old.getName(), old.getDescription());
+            }
+            size.decrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        journal.commit();
+    }
+
+    @Override
+    public long count() {
+        return size.get();
+    }
+
+    /**
+     * Восстанавливает запись из журнала или снимка с её прежним id, не журналируя её повторно.
+     */
+    public void restore(Film film) {
+        ReentrantLock lock = lockFor(film.getId());
+        lock.lock();
+        try {
+            MappedCatalog<Film> base = catalog;
+            boolean inCatalog = base != null && base.contains(film.getId())
+                    && !deletedFromCatalog.contains(film.getId());
+            Film old = films.put(film.getId(), film);
+            if (old == null && !inCatalog) {
+                size.incrementAndGet();
+            }
+            // Запись каталога, ещё не проиндексированная в фоне, в индексе отсутствует — вычитать нечего
+            if (old == null && inCatalog && searchIndex.contains(film.getId())) {
+                old = base.get(film.getId());
+            }
+            if (old != null) {
+                searchIndex.update(film.getId(), old.getName(), old.getDescription(), film.getName(), film.getDescription());
+            } else {
+                searchIndex.add(film.getId(), film.getName(), film.getDescription());
+            }
+        } finally {
+            lock.unlock();
+        }
+        idCounter.accumulateAndGet(film.getId() + 1, Math::max);
+    }
+
+    @Override
+    public List<Long> searchIds(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Обходит все записи по возрастанию id, не собирая в карту ещё не загруженные записи каталога.
+     */
+    public void forEachOrdered(Consumer<Film> consumer) {
+        MappedCatalog<Film> base = catalog;
+        if (base == null || catalogMaterialized) {
+            films.values().forEach(consumer);
+        } else {
+            base.forEachMerged(films, deletedFromCatalog, consumer);
+        }
+    }
+
+    private Film find(long id) {
+        Film film = films.get(id);
+        return film != null || catalogMaterialized ? film : materialize(id);
+    }
+
+    private Film materialize(long id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Film film = films.get(id);
+            if (film == null && !deletedFromCatalog.contains(id)) {
+                film = catalog.get(id);
+                if (film != null) {
+                    films.put(id, film);
+                }
+            }
+            return film;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Для страницы достаточно собрать limit живых записей каталога после курсора
+    private void materializeAfter(long afterId, int limit) {
+        if (catalogMaterialized) {
+            return;
+        }
+        MappedCatalog<Film> base = catalog;
+        int found = 0;
+        int index = base.indexAfter(afterId);
+        for (; index < base.size() && found < limit; index++) {
+            if (find(base.idAt(index)) != null) {
+                found++;
+            }
+        }
+        if (afterId <= 0 && index == base.size()) {
+            catalogMaterialized = true;
+        }
+    }
+
+    private void insert(Film film) {
+        film.setId(idCounter.getAndIncrement());
+        ReentrantLock lock = lockFor(film.getId());
+        lock.lock();
+        try {
+            journal.filmSaved(film);
+            films.put(film.getId(), film);
+            size.incrementAndGet();
+            searchIndex.add(film.getId(), film.getName(), film.getDescription());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Записи каталога не собираются в карту: индекс строится по отображённому файлу
+    private void indexCatalog(MappedCatalog<Film> base) {
+        long started = System.nanoTime();
+        for (int index = 0; index < base.size(); index++) {
+            long id = base.idAt(index);
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                // Изменённые и восстановленные из журнала записи уже проиндексированы в новом виде
+                if (!deletedFromCatalog.contains(id) && !searchIndex.contains(id)) {
+                    Film film = films.get(id);
+                    if (film == null) {
+                        film = base.get(id);
+                    }
+                    searchIndex.add(id, film.getName(), film.getDescription());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("Поисковый индекс фильмов из каталога построен за {} мс: {} записей",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), base.size());
+    }
+
+    private ReentrantLock lockFor(long id) {
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
     }
 }
@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.TextSearchIndex;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+    private static final int BATCH_SIZE = 1000;
+    private static final int ID_ARRAY_LIMIT = 50_000;
+    private static final String INSERT =
+            "INSERT INTO films (name, description, release_date, duration) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcFilmStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return jdbcTemplate.query("SELECT * FROM films ORDER BY id", JdbcFilmStorage::mapRow);
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?",
+                JdbcFilmStorage::mapRow, afterId, limit);
+    }
+
+    @Override
+    public Film create(Film film) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"});
+            setValues(statement, film);
+            return statement;
+        }, keyHolder);
+        film.setId(keyHolder.getKeyAs(Long.class));
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        for (int from = 0; from < films.size(); from += BATCH_SIZE) {
+            List<Film> batch = films.subList(from, Math.min(from + BATCH_SIZE, films.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            JdbcFilmStorage.setValues(statement, batch.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    },
+                    keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) keys.get(i).get("ID")).longValue());
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public Film update(Film film) {
+        // Новая версия читается тем же запросом, что и меняет строку, — без гонки с соседним обновлением
+        List<Long> version = jdbcTemplate.queryForList("SELECT version FROM FINAL TABLE (UPDATE films "
+                        + "SET name = ?, description = ?, release_date = ?, duration = ?, version = version + 1 "
+                        + "WHERE id = ?)",
+                Long.class, film.getName(), film.getDescription(), toDate(film), film.getDurationSeconds(),
+                film.getId());
+        if (version.isEmpty()) {
+            throw new NotFoundException("Фильм с таким id не найден: " + film.getId());
+        }
+        film.setVersion(version.get(0));
+        return film;
+    }
+
+    @Override
+    public Film getById(Long id) throws NotFoundException {
+        return jdbcTemplate.query("SELECT * FROM films WHERE id = ?", JdbcFilmStorage::mapRow, id).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден"));
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Один запрос с массивом id вместо запроса на каждый id; массив в H2 не длиннее 65536 элементов
+        Map<Long, Film> found = new HashMap<>();
+        Object[] allIds = ids.toArray();
+        for (int from = 0; from < allIds.length; from += ID_ARRAY_LIMIT) {
+            Object[] chunk = Arrays.copyOfRange(allIds, from, Math.min(from + ID_ARRAY_LIMIT, allIds.length));
+            jdbcTemplate.query("SELECT * FROM films WHERE id = ANY (?)",
+                    statement -> statement.setArray(1, statement.getConnection().createArrayOf("BIGINT", chunk)),
+                    rs -> {
+                        Film entity = mapRow(rs, 0);
+                        found.put(entity.getId(), entity);
+                    });
+        }
+        List<Film> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            Film entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Long> searchIds(String query, int limit) {
+        List<String> words = TextSearchIndex.tokens(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        // Без индекса: каждое слово ищется подстрокой; фильмы, где все слова нашлись в названии, — выше
+        StringBuilder where = new StringBuilder();
+        StringBuilder inName = new StringBuilder();
+        List<Object> whereArgs = new ArrayList<>();
+        List<Object> inNameArgs = new ArrayList<>();
+        for (String word : words) {
+            String pattern = "%" + word + "%";
+            where.append(where.isEmpty() ? "" : " AND ")
+                    .append("(REPLACE(LOWER(name), 'ё', 'е') LIKE ? OR REPLACE(LOWER(description), 'ё', 'е') LIKE ?)");
+            inName.append(inName.isEmpty() ? "" : " AND ").append("REPLACE(LOWER(name), 'ё', 'е') LIKE ?");
+            whereArgs.add(pattern);
+            whereArgs.add(pattern);
+            inNameArgs.add(pattern);
+        }
+        List<Object> args = new ArrayList<>(whereArgs);
+        args.addAll(inNameArgs);
+        args.add(limit);
+        return jdbcTemplate.queryForList("SELECT id FROM films WHERE " + where
+                + " ORDER BY CASE WHEN " + inName + " THEN 0 ELSE 1 END, id LIMIT ?", Long.class, args.toArray());
+    }
+
+    @Override
+    public void delete(Long id) {
+        jdbcTemplate.update("DELETE FROM films WHERE id = ?", id);
+    }
+
+    @Override
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static void setValues(PreparedStatement statement, Film film) throws SQLException {
+        statement.setString(1, film.getName());
+        statement.setString(2, film.getDescription());
+        statement.setDate(3, toDate(film));
+        statement.setLong(4, film.getDurationSeconds());
+    }
+
+    private static Date toDate(Film film) {
+        return film.getReleaseDate() != null ? Date.valueOf(film.getReleaseDate()) : null;
+    }
+
+    private static Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Date releaseDate = rs.getDate("release_date");
+        Film film = Film.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(releaseDate != null ? releaseDate.toLocalDate() : null)
+                .duration(rs.getLong("duration"))
+                .build();
+        film.setVersion(rs.getLong("version"));
+        return film;
+    }
+}
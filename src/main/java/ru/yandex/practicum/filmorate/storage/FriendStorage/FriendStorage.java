@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface FriendStorage {
+    boolean addFriend(Long userId, Long friendId);
+
+    boolean removeFriend(Long userId, Long friendId);
+
+    void addFriends(Collection<Friendship> friendships);
+
+    /**
+     * Применяет односторонние добавления и удаления друзей в порядке списка; для каждой операции возвращает,
+     * изменила ли она что-нибудь. Взаимность дружбы и существование пользователей обеспечивает вызывающий.
+     */
+    boolean[] applyFriends(List<FriendMutation> mutations);
+
+    /**
+     * Записывает пачку отложенной записи: на каждую пару пользователей в ней не больше одной операции,
+     * поэтому порядок не важен, а результат по операциям не нужен. По умолчанию — {@link #applyFriends}.
+     */
+    default void writeFriends(List<FriendMutation> mutations) {
+        applyFriends(mutations);
+    }
+
+    boolean hasFriend(Long userId, Long friendId);
+
+    List<Long> getFriendIds(Long userId);
+
+    List<Long> getCommonFriendIds(Long userId, Long otherId);
+
+    /**
+     * Возможные друзья: не больше count пользователей, ещё не друзей userId, по убыванию числа общих друзей,
+     * при равенстве — по возрастанию id.
+     */
+    List<Long> getSuggestedFriendIds(Long userId, int count);
+
+    int getFriendsCount(Long userId);
+
+    long getTotalFriendsCount();
+}
@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Кандидаты в друзья: для пользователя — число общих друзей с каждым, с кем они есть.
+ * Счётчики пользователя строятся при первом запросе (для больших списков друзей — параллельно, fork-join)
+ * и дальше поддерживаются при каждом изменении дружбы, так что запрос не пересчитывает O(друзей²).
+ * Общий объём счётчиков ограничен, редко запрашиваемые пользователи вытесняются.
+ * <p>
+ * Дружба считается взаимной, как её пишут UserService и импорт: список друзей служит и списком «в друзьях у».
+ * Хранилище вызывает изменения под блокировками пользователя и друга: изменения, которые задевают один и тот же
+ * общий друг, идут по порядку, а остальные лишь складывают счётчики и применяются одновременно. Кроме того,
+ * изменения идут под разделяемой блокировкой, а индекс берёт исключающую, когда ставит счётчики, посчитанные
+ * без неё.
+ */
+public class FriendSuggestionIndex {
+    // Друзей на одну задачу fork-join при построении счётчиков
+    private static final int PARALLEL_THRESHOLD = 1_024;
+
+    private final IntFunction<RoaringBitmap> friendsOf;
+    private final Lock installLock;
+    private final Cache<Integer, Candidates> entries;
+    // Меняется при каждом изменении дружбы: счётчики, посчитанные без блокировки, устанавливаются,
+    // только если граф за это время не менялся
+    private final AtomicLong version = new AtomicLong();
+    private final Set<Integer> toRebuild = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    public FriendSuggestionIndex(IntFunction<RoaringBitmap> friendsOf, Lock installLock, long maximumCandidates) {
+        this.friendsOf = friendsOf;
+        this.installLock = installLock;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maximumCandidates)
+                .weigher((Integer user, Candidates candidates) -> candidates.capacity())
+                .build();
+    }
+
+    /**
+     * Пользователь user добавил в друзья friend (delta = 1) или удалил его (delta = −1): friend стал или перестал
+     * быть общим другом user и всех друзей friend. friendsOfFriend — список друзей friend сразу после изменения.
+     */
+    public void friendChanged(int user, int friend, RoaringBitmap friendsOfFriend, int delta) {
+        version.incrementAndGet();
+        Candidates own = entries.getIfPresent(user);
+        if (own != null) {
+            boolean resized;
+            own.lock.lock();
+            try {
+                int capacity = own.capacity();
+                // Изменился сам список друзей — он отсекает кандидатов, даже если счётчики не поменялись
+                own.invalidateRanking();
+                friendsOfFriend.forEach((int other) -> {
+                    if (other != user) {
+                        own.add(other, delta);
+                    }
+                });
+                resized = own.capacity() != capacity;
+            } finally {
+                own.lock.unlock();
+            }
+            if (resized) {
+                reweigh(user, own);
+            }
+        }
+        // В индексе обычно меньше пользователей, чем друзей у популярного friend: идём по меньшему множеству
+        if (entries.estimatedSize() < friendsOfFriend.getLongCardinality()) {
+            for (Integer other : entries.asMap().keySet()) {
+                if (other != user && friendsOfFriend.contains(other)) {
+                    addTo(other, user, delta);
+                }
+            }
+        } else {
+            friendsOfFriend.forEach((int other) -> {
+                if (other != user) {
+                    addTo(other, user, delta);
+                }
+            });
+        }
+    }
+
+    /**
+     * Сбрасывает счётчики после массового изменения дружбы и в фоне пересчитывает их для пользователей,
+     * которые были в индексе: поддерживать счётчики по одной дружбе на пачке обходится дороже.
+     */
+    public void invalidateAll() {
+        toRebuild.addAll(entries.asMap().keySet());
+        entries.invalidateAll();
+        version.incrementAndGet();
+        if (!toRebuild.isEmpty() && rebuildScheduled.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Не больше count кандидатов по убыванию числа общих друзей, при равенстве — по возрастанию id;
+     * сам пользователь и его друзья не предлагаются.
+     */
+    public List<Long> suggest(int user, int count) {
+        Candidates candidates = entries.getIfPresent(user);
+        if (candidates == null) {
+            candidates = load(user, true);
+        }
+        return candidates.top(user, friendsOf.apply(user), count);
+    }
+
+    public long indexedUsers() {
+        return entries.estimatedSize();
+    }
+
+    private void addTo(int owner, int candidate, int delta) {
+        Candidates candidates = entries.getIfPresent(owner);
+        if (candidates != null) {
+            boolean resized;
+            candidates.lock.lock();
+            try {
+                int capacity = candidates.capacity();
+                candidates.add(candidate, delta);
+                resized = candidates.capacity() != capacity;
+            } finally {
+                candidates.lock.unlock();
+            }
+            if (resized) {
+                reweigh(owner, candidates);
+            }
+        }
+    }
+
+    // Caffeine взвешивает запись только при записи в кэш: после роста таблицы кладём её заново,
+    // иначе ограничение объёма считало бы по исходному размеру
+    private void reweigh(int owner, Candidates candidates) {
+        entries.asMap().replace(owner, candidates, candidates);
+    }
+
+    private Candidates load(int user, boolean required) {
+        long started = version.get();
+        Candidates built = build(user);
+        installLock.lock();
+        try {
+            Candidates current = entries.getIfPresent(user);
+            if (current != null) {
+                return current;
+            }
+            if (version.get() != started) {
+                if (!required) {
+                    return null;
+                }
+                // Граф изменился во время подсчёта: пересчитываем под блокировкой, записи подождут
+                built = build(user);
+            }
+            entries.put(user, built);
+            return built;
+        } finally {
+            installLock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        rebuildScheduled.set(false);
+        List<Integer> users = new ArrayList<>(toRebuild);
+        users.forEach(toRebuild::remove);
+        // Не успевшие пересчитаться из-за новых изменений построятся при следующем запросе
+        users.parallelStream().forEach(user -> load(user, false));
+    }
+
+    private Candidates build(int user) {
+        int[] friends = friendsOf.apply(user).toArray();
+        if (friends.length <= PARALLEL_THRESHOLD) {
+            return count(friends, 0, friends.length);
+        }
+        return ForkJoinPool.commonPool().invoke(new CountTask(friends, 0, friends.length));
+    }
+
+    private Candidates count(int[] friends, int from, int to) {
+        Candidates candidates = new Candidates(to - from);
+        for (int i = from; i < to; i++) {
+            friendsOf.apply(friends[i]).forEach((int other) -> candidates.add(other, 1));
+        }
+        return candidates;
+    }
+
+    private class CountTask extends RecursiveTask<Candidates> {
+        private final int[] friends;
+        private final int from;
+        private final int to;
+
+        CountTask(int[] friends, int from, int to) {
+            this.friends = friends;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Candidates compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return count(friends, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(friends, from, middle);
+            left.fork();
+            Candidates right = new CountTask(friends, middle, to).compute();
+            Candidates merged = left.join();
+            if (merged.size < right.size) {
+                Candidates swap = merged;
+                merged = right;
+                right = swap;
+            }
+            merged.addAll(right);
+            return merged;
+        }
+    }
+
+    /**
+     * Счётчики общих друзей без упаковки: открытая адресация, id пользователя → число общих друзей.
+     * Обнулившиеся счётчики остаются в таблице и пропускаются при выборке.
+     */
+    static final class Candidates {
+        private static final int FREE = -1;
+
+        final ReentrantLock lock = new ReentrantLock();
+        private int[] keys;
+        private int[] counts;
+        private int size;
+        private List<Long> ranked;
+        private int rankedCount;
+
+        Candidates(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 4) - 1) << 1;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(counts, FREE);
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        void add(int key, int delta) {
+            ranked = null;
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (counts[slot] != FREE) {
+                if (keys[slot] == key) {
+                    counts[slot] += delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (delta <= 0) {
+                return;
+            }
+            keys[slot] = key;
+            counts[slot] = delta;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        void addAll(Candidates other) {
+            for (int slot = 0; slot < other.keys.length; slot++) {
+                if (other.counts[slot] > 0) {
+                    add(other.keys[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        /**
+         * Последняя выборка запоминается до первого изменения счётчиков: запросы без записей между ними
+         * не сканируют таблицу.
+         */
+        List<Long> top(int user, RoaringBitmap friends, int count) {
+            lock.lock();
+            try {
+                if (ranked == null || count > rankedCount) {
+                    ranked = rank(user, friends, count);
+                    rankedCount = count;
+                }
+                return ranked.size() > count ? ranked.subList(0, count) : ranked;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void invalidateRanking() {
+            ranked = null;
+        }
+
+        private List<Long> rank(int user, RoaringBitmap friends, int count) {
+            // Кандидат упакован в long так, что больше значение — выше место: общие друзья, затем меньший id
+            PriorityQueue<Long> best = new PriorityQueue<>(count + 1);
+            for (int slot = 0; slot < keys.length; slot++) {
+                int mutual = counts[slot];
+                if (mutual <= 0) {
+                    continue;
+                }
+                int candidate = keys[slot];
+                long packed = ((long) mutual << 32) | (0xFFFFFFFFL - Integer.toUnsignedLong(candidate));
+                // Сначала дешёвое сравнение с худшим из отобранных, друзей в битмапе ищем только потом
+                boolean full = best.size() >= count;
+                if (full && packed <= best.peek() || candidate == user || friends.contains(candidate)) {
+                    continue;
+                }
+                if (full) {
+                    best.poll();
+                }
+                best.add(packed);
+            }
+            Long[] sorted = best.toArray(new Long[0]);
+            Arrays.sort(sorted);
+            List<Long> result = new ArrayList<>(sorted.length);
+            for (int i = sorted.length - 1; i >= 0; i--) {
+                result.add(0xFFFFFFFFL - (sorted[i] & 0xFFFFFFFFL));
+            }
+            return List.copyOf(result);
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldCounts.length * 2];
+            Arrays.fill(counts, FREE);
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldCounts[slot] > 0) {
+                    add(oldKeys[slot], oldCounts[slot]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.persistence.Journal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryFriendStorage implements FriendStorage {
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+    // Ячеек в счётчиках общих друзей на всех пользователей индекса, по 8 байт
+    private static final long MAX_INDEXED_CANDIDATES = 4_000_000;
+    private static final int LOCK_STRIPES = 64;
+
+    // Copy-on-write: опубликованный битмап не меняется, поэтому чтение идёт без блокировок
+    private final Map<Long, RoaringBitmap> friends = new ConcurrentHashMap<>();
+    private final AtomicLong totalFriends = new AtomicLong();
+    // Изменение дружбы берёт полосы пользователя и друга: список друзей пользователя меняется, а список друга
+    // читается индексом кандидатов, и оба не должны поменяться посередине. Записи непересекающихся пар не ждут
+    // друг друга. ReentrantLock, а не synchronized, — чтобы не закреплять виртуальные потоки
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    // Одиночные записи идут под разделяемой блокировкой вместе с обновлением индекса; исключающую берут
+    // массовая загрузка и индекс, когда ставит пересчитанные счётчики, — им нужно, чтобы записей в процессе не было
+    private final ReentrantReadWriteLock updateLock = new ReentrantReadWriteLock();
+    private final FriendSuggestionIndex suggestionIndex = new FriendSuggestionIndex(
+            user -> friendsOf(Integer.toUnsignedLong(user)), updateLock.writeLock(), MAX_INDEXED_CANDIDATES);
+    private volatile Journal journal = Journal.NONE;
+
+    public InMemoryFriendStorage() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        int user = toIndex(userId);
+        int friend = toIndex(friendId);
+        boolean added;
+        Lock shared = updateLock.readLock();
+        shared.lock();
+        try {
+            added = apply(MutationType.ADD, userId, user, friend);
+        } finally {
+            shared.unlock();
+        }
+        if (added) {
+            journal.commit();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        int user = toIndex(userId);
+        int friend = toIndex(friendId);
+        boolean removed;
+        Lock shared = updateLock.readLock();
+        shared.lock();
+        try {
+            removed = apply(MutationType.REMOVE, userId, user, friend);
+        } finally {
+            shared.unlock();
+        }
+        if (removed) {
+            journal.commit();
+        }
+        return removed;
+    }
+
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        // Битмап каждого пользователя копируется один раз на всю пачку
+        Map<Long, RoaringBitmap> added = new HashMap<>();
+        for (Friendship friendship : friendships) {
+            added.computeIfAbsent(friendship.getUserId(), id -> new RoaringBitmap())
+                    .add(toIndex(friendship.getFriendId()));
+        }
+        Lock exclusive = updateLock.writeLock();
+        exclusive.lock();
+        try {
+            // Исключение журнала внутри compute оставляет битмап пользователя прежним
+            added.forEach((userId, bitmap) -> friends.compute(userId, (id, current) -> {
+                RoaringBitmap fresh = current != null ? RoaringBitmap.andNot(bitmap, current) : bitmap;
+                fresh.forEach((int friend) -> journal.friendAdded(userId, Integer.toUnsignedLong(friend)));
+                totalFriends.addAndGet(fresh.getLongCardinality());
+                return current != null ? RoaringBitmap.or(current, fresh) : fresh;
+            }));
+        } finally {
+            suggestionIndex.invalidateAll();
+            exclusive.unlock();
+        }
+        journal.commit();
+    }
+
+    /**
+     * Операции применяются по одной в порядке списка, с одним commit журнала на пачку.
+     */
+    @Override
+    public boolean[] applyFriends(List<FriendMutation> mutations) {
+        int[] users = new int[mutations.size()];
+        int[] friendIndexes = new int[mutations.size()];
+        // Некорректный id отклоняет всю пачку до того, как что-либо изменится
+        for (int i = 0; i < users.length; i++) {
+            users[i] = toIndex(mutations.get(i).getUserId());
+            friendIndexes[i] = toIndex(mutations.get(i).getFriendId());
+        }
+        boolean[] changed = new boolean[mutations.size()];
+        Lock shared = updateLock.readLock();
+        shared.lock();
+        try {
+            for (int i = 0; i < changed.length; i++) {
+                changed[i] = apply(mutations.get(i).getType(), mutations.get(i).getUserId(), users[i],
+                        friendIndexes[i]);
+            }
+        } finally {
+            shared.unlock();
+        }
+        journal.commit();
+        return changed;
+    }
+
+    /**
+     * Обходит списки друзей всех пользователей; опубликованные битмапы не меняются, поэтому без блокировок.
+     */
+    public void forEachUserFriends(BiConsumer<Long, long[]> consumer) {
+        friends.forEach((userId, bitmap) -> {
+            long[] friendIds = new long[bitmap.getCardinality()];
+            int[] i = new int[1];
+            bitmap.forEach((int friend) -> friendIds[i[0]++] = Integer.toUnsignedLong(friend));
+            consumer.accept(userId, friendIds);
+        });
+    }
+
+    @Override
+    public boolean hasFriend(Long userId, Long friendId) {
+        return friendsOf(userId).contains(toIndex(friendId));
+    }
+
+    @Override
+    public List<Long> getFriendIds(Long userId) {
+        return toIds(friendsOf(userId));
+    }
+
+    @Override
+    public List<Long> getCommonFriendIds(Long userId, Long otherId) {
+        return toIds(RoaringBitmap.and(friendsOf(userId), friendsOf(otherId)));
+    }
+
+    @Override
+    public List<Long> getSuggestedFriendIds(Long userId, int count) {
+        return suggestionIndex.suggest(toIndex(userId), count);
+    }
+
+    @Override
+    public int getFriendsCount(Long userId) {
+        return friendsOf(userId).getCardinality();
+    }
+
+    @Override
+    public long getTotalFriendsCount() {
+        return totalFriends.get();
+    }
+
+    /**
+     * Меняет список друзей и обновляет индекс кандидатов под полосами пользователя и друга: индекс получает
+     * список друзей друга, который не меняется, пока идёт обновление.
+     */
+    private boolean apply(MutationType type, Long userId, int user, int friend) {
+        // Полосы берутся в порядке номеров, иначе встречные пары могли бы ждать друг друга
+        int userStripe = stripe(user);
+        int friendStripe = stripe(friend);
+        ReentrantLock first = stripes[Math.min(userStripe, friendStripe)];
+        ReentrantLock second = stripes[Math.max(userStripe, friendStripe)];
+        first.lock();
+        second.lock();
+        try {
+            boolean changed = type == MutationType.ADD ? addLocked(userId, friend) : removeLocked(userId, friend);
+            if (changed) {
+                suggestionIndex.friendChanged(user, friend, friendsOf(Integer.toUnsignedLong(friend)),
+                        type == MutationType.ADD ? 1 : -1);
+            }
+            return changed;
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    private boolean addLocked(Long userId, int friend) {
+        boolean[] added = new boolean[1];
+        friends.compute(userId, (id, current) -> {
+            if (current != null && current.contains(friend)) {
+                return current;
+            }
+            // Журнал до изменения: если запись не удалась, compute оставит битмап прежним
+            journal.friendAdded(userId, Integer.toUnsignedLong(friend));
+            RoaringBitmap updated = current != null ? current.clone() : new RoaringBitmap();
+            updated.add(friend);
+            added[0] = true;
+            totalFriends.incrementAndGet();
+            return updated;
+        });
+        return added[0];
+    }
+
+    private boolean removeLocked(Long userId, int friend) {
+        boolean[] removed = new boolean[1];
+        friends.computeIfPresent(userId, (id, current) -> {
+            if (!current.contains(friend)) {
+                return current;
+            }
+            journal.friendRemoved(userId, Integer.toUnsignedLong(friend));
+            RoaringBitmap updated = current.clone();
+            updated.remove(friend);
+            removed[0] = true;
+            totalFriends.decrementAndGet();
+            return updated.isEmpty() ? null : updated;
+        });
+        return removed[0];
+    }
+
+    private RoaringBitmap friendsOf(Long userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    // Полоса по младшим битам перемешанного индекса: соседние id попадают в разные полосы
+    private static int stripe(int index) {
+        int h = index * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private static List<Long> toIds(RoaringBitmap bitmap) {
+        List<Long> ids = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach((int id) -> ids.add(Integer.toUnsignedLong(id)));
+        return ids;
+    }
+
+    private static int toIndex(Long userId) {
+        if (userId == null || userId < 0 || userId > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Некорректный id пользователя: " + userId);
+        }
+        return (int) userId.longValue();
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.MutationType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcFriendStorage implements FriendStorage {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String MERGE_FRIEND =
+            "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)";
+    private static final String DELETE_FRIEND = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public JdbcFriendStorage(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        // MERGE атомарен при одновременных одинаковых запросах; OLD TABLE пуста, только если дружбы ещё не было
+        return Integer.valueOf(0).equals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OLD TABLE ("
+                + MERGE_FRIEND + ")",
+                Integer.class, userId, friendId));
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        return jdbcTemplate.update(DELETE_FRIEND, userId, friendId) > 0;
+    }
+
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        jdbcTemplate.batchUpdate(MERGE_FRIEND, friendships, BATCH_SIZE, (ps, friendship) -> {
+            ps.setLong(1, friendship.getUserId());
+            ps.setLong(2, friendship.getFriendId());
+        });
+    }
+
+    @Override
+    public boolean[] applyFriends(List<FriendMutation> mutations) {
+        // Добавление и удаление одной дружбы могут идти в пачке подряд, поэтому порядок важнее пакетной отправки
+        boolean[] changed = new boolean[mutations.size()];
+        for (int i = 0; i < changed.length; i++) {
+            FriendMutation mutation = mutations.get(i);
+            changed[i] = mutation.getType() == MutationType.ADD
+                    ? addFriend(mutation.getUserId(), mutation.getFriendId())
+                    : removeFriend(mutation.getUserId(), mutation.getFriendId());
+        }
+        return changed;
+    }
+
+    @Override
+    public void writeFriends(List<FriendMutation> mutations) {
+        // Пары в пачке не повторяются, так что добавления и удаления можно отправить двумя пакетами в одной транзакции
+        Map<Boolean, List<FriendMutation>> byType = mutations.stream()
+                .collect(Collectors.partitioningBy(mutation -> mutation.getType() == MutationType.ADD));
+        transactionTemplate.executeWithoutResult(status -> {
+            batchUpdate(MERGE_FRIEND, byType.get(true));
+            batchUpdate(DELETE_FRIEND, byType.get(false));
+        });
+    }
+
+    @Override
+    public boolean hasFriend(Long userId, Long friendId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)",
+                Boolean.class, userId, friendId));
+    }
+
+    @Override
+    public List<Long> getFriendIds(Long userId) {
+        return jdbcTemplate.queryForList(
+                "SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id", Long.class, userId);
+    }
+
+    @Override
+    public List<Long> getCommonFriendIds(Long userId, Long otherId) {
+        return jdbcTemplate.queryForList("SELECT f1.friend_id FROM friendships f1 "
+                + "JOIN friendships f2 ON f2.friend_id = f1.friend_id "
+                + "WHERE f1.user_id = ? AND f2.user_id = ? "
+                + "ORDER BY f1.friend_id", Long.class, userId, otherId);
+    }
+
+    @Override
+    public List<Long> getSuggestedFriendIds(Long userId, int count) {
+        return jdbcTemplate.queryForList("SELECT f2.friend_id FROM friendships f1 "
+                + "JOIN friendships f2 ON f2.user_id = f1.friend_id "
+                + "WHERE f1.user_id = ? AND f2.friend_id <> ? "
+                + "AND NOT EXISTS (SELECT 1 FROM friendships f3 WHERE f3.user_id = ? AND f3.friend_id = f2.friend_id) "
+                + "GROUP BY f2.friend_id "
+                + "ORDER BY COUNT(*) DESC, f2.friend_id "
+                + "LIMIT ?", Long.class, userId, userId, userId, count);
+    }
+
+    @Override
+    public int getFriendsCount(Long userId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM friendships WHERE user_id = ?", Integer.class, userId);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public long getTotalFriendsCount() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private void batchUpdate(String sql, List<FriendMutation> mutations) {
+        jdbcTemplate.batchUpdate(sql, mutations, BATCH_SIZE, (ps, mutation) -> {
+            ps.setLong(1, mutation.getUserId());
+            ps.setLong(2, mutation.getFriendId());
+        });
+    }
+}
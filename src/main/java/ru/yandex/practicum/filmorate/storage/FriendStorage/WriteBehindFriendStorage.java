@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.storage.FriendStorage;
+
+import org.springframework.context.SmartLifecycle;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.storage.WriteBehindQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Отложенная запись дружбы поверх любого {@link FriendStorage}: addFriend и removeFriend ставят изменение в очередь
+ * и сразу видны в списках друзей и общих друзей, а в хранилище пишутся пачками в фоне. Возможные друзья и общий
+ * счётчик читаются из хранилища и отстают на время до записи пачки.
+ * Пакетные операции сначала записывают очередь, а затем идут в хранилище напрямую.
+ */
+public class WriteBehindFriendStorage implements FriendStorage, SmartLifecycle {
+    private final FriendStorage delegate;
+    private final WriteBehindQueue queue;
+
+    public WriteBehindFriendStorage(FriendStorage delegate, WriteBehindQueue.Settings settings) {
+        this.delegate = delegate;
+        this.queue = new WriteBehindQueue("friends", settings, delegate::hasFriend, mutations ->
+                delegate.writeFriends(mutations.stream()
+                        .map(m -> new FriendMutation(m.type(), m.owner(), m.target()))
+                        .toList()));
+    }
+
+    @Override
+    public boolean addFriend(Long userId, Long friendId) {
+        return queue.submit(userId, friendId, MutationType.ADD);
+    }
+
+    @Override
+    public boolean removeFriend(Long userId, Long friendId) {
+        return queue.submit(userId, friendId, MutationType.REMOVE);
+    }
+
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        queue.writeThrough(() -> {
+            delegate.addFriends(friendships);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean[] applyFriends(List<FriendMutation> mutations) {
+        return queue.writeThrough(() -> delegate.applyFriends(mutations));
+    }
+
+    @Override
+    public boolean hasFriend(Long userId, Long friendId) {
+        MutationType queued = queue.queued(userId, friendId);
+        return queued != null ? queued == MutationType.ADD : delegate.hasFriend(userId, friendId);
+    }
+
+    @Override
+    public List<Long> getFriendIds(Long userId) {
+        Map<Long, MutationType> queued = queue.queued(userId);
+        List<Long> stored = delegate.getFriendIds(userId);
+        if (queued.isEmpty()) {
+            return stored;
+        }
+        // Список упорядочен по id, как и у хранилища
+        TreeSet<Long> friends = new TreeSet<>(stored);
+        queued.forEach((friendId, type) -> {
+            if (type == MutationType.ADD) {
+                friends.add(friendId);
+            } else {
+                friends.remove(friendId);
+            }
+        });
+        return new ArrayList<>(friends);
+    }
+
+    @Override
+    public List<Long> getCommonFriendIds(Long userId, Long otherId) {
+        if (queue.queued(userId).isEmpty() && queue.queued(otherId).isEmpty()) {
+            return delegate.getCommonFriendIds(userId, otherId);
+        }
+        List<Long> common = new ArrayList<>(getFriendIds(userId));
+        common.retainAll(new TreeSet<>(getFriendIds(otherId)));
+        return common;
+    }
+
+    @Override
+    public List<Long> getSuggestedFriendIds(Long userId, int count) {
+        return delegate.getSuggestedFriendIds(userId, count);
+    }
+
+    @Override
+    public int getFriendsCount(Long userId) {
+        return queue.count(userId, () -> delegate.getFriendsCount(userId));
+    }
+
+    @Override
+    public long getTotalFriendsCount() {
+        return delegate.getTotalFriendsCount();
+    }
+
+    /**
+     * Записывает в хранилище всё, что стоит в очереди.
+     */
+    public void flush() {
+        queue.flush();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public FriendStorage getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void start() {
+        queue.start();
+    }
+
+    @Override
+    public void stop() {
+        queue.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return queue.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return WriteBehindQueue.LIFECYCLE_PHASE;
+    }
+}
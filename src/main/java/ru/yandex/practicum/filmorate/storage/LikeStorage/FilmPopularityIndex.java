@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Рейтинг фильмов с лайками: по убыванию количества лайков, при равенстве — по возрастанию id.
+ */
+public class FilmPopularityIndex {
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+    private final Map<Long, Integer> likesCount = new ConcurrentHashMap<>();
+
+    public void increment(long filmId) {
+        add(filmId, 1);
+    }
+
+    /**
+     * delta может быть отрицательным; фильм, у которого не осталось лайков, выпадает из рейтинга.
+     */
+    public void add(long filmId, int delta) {
+        likesCount.compute(filmId, (id, count) -> {
+            int current = count != null ? count : 0;
+            int updated = current + delta;
+            if (updated > 0) {
+                ranking.add(new Entry(id, updated));
+            }
+            ranking.remove(new Entry(id, current));
+            return updated > 0 ? updated : null;
+        });
+    }
+
+    public void decrement(long filmId) {
+        add(filmId, -1);
+    }
+
+    public void remove(long filmId) {
+        likesCount.computeIfPresent(filmId, (id, count) -> {
+            ranking.remove(new Entry(id, count));
+            return null;
+        });
+    }
+
+    public int getLikesCount(long filmId) {
+        return likesCount.getOrDefault(filmId, 0);
+    }
+
+    public int size() {
+        return likesCount.size();
+    }
+
+    public List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.min(count, likesCount.size()));
+        // Во время перестановки фильм может на мгновение встретиться дважды
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (result.size() >= count) {
+                break;
+            }
+            if (seen.add(entry.filmId())) {
+                result.add(entry.filmId());
+            }
+        }
+        return result;
+    }
+
+    private record Entry(long filmId, int likes) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рекомендации по совместным лайкам (item-item): для каждого фильма хранится до {@value #NEIGHBORS} фильмов,
+ * которые чаще всего лайкают те же пользователи, и число таких пользователей. Рекомендация пользователю —
+ * сумма соседей его фильмов, без уже лайкнутых.
+ * <p>
+ * Пересборка считает соседей точно, параллельно по фильмам. Между пересборками каждый лайк сразу
+ * обновляет соседей приближённо, по алгоритму Space-Saving: новый сосед при заполненном списке вытесняет
+ * самого редкого и наследует его счётчик. Пересборка идёт в фоне после массовой загрузки лайков и после
+ * {@value #REBUILD_AFTER_UPDATES} приближённых обновлений. Она считает по снимку лайков пользователей,
+ * а изменения, пришедшие после снимка, записывает и перед подменой соседей применяет к новым так же,
+ * как к текущим.
+ */
+@Slf4j
+public class FilmRecommendationIndex {
+    static final int NEIGHBORS = 64;
+    private static final long REBUILD_AFTER_UPDATES = 1_000_000;
+    private static final int[] NO_FILMS = new int[0];
+
+    // Отсортированные фильмы пользователя; массив заменяется целиком внутри compute
+    private final Map<Long, int[]> userLikes = new ConcurrentHashMap<>();
+    // Ключи — все фильмы с лайками: удалённый фильм пропадает отсюда и перестаёт рекомендоваться
+    private volatile Map<Integer, Neighbors> neighbors = new ConcurrentHashMap<>();
+    private final AtomicLong updatesSinceRebuild = new AtomicLong();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Обновления берут её на чтение, пересборка на запись — только чтобы начать запись изменений и подменить соседей
+    private final ReentrantReadWriteLock updateLock = new ReentrantReadWriteLock();
+    // Изменения с начала снимка текущей пересборки; null, пока пересборки нет
+    private volatile Recording recording;
+    private final ThreadLocal<IntCounts> counts = ThreadLocal.withInitial(IntCounts::new);
+
+    public void likeAdded(long filmId, long userId) {
+        int film = toIndex(filmId);
+        updateLock.readLock().lock();
+        try {
+            userLikes.compute(userId, (id, films) -> {
+                int[] liked = films != null ? films : NO_FILMS;
+                int position = Arrays.binarySearch(liked, film);
+                if (position >= 0) {
+                    return liked;
+                }
+                changed(userId, film, liked, 1);
+                return inserted(liked, -position - 1, film);
+            });
+        } finally {
+            updateLock.readLock().unlock();
+        }
+        if (updatesSinceRebuild.incrementAndGet() >= REBUILD_AFTER_UPDATES) {
+            scheduleRebuild();
+        }
+    }
+
+    public void likeRemoved(long filmId, long userId) {
+        int film = toIndex(filmId);
+        updateLock.readLock().lock();
+        try {
+            userLikes.computeIfPresent(userId, (id, liked) -> {
+                int position = Arrays.binarySearch(liked, film);
+                if (position < 0) {
+                    return liked;
+                }
+                changed(userId, film, liked, -1);
+                return liked.length == 1 ? null : removed(liked, position);
+            });
+        } finally {
+            updateLock.readLock().unlock();
+        }
+        if (updatesSinceRebuild.incrementAndGet() >= REBUILD_AFTER_UPDATES) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * Лайк из массовой загрузки: запоминается только у пользователя, соседей пересчитает фоновая пересборка —
+     * она обходится дешевле, чем приближённое обновление на каждый лайк пачки.
+     */
+    public void likeLoaded(long filmId, long userId) {
+        int film = toIndex(filmId);
+        neighbors.computeIfAbsent(film, id -> new Neighbors());
+        userLikes.compute(userId, (id, films) -> {
+            int[] liked = films != null ? films : NO_FILMS;
+            int position = Arrays.binarySearch(liked, film);
+            return position >= 0 ? liked : inserted(liked, -position - 1, film);
+        });
+    }
+
+    public void loadFinished() {
+        scheduleRebuild();
+    }
+
+    public void filmDeleted(long filmId, long[] userIds) {
+        int film = toIndex(filmId);
+        updateLock.readLock().lock();
+        try {
+            neighbors.remove(film);
+            Recording current = recording;
+            if (current != null) {
+                current.updates().add(new Update(film, null, 0));
+            }
+            for (long userId : userIds) {
+                userLikes.computeIfPresent(userId, (id, liked) -> {
+                    int position = Arrays.binarySearch(liked, film);
+                    if (position < 0) {
+                        return liked;
+                    }
+                    return liked.length == 1 ? null : removed(liked, position);
+                });
+            }
+        } finally {
+            updateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Не больше count фильмов по убыванию суммы совместных лайков с фильмами пользователя,
+     * при равенстве — по возрастанию id.
+     */
+    public List<Long> recommend(long userId, int count) {
+        int[] liked = userLikes.getOrDefault(userId, NO_FILMS);
+        Map<Integer, Neighbors> current = neighbors;
+        Map<Integer, Long> scores = new HashMap<>();
+        for (int film : liked) {
+            Neighbors filmNeighbors = current.get(film);
+            if (filmNeighbors == null) {
+                continue;
+            }
+            filmNeighbors.forEach((other, together) -> {
+                if (Arrays.binarySearch(liked, other) < 0 && current.containsKey(other)) {
+                    scores.merge(other, (long) together, Long::sum);
+                }
+            });
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed()
+                        .thenComparing(entry -> Integer.toUnsignedLong(entry.getKey())))
+                .limit(count)
+                .map(entry -> Integer.toUnsignedLong(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Точный пересчёт соседей всех фильмов, параллельно по фильмам. Пока он идёт, рекомендации
+     * выдаются по прежним соседям, а лайки обновляют их и записываются, чтобы попасть и в новых соседей.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            // Флаг снимается только здесь: пока пересборка ждёт блокировку или идёт, новые запросы не ставят
+            // в пул ещё задач, а изменения после этой точки учтёт следующая пересборка
+            rebuildScheduled.set(false);
+            long started = System.nanoTime();
+            updatesSinceRebuild.set(0);
+            Recording current = new Recording(new ConcurrentHashMap<>(), new ConcurrentLinkedQueue<>());
+            updateLock.writeLock().lock();
+            try {
+                recording = current;
+            } finally {
+                updateLock.writeLock().unlock();
+            }
+            // Пользователь, изменившийся раньше, чем до него дошёл обход, уже оставил в снимке прежние лайки
+            Map<Long, int[]> snapshot = current.userLikes();
+            userLikes.forEach(snapshot::putIfAbsent);
+            List<FilmLikers> films = likersOf(snapshot);
+            Map<Integer, Neighbors> rebuilt = new ConcurrentHashMap<>(films.size() * 2);
+            films.parallelStream().forEach(film -> rebuilt.put(film.film(), neighborsOf(film, snapshot)));
+            updateLock.writeLock().lock();
+            try {
+                for (Update update : current.updates()) {
+                    if (update.liked() == null) {
+                        rebuilt.remove(update.film());
+                    } else {
+                        apply(rebuilt, update.film(), update.liked(), update.delta());
+                    }
+                }
+                neighbors = rebuilt;
+                recording = null;
+            } finally {
+                updateLock.writeLock().unlock();
+            }
+            log.info("Соседи {} фильмов для рекомендаций пересчитаны за {} мс", films.size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(this::rebuild);
+        }
+    }
+
+    // Вызывается внутри compute по пользователю, так что изменения одного пользователя записываются по порядку
+    private void changed(long userId, int film, int[] liked, int delta) {
+        apply(neighbors, film, liked, delta);
+        Recording current = recording;
+        if (current != null) {
+            current.userLikes().putIfAbsent(userId, liked);
+            current.updates().add(new Update(film, liked, delta));
+        }
+    }
+
+    // Лайк фильма пользователем с фильмами liked (до изменения) меняет счётчик каждой пары на delta
+    private static void apply(Map<Integer, Neighbors> target, int film, int[] liked, int delta) {
+        Neighbors filmNeighbors = delta > 0
+                ? target.computeIfAbsent(film, id -> new Neighbors())
+                : target.get(film);
+        for (int other : liked) {
+            if (other == film) {
+                continue;
+            }
+            if (filmNeighbors != null) {
+                filmNeighbors.add(other, delta);
+            }
+            Neighbors otherNeighbors = target.get(other);
+            if (otherNeighbors != null) {
+                otherNeighbors.add(film, delta);
+            }
+        }
+    }
+
+    // Лайкнувшие каждый фильм по снимку: сначала размеры, затем заполнение
+    private static List<FilmLikers> likersOf(Map<Long, int[]> snapshot) {
+        Map<Integer, int[]> sizes = new HashMap<>();
+        snapshot.values().forEach(liked -> {
+            for (int film : liked) {
+                sizes.computeIfAbsent(film, id -> new int[1])[0]++;
+            }
+        });
+        Map<Integer, long[]> likers = new HashMap<>(sizes.size() * 2);
+        sizes.forEach((film, size) -> likers.put(film, new long[size[0]]));
+        snapshot.forEach((userId, liked) -> {
+            for (int film : liked) {
+                likers.get(film)[--sizes.get(film)[0]] = userId;
+            }
+        });
+        List<FilmLikers> films = new ArrayList<>(likers.size());
+        likers.forEach((film, userIds) -> films.add(new FilmLikers(film, userIds)));
+        return films;
+    }
+
+    private Neighbors neighborsOf(FilmLikers film, Map<Long, int[]> snapshot) {
+        IntCounts together = counts.get();
+        for (long userId : film.userIds()) {
+            for (int other : snapshot.get(userId)) {
+                if (other != film.film()) {
+                    together.increment(other);
+                }
+            }
+        }
+        Neighbors result = together.top(NEIGHBORS);
+        together.clear();
+        return result;
+    }
+
+    private static int[] inserted(int[] films, int position, int film) {
+        int[] result = new int[films.length + 1];
+        System.arraycopy(films, 0, result, 0, position);
+        result[position] = film;
+        System.arraycopy(films, position, result, position + 1, films.length - position);
+        return result;
+    }
+
+    private static int[] removed(int[] films, int position) {
+        int[] result = new int[films.length - 1];
+        System.arraycopy(films, 0, result, 0, position);
+        System.arraycopy(films, position + 1, result, position, films.length - position - 1);
+        return result;
+    }
+
+    private static int toIndex(long filmId) {
+        if (filmId < 0 || filmId > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Некорректный id фильма: " + filmId);
+        }
+        return (int) filmId;
+    }
+
+    private record FilmLikers(int film, long[] userIds) {
+    }
+
+    // Снимок лайков пользователей и изменения после него, в порядке применения
+    private record Recording(Map<Long, int[]> userLikes, Queue<Update> updates) {
+    }
+
+    // Лайк (delta = 1) или снятие лайка (delta = -1) пользователем с фильмами liked; liked == null — удаление фильма
+    private record Update(int film, int[] liked, int delta) {
+    }
+
+    interface NeighborConsumer {
+        void accept(int film, int together);
+    }
+
+    /**
+     * Соседи фильма: не больше {@value #NEIGHBORS} пар «фильм — число общих лайкнувших».
+     */
+    static final class Neighbors {
+        private int[] films = new int[4];
+        private int[] counts = new int[4];
+        private int size;
+
+        synchronized void add(int film, int delta) {
+            for (int i = 0; i < size; i++) {
+                if (films[i] == film) {
+                    counts[i] += delta;
+                    if (counts[i] <= 0) {
+                        size--;
+                        films[i] = films[size];
+                        counts[i] = counts[size];
+                    }
+                    return;
+                }
+            }
+            if (delta <= 0) {
+                return;
+            }
+            if (size < NEIGHBORS) {
+                if (size == films.length) {
+                    films = Arrays.copyOf(films, Math.min(NEIGHBORS, size * 2));
+                    counts = Arrays.copyOf(counts, films.length);
+                }
+                films[size] = film;
+                counts[size] = delta;
+                size++;
+                return;
+            }
+            int rarest = 0;
+            for (int i = 1; i < size; i++) {
+                if (counts[i] < counts[rarest]) {
+                    rarest = i;
+                }
+            }
+            films[rarest] = film;
+            counts[rarest] += delta;
+        }
+
+        synchronized void forEach(NeighborConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(films[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Счётчики совместных лайков одного фильма при пересборке: открытая адресация без упаковки,
+     * один экземпляр на поток переиспользуется от фильма к фильму.
+     */
+    static final class IntCounts {
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024];
+        private int[] used = new int[1024];
+        private int size;
+
+        void increment(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (values[slot] != 0) {
+                if (keys[slot] == key) {
+                    values[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = 1;
+            used[size++] = slot;
+            if (size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        Neighbors top(int limit) {
+            // Пара упакована в long так, что больше значение — выше место: счётчик, затем меньший id
+            PriorityQueue<Long> best = new PriorityQueue<>(limit + 1);
+            for (int i = 0; i < size; i++) {
+                int slot = used[i];
+                long packed = ((long) values[slot] << 32) | (0xFFFFFFFFL - Integer.toUnsignedLong(keys[slot]));
+                if (best.size() < limit) {
+                    best.add(packed);
+                } else if (packed > best.peek()) {
+                    best.poll();
+                    best.add(packed);
+                }
+            }
+            Neighbors result = new Neighbors();
+            for (Long packed : best) {
+                result.add((int) (0xFFFFFFFFL - (packed & 0xFFFFFFFFL)), (int) (packed >>> 32));
+            }
+            return result;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                values[used[i]] = 0;
+            }
+            size = 0;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            int[] oldUsed = used;
+            int oldSize = size;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            used = new int[oldUsed.length * 2];
+            size = 0;
+            for (int i = 0; i < oldSize; i++) {
+                int slot = oldUsed[i];
+                int mask = keys.length - 1;
+                int target = mix(oldKeys[slot]) & mask;
+                while (values[target] != 0) {
+                    target = (target + 1) & mask;
+                }
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+                used[size++] = target;
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Фильмы в тренде — по числу лайков за последний час, день и неделю. Для каждого периода хранится кольцо
+ * корзин (фильм → лайки за время корзины) и рейтинг по сумме корзин окна. Лайк попадает в корзину своего времени
+ * и сразу в рейтинг, а при повороте устаревшая корзина вычитается из рейтинга и очищается. Корзины и рейтинг
+ * занимают память по числу фильмов с лайками в окне; запрос читает первые count элементов рейтинга.
+ * <p>
+ * Для лайков, которые ещё в каком-то окне, хранится минута лайка (фильм → пользователь → минута от эпохи;
+ * корзины всех окон — целое число минут, так что корзина по минуте та же), поэтому снятый лайк
+ * вычитается из своей корзины — как в JdbcLikeStorage, где тренды считаются только по существующим лайкам.
+ * Это уже память по числу лайков за самое длинное окно (неделю): слот {@link LongIntHashMap} — 12 байт,
+ * с учётом заполнения таблицы 16–32 байта на лайк. Время, вышедшее из всех окон, удаляется при повороте.
+ * Лайки без времени (загруженные пачкой) в тренды не попадают и при снятии их не меняют.
+ * <p>
+ * Поворот вызывается по расписанию и не блокирует запись: корзина и рейтинг фильма меняются вместе
+ * внутри compute по этому фильму.
+ */
+public class FilmTrendingIndex {
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private final Clock clock;
+    private final Map<TrendingPeriod, Window> windows = new EnumMap<>(TrendingPeriod.class);
+    private final Map<Long, LongIntHashMap> likeTimes = new ConcurrentHashMap<>();
+    // Время последнего поворота: корзины всех окон сдвинуты как минимум до него
+    private volatile long rotatedTo;
+    private volatile int prunedBelow;
+
+    public FilmTrendingIndex(Clock clock) {
+        this.clock = clock;
+        long now = clock.millis();
+        for (TrendingPeriod period : TrendingPeriod.values()) {
+            windows.put(period, new Window(period, now));
+        }
+        this.rotatedTo = now;
+    }
+
+    /**
+     * Лайк пользователя userId в момент likedAt (мс от эпохи). Лайки старше окна не учитываются, лайки
+     * «из будущего» и пришедшие до поворота на свою корзину попадают в текущую корзину.
+     */
+    public void likeAdded(long filmId, long userId, long likedAt) {
+        // Запоминаем время той корзины, куда лайк попал на самом деле: снятие должно вычесть его оттуда же
+        long countedAt = Math.min(likedAt, rotatedTo);
+        if (countedAt < oldestBucketStart()) {
+            return;
+        }
+        likeTimes.compute(filmId, (id, times) -> {
+            LongIntHashMap updated = times != null ? times : new LongIntHashMap();
+            updated.put(userId, (int) (countedAt / MINUTE_MILLIS));
+            return updated;
+        });
+        for (Window window : windows.values()) {
+            window.add(filmId, window.bucketOf(countedAt), 1);
+        }
+    }
+
+    /**
+     * Снятие лайка: если его время ещё хранится, лайк вычитается из своих корзин.
+     */
+    public void likeRemoved(long filmId, long userId) {
+        int[] minute = {LongIntHashMap.NO_VALUE};
+        likeTimes.computeIfPresent(filmId, (id, times) -> {
+            minute[0] = times.remove(userId);
+            return times.size() > 0 ? times : null;
+        });
+        if (minute[0] == LongIntHashMap.NO_VALUE) {
+            return;
+        }
+        for (Window window : windows.values()) {
+            window.add(filmId, window.bucketOf(minute[0] * MINUTE_MILLIS), -1);
+        }
+    }
+
+    public void filmDeleted(long filmId) {
+        likeTimes.remove(filmId);
+        for (Window window : windows.values()) {
+            window.delete(filmId);
+        }
+    }
+
+    public List<Long> top(TrendingPeriod period, int count) {
+        return windows.get(period).ranking.top(count);
+    }
+
+    /**
+     * Сдвигает окна к текущему времени; если корзина не закончилась, ничего не делает.
+     */
+    public void rotate() {
+        long now = clock.millis();
+        for (Window window : windows.values()) {
+            window.rotate(now);
+        }
+        rotatedTo = Math.max(rotatedTo, now);
+        pruneLikeTimes();
+    }
+
+    /**
+     * Обходит хранимое время лайков (мс от эпохи, с точностью до минуты) — для снимка; массивы каждого фильма
+     * копируются внутри compute по нему.
+     */
+    public void forEachLikeTimes(LikeTimesConsumer consumer) {
+        for (Long filmId : likeTimes.keySet()) {
+            long[][] copy = new long[2][];
+            likeTimes.computeIfPresent(filmId, (id, times) -> {
+                long[] userIds = new long[times.size()];
+                long[] likedAt = new long[times.size()];
+                int[] next = new int[1];
+                times.forEach((userId, minute) -> {
+                    userIds[next[0]] = userId;
+                    likedAt[next[0]++] = minute * MINUTE_MILLIS;
+                });
+                copy[0] = userIds;
+                copy[1] = likedAt;
+                return times;
+            });
+            if (copy[0] != null) {
+                consumer.accept(filmId, copy[0], copy[1]);
+            }
+        }
+    }
+
+    /**
+     * Восстанавливает корзину из снимка старого формата, где вместо времени лайков хранились корзины;
+     * корзины, успевшие устареть, пропускаются.
+     */
+    public void restoreBucket(TrendingPeriod period, long bucket, long[] filmIds, int[] counts) {
+        Window window = windows.get(period);
+        for (int i = 0; i < filmIds.length; i++) {
+            window.add(filmIds[i], bucket, counts[i]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface LikeTimesConsumer {
+        void accept(long filmId, long[] userIds, long[] likedAt);
+    }
+
+    // Начало самой старой корзины среди всех окон: лайки раньше него ни в одно окно не попадают
+    private long oldestBucketStart() {
+        long start = Long.MAX_VALUE;
+        for (Window window : windows.values()) {
+            start = Math.min(start, window.oldestBucketStart());
+        }
+        return start;
+    }
+
+    private void pruneLikeTimes() {
+        int bound = (int) (oldestBucketStart() / MINUTE_MILLIS);
+        if (bound <= prunedBelow) {
+            return;
+        }
+        prunedBelow = bound;
+        for (Long filmId : likeTimes.keySet()) {
+            likeTimes.computeIfPresent(filmId, (id, times) -> {
+                times.removeValuesBelow(bound);
+                return times.size() > 0 ? times : null;
+            });
+        }
+    }
+
+    private static final class Window {
+        private final long bucketMillis;
+        private final List<Map<Long, Integer>> ring;
+        private final FilmPopularityIndex ranking = new FilmPopularityIndex();
+        // Номер текущей корзины от эпохи; в кольце она лежит в слоте current % ring.size()
+        private volatile long current;
+
+        Window(TrendingPeriod period, long now) {
+            this.bucketMillis = period.getBucketLength().toMillis();
+            this.ring = new ArrayList<>(period.getBuckets());
+            for (int i = 0; i < period.getBuckets(); i++) {
+                ring.add(new ConcurrentHashMap<>());
+            }
+            this.current = bucketOf(now);
+        }
+
+        long bucketOf(long time) {
+            return Math.floorDiv(time, bucketMillis);
+        }
+
+        long oldestBucketStart() {
+            return (current - ring.size() + 1) * bucketMillis;
+        }
+
+        void add(long filmId, long bucket, int count) {
+            long newest = current;
+            if (bucket <= newest - ring.size()) {
+                return;
+            }
+            ring.get(slot(Math.min(bucket, newest))).compute(filmId, (id, likes) -> {
+                int old = likes != null ? likes : 0;
+                // Снятие лайка из корзины, которую поворот уже вычел из рейтинга, ничего не меняет
+                int delta = Math.max(count, -old);
+                if (delta != 0) {
+                    ranking.add(id, delta);
+                }
+                return old + delta > 0 ? old + delta : null;
+            });
+        }
+
+        void delete(long filmId) {
+            for (Map<Long, Integer> bucket : ring) {
+                bucket.remove(filmId);
+            }
+            // Корзина, которую поворот успел вычесть до удаления, уже не в рейтинге; лишнее вычитание безвредно
+            ranking.remove(filmId);
+        }
+
+        void rotate(long now) {
+            long target = bucketOf(now);
+            // После долгого простоя устарели все корзины — хватает одного оборота кольца
+            long next = Math.max(current, target - ring.size());
+            while (next < target) {
+                next++;
+                // Слот новой корзины занят самой старой корзиной окна: сначала вычитаем её из рейтинга
+                Map<Long, Integer> expired = ring.get(slot(next));
+                for (Long filmId : expired.keySet()) {
+                    expired.computeIfPresent(filmId, (id, likes) -> {
+                        ranking.add(id, -likes);
+                        return null;
+                    });
+                }
+                current = next;
+            }
+        }
+
+        private int slot(long bucket) {
+            return (int) Math.floorMod(bucket, (long) ring.size());
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.persistence.Journal;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryLikeStorage implements LikeStorage {
+    // Корзины самого короткого периода длятся минуты, поворот с таким шагом запаздывает не больше чем на 10 с
+    private static final long TRENDING_ROTATION_SECONDS = 10;
+
+    // Лайкнувшие хранятся в примитивных множествах, блокировка берётся на множество конкретного фильма
+    private final Map<Long, LongHashSet> likes = new ConcurrentHashMap<>();
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    private final FilmRecommendationIndex recommendationIndex = new FilmRecommendationIndex();
+    private final FilmTrendingIndex trendingIndex;
+    private final Clock clock;
+    private final AtomicLong totalLikes = new AtomicLong();
+    private final List<LikesListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Journal journal = Journal.NONE;
+    private ScheduledExecutorService trendingRotation;
+
+    @Autowired
+    public InMemoryLikeStorage() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryLikeStorage(Clock clock) {
+        this.clock = clock;
+        this.trendingIndex = new FilmTrendingIndex(clock);
+    }
+
+    @PostConstruct
+    public void startTrendingRotation() {
+        trendingRotation = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        trendingRotation.scheduleWithFixedDelay(this::scheduledRotation, TRENDING_ROTATION_SECONDS,
+                TRENDING_ROTATION_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopTrendingRotation() {
+        if (trendingRotation != null) {
+            trendingRotation.shutdownNow();
+        }
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return addLike(filmId, userId, clock.millis());
+    }
+
+    /**
+     * Лайк, поставленный в момент likedAt (мс от эпохи): так лайки из журнала попадают в тренды своего времени.
+     */
+    public boolean addLike(Long filmId, Long userId, long likedAt) {
+        int count;
+        while (true) {
+            LongHashSet users = likes.computeIfAbsent(filmId, id -> new LongHashSet());
+            synchronized (users) {
+                if (detached(filmId, users)) {
+                    continue;
+                }
+                if (users.contains(userId)) {
+                    return false;
+                }
+                // Журнал пишется первым и под той же блокировкой: порядок записей совпадает с порядком применения,
+                // а при сбое журнала лайк не появится в памяти
+                journal.likeAdded(filmId, userId, likedAt);
+                users.add(userId);
+                popularityIndex.increment(filmId);
+                recommendationIndex.likeAdded(filmId, userId);
+                trendingIndex.likeAdded(filmId, userId, likedAt);
+                totalLikes.incrementAndGet();
+                count = users.size();
+            }
+            break;
+        }
+        notifyListeners(filmId, count);
+        journal.commit();
+        return true;
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        int count;
+        while (true) {
+            LongHashSet users = likes.get(filmId);
+            if (users == null) {
+                return false;
+            }
+            synchronized (users) {
+                if (detached(filmId, users)) {
+                    continue;
+                }
+                if (!users.contains(userId)) {
+                    return false;
+                }
+                journal.likeRemoved(filmId, userId);
+                users.remove(userId);
+                popularityIndex.decrement(filmId);
+                recommendationIndex.likeRemoved(filmId, userId);
+                trendingIndex.likeRemoved(filmId, userId);
+                totalLikes.decrementAndGet();
+                count = users.size();
+            }
+            break;
+        }
+        notifyListeners(filmId, count);
+        journal.commit();
+        return true;
+    }
+
+    /**
+     * Массовая загрузка прошлых лайков: время лайков неизвестно, поэтому в тренды они не попадают.
+     * Соседей для рекомендаций пачка не трогает, их пересчитывает {@link #likesLoaded()} после всей загрузки.
+     */
+    @Override
+    public void addLikes(Collection<Like> batch) {
+        // Группировка по фильму: блокировка каждого множества берётся один раз на пачку
+        Map<Long, List<Long>> byFilm = new HashMap<>();
+        for (Like like : batch) {
+            byFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>()).add(like.getUserId());
+        }
+        byFilm.forEach((filmId, userIds) -> {
+            while (true) {
+                LongHashSet users = likes.computeIfAbsent(filmId, id -> new LongHashSet());
+                if (addLoadedLikes(filmId, users, userIds)) {
+                    return;
+                }
+            }
+        });
+        journal.commit();
+    }
+
+    // false — множество уже убрано из карты удалением фильма, и пачку нужно повторить на новом
+    private boolean addLoadedLikes(Long filmId, LongHashSet users, List<Long> userIds) {
+        synchronized (users) {
+            if (detached(filmId, users)) {
+                return false;
+            }
+            int added = 0;
+            try {
+                for (Long userId : userIds) {
+                    if (!users.contains(userId)) {
+                        journal.likeAdded(filmId, userId, Journal.UNKNOWN_TIME);
+                        users.add(userId);
+                        recommendationIndex.likeLoaded(filmId, userId);
+                        added++;
+                    }
+                }
+            } finally {
+                // При сбое журнала счётчики догоняют уже применённую часть пачки
+                if (added > 0) {
+                    popularityIndex.add(filmId, added);
+                    totalLikes.addAndGet(added);
+                    notifyListeners(filmId, users.size());
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void likesLoaded() {
+        recommendationIndex.loadFinished();
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeMutation> mutations) {
+        // Группировка по фильму с сохранением порядка операций внутри фильма: блокировка множества берётся
+        // один раз на пачку, рейтинг меняется один раз на сумму операций
+        Map<Long, List<Integer>> byFilm = new LinkedHashMap<>();
+        for (int i = 0; i < mutations.size(); i++) {
+            byFilm.computeIfAbsent(mutations.get(i).getFilmId(), id -> new ArrayList<>()).add(i);
+        }
+        boolean[] changed = new boolean[mutations.size()];
+        long now = clock.millis();
+        byFilm.forEach((filmId, positions) -> {
+            boolean adds = positions.stream().anyMatch(i -> mutations.get(i).getType() == MutationType.ADD);
+            while (true) {
+                LongHashSet users = adds ? likes.computeIfAbsent(filmId, id -> new LongHashSet()) : likes.get(filmId);
+                if (users == null || applyFilmLikes(filmId, users, mutations, positions, changed, now)) {
+                    return;
+                }
+            }
+        });
+        journal.commit();
+        return changed;
+    }
+
+    // false — множество уже убрано из карты удалением фильма, и операции нужно повторить на новом
+    private boolean applyFilmLikes(Long filmId, LongHashSet users, List<LikeMutation> mutations,
+                                   List<Integer> positions, boolean[] changed, long now) {
+        synchronized (users) {
+            if (detached(filmId, users)) {
+                return false;
+            }
+            int delta = 0;
+            try {
+                for (int i : positions) {
+                    Long userId = mutations.get(i).getUserId();
+                    if (mutations.get(i).getType() == MutationType.ADD) {
+                        if (!users.contains(userId)) {
+                            journal.likeAdded(filmId, userId, now);
+                            users.add(userId);
+                            recommendationIndex.likeAdded(filmId, userId);
+                            trendingIndex.likeAdded(filmId, userId, now);
+                            changed[i] = true;
+                            delta++;
+                        }
+                    } else if (users.contains(userId)) {
+                        journal.likeRemoved(filmId, userId);
+                        users.remove(userId);
+                        recommendationIndex.likeRemoved(filmId, userId);
+                        trendingIndex.likeRemoved(filmId, userId);
+                        changed[i] = true;
+                        delta--;
+                    }
+                }
+            } finally {
+                if (delta != 0) {
+                    popularityIndex.add(filmId, delta);
+                    totalLikes.addAndGet(delta);
+                    notifyListeners(filmId, users.size());
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean hasLike(Long filmId, Long userId) {
+        LongHashSet users = likes.get(filmId);
+        if (users == null) {
+            return false;
+        }
+        synchronized (users) {
+            return users.contains(userId);
+        }
+    }
+
+    @Override
+    public int getLikesCount(Long filmId) {
+        LongHashSet users = likes.get(filmId);
+        return users != null ? users.size() : 0;
+    }
+
+    @Override
+    public long getTotalLikesCount() {
+        return totalLikes.get();
+    }
+
+    @Override
+    public List<Long> getPopularFilmIds(int count) {
+        return popularityIndex.top(count);
+    }
+
+    @Override
+    public List<Long> getRecommendedFilmIds(Long userId, int count) {
+        return recommendationIndex.recommend(userId, count);
+    }
+
+    @Override
+    public List<Long> getTrendingFilmIds(TrendingPeriod period, int count) {
+        return trendingIndex.top(period, count);
+    }
+
+    /**
+     * Сдвигает окна трендов к текущему времени; обычно это делает планировщик.
+     */
+    public void rotateTrending() {
+        trendingIndex.rotate();
+    }
+
+    public void forEachTrendingLikeTimes(FilmTrendingIndex.LikeTimesConsumer consumer) {
+        trendingIndex.forEachLikeTimes(consumer);
+    }
+
+    /**
+     * Восстанавливает время лайков для трендов из снимка; лайки, которых уже нет, пропускаются.
+     */
+    public void restoreTrendingLikeTimes(long filmId, long[] userIds, long[] likedAt) {
+        LongHashSet users = likes.get(filmId);
+        if (users == null) {
+            return;
+        }
+        synchronized (users) {
+            if (detached(filmId, users)) {
+                return;
+            }
+            for (int i = 0; i < userIds.length; i++) {
+                if (users.contains(userIds[i])) {
+                    trendingIndex.likeAdded(filmId, userIds[i], likedAt[i]);
+                }
+            }
+        }
+    }
+
+    public void restoreTrendingBucket(TrendingPeriod period, long bucket, long[] filmIds, int[] counts) {
+        trendingIndex.restoreBucket(period, bucket, filmIds, counts);
+    }
+
+    /**
+     * Точный пересчёт соседей для рекомендаций; обычно он идёт в фоне сам.
+     */
+    public void rebuildRecommendations() {
+        recommendationIndex.rebuild();
+    }
+
+    @Override
+    public void deleteFilm(Long filmId) {
+        LongHashSet users = likes.get(filmId);
+        if (users == null) {
+            return;
+        }
+        synchronized (users) {
+            journal.filmLikesDeleted(filmId);
+            likes.remove(filmId, users);
+            popularityIndex.remove(filmId);
+            recommendationIndex.filmDeleted(filmId, users.toArray());
+            trendingIndex.filmDeleted(filmId);
+            totalLikes.addAndGet(-users.size());
+        }
+        notifyListeners(filmId, 0);
+        journal.commit();
+    }
+
+    @Override
+    public void addLikesListener(LikesListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Обходит лайки всех фильмов; множество каждого фильма копируется под его блокировкой.
+     */
+    public void forEachFilmLikes(BiConsumer<Long, long[]> consumer) {
+        likes.forEach((filmId, users) -> {
+            long[] userIds;
+            synchronized (users) {
+                userIds = users.toArray();
+            }
+            if (userIds.length > 0) {
+                consumer.accept(filmId, userIds);
+            }
+        });
+    }
+
+    /**
+     * Множество фильма берётся из карты до его блокировки, а deleteFilm убирает его из карты под ней же.
+     * Если после входа в блокировку в карте уже другое множество (или никакого), это удалено вместе с фильмом:
+     * писать в него нельзя, операцию нужно повторить на актуальном.
+     */
+    private boolean detached(Long filmId, LongHashSet users) {
+        return likes.get(filmId) != users;
+    }
+
+    // Вызывается до фиксации журнала: читатель, увидевший новый рейтинг, не должен получить старый ответ из кэша
+    private void notifyListeners(long filmId, int count) {
+        for (LikesListener listener : listeners) {
+            listener.likesChanged(filmId, count);
+        }
+    }
+
+    private void scheduledRotation() {
+        try {
+            trendingIndex.rotate();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сдвинуть окна трендов", e);
+        }
+    }
+}
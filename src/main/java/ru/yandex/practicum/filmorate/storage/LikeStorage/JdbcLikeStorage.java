@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcLikeStorage implements LikeStorage {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String MERGE_LIKE = "MERGE INTO likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)";
+    private static final String DELETE_LIKE = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<LikesListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public JdbcLikeStorage(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        // MERGE атомарен при одновременных одинаковых запросах; OLD TABLE пуста, только если лайка ещё не было
+        boolean added = Integer.valueOf(0).equals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OLD TABLE ("
+                + MERGE_LIKE + ")",
+                Integer.class, filmId, userId));
+        if (added) {
+            notifyListeners(filmId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        boolean removed = jdbcTemplate.update(DELETE_LIKE, filmId, userId) > 0;
+        if (removed) {
+            notifyListeners(filmId);
+        }
+        return removed;
+    }
+
+    @Override
+    public void addLikes(Collection<Like> likes) {
+        jdbcTemplate.batchUpdate(MERGE_LIKE, likes, BATCH_SIZE, (ps, like) -> {
+            ps.setLong(1, like.getFilmId());
+            ps.setLong(2, like.getUserId());
+        });
+        likes.stream().map(Like::getFilmId).distinct().forEach(this::notifyListeners);
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeMutation> mutations) {
+        // Добавление и снятие одного лайка могут идти в пачке подряд, поэтому порядок важнее пакетной отправки
+        boolean[] changed = new boolean[mutations.size()];
+        for (int i = 0; i < changed.length; i++) {
+            LikeMutation mutation = mutations.get(i);
+            changed[i] = mutation.getType() == MutationType.ADD
+                    ? addLike(mutation.getFilmId(), mutation.getUserId())
+                    : removeLike(mutation.getFilmId(), mutation.getUserId());
+        }
+        return changed;
+    }
+
+    @Override
+    public void writeLikes(List<LikeMutation> mutations) {
+        // Пары в пачке не повторяются, так что добавления и снятия можно отправить двумя пакетами в одной транзакции
+        Map<Boolean, List<LikeMutation>> byType = mutations.stream()
+                .collect(Collectors.partitioningBy(mutation -> mutation.getType() == MutationType.ADD));
+        transactionTemplate.executeWithoutResult(status -> {
+            batchUpdate(MERGE_LIKE, byType.get(true));
+            batchUpdate(DELETE_LIKE, byType.get(false));
+        });
+        mutations.stream().map(LikeMutation::getFilmId).distinct().forEach(this::notifyListeners);
+    }
+
+    @Override
+    public boolean hasLike(Long filmId, Long userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)",
+                Boolean.class, filmId, userId));
+    }
+
+    @Override
+    public int getLikesCount(Long filmId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM likes WHERE film_id = ?", Integer.class, filmId);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public long getTotalLikesCount() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public List<Long> getPopularFilmIds(int count) {
+        return jdbcTemplate.queryForList("SELECT f.id FROM films f "
+                + "LEFT JOIN likes l ON l.film_id = f.id "
+                + "GROUP BY f.id "
+                + "ORDER BY COUNT(l.user_id) DESC, f.id "
+                + "LIMIT ?", Long.class, count);
+    }
+
+    @Override
+    public List<Long> getRecommendedFilmIds(Long userId, int count) {
+        return jdbcTemplate.queryForList("SELECT l3.film_id FROM likes l1 "
+                + "JOIN likes l2 ON l2.film_id = l1.film_id AND l2.user_id <> l1.user_id "
+                + "JOIN likes l3 ON l3.user_id = l2.user_id "
+                + "WHERE l1.user_id = ? "
+                + "AND NOT EXISTS (SELECT 1 FROM likes l4 WHERE l4.film_id = l3.film_id AND l4.user_id = ?) "
+                + "GROUP BY l3.film_id "
+                + "ORDER BY COUNT(*) DESC, l3.film_id "
+                + "LIMIT ?", Long.class, userId, userId, count);
+    }
+
+    @Override
+    public List<Long> getTrendingFilmIds(TrendingPeriod period, int count) {
+        return jdbcTemplate.queryForList("SELECT film_id FROM likes "
+                + "WHERE liked_at >= DATEADD(SECOND, -?, LOCALTIMESTAMP) "
+                + "GROUP BY film_id "
+                + "ORDER BY COUNT(*) DESC, film_id "
+                + "LIMIT ?", Long.class, period.getLength().toSeconds(), count);
+    }
+
+    @Override
+    public void deleteFilm(Long filmId) {
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", filmId);
+        notifyListeners(filmId);
+    }
+
+    @Override
+    public void addLikesListener(LikesListener listener) {
+        listeners.add(listener);
+    }
+
+    private void batchUpdate(String sql, List<LikeMutation> mutations) {
+        jdbcTemplate.batchUpdate(sql, mutations, BATCH_SIZE, (ps, mutation) -> {
+            ps.setLong(1, mutation.getFilmId());
+            ps.setLong(2, mutation.getUserId());
+        });
+    }
+
+    // Новое число лайков здесь не посчитано, а лишний COUNT на каждый лайк дороже, чем осторожность слушателя
+    private void notifyListeners(long filmId) {
+        for (LikesListener listener : listeners) {
+            listener.likesChanged(filmId, LikesListener.UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface LikeStorage {
+    boolean addLike(Long filmId, Long userId);
+
+    boolean removeLike(Long filmId, Long userId);
+
+    void addLikes(Collection<Like> likes);
+
+    /**
+     * Массовая загрузка (несколько вызовов addLikes подряд) закончилась: хранилище может пересчитать то,
+     * что не обновляло на каждую пачку.
+     */
+    default void likesLoaded() {
+    }
+
+    /**
+     * Применяет добавления и снятия лайков в порядке списка; для каждой операции возвращает,
+     * изменила ли она что-нибудь. Существование фильмов и пользователей проверяет вызывающий.
+     */
+    boolean[] applyLikes(List<LikeMutation> mutations);
+
+    /**
+     * Записывает пачку отложенной записи: на каждую пару фильм — пользователь в ней не больше одной операции,
+     * поэтому порядок не важен, а результат по операциям не нужен. По умолчанию — {@link #applyLikes}.
+     */
+    default void writeLikes(List<LikeMutation> mutations) {
+        applyLikes(mutations);
+    }
+
+    boolean hasLike(Long filmId, Long userId);
+
+    int getLikesCount(Long filmId);
+
+    long getTotalLikesCount();
+
+    List<Long> getPopularFilmIds(int count);
+
+    /**
+     * Фильмы, которые лайкают вместе с фильмами пользователя: не больше count ещё не лайкнутых им,
+     * по убыванию числа совместных лайков, при равенстве — по возрастанию id.
+     */
+    List<Long> getRecommendedFilmIds(Long userId, int count);
+
+    /**
+     * Фильмы с лайками за последний период: не больше count по убыванию числа лайков за период,
+     * при равенстве — по возрастанию id.
+     */
+    List<Long> getTrendingFilmIds(TrendingPeriod period, int count);
+
+    void deleteFilm(Long filmId);
+
+    /**
+     * Подписывает на изменения числа лайков: слушатель вызывается из потока, который изменил лайки,
+     * уже после обновления рейтинга популярных.
+     */
+    void addLikesListener(LikesListener listener);
+}
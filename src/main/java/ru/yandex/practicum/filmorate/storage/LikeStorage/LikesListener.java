@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+/**
+ * Получает изменения числа лайков фильмов после того, как они попали в рейтинг популярных.
+ */
+@FunctionalInterface
+public interface LikesListener {
+    // Хранилище не знает нового числа лайков без отдельного запроса
+    int UNKNOWN = -1;
+
+    void likesChanged(long filmId, int likes);
+}
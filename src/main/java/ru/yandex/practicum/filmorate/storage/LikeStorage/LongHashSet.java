@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+/**
+ * Множество примитивных long на открытой адресации (линейное пробирование).
+ * Не потокобезопасно — синхронизацию обеспечивает владелец.
+ */
+class LongHashSet {
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys;
+    private boolean containsEmptyKey;
+    private volatile int size;
+
+    LongHashSet() {
+        keys = new long[MIN_CAPACITY];
+    }
+
+    boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        // Заполнение не больше 3/4, иначе цепочки пробирования быстро растут
+        if (size * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                shiftKeys(slot, mask);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmptyKey;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsEmptyKey) {
+            result[i++] = EMPTY;
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    // Удаление без «надгробий»: сдвигаем назад элементы, которые иначе стали бы недостижимы
+    private void shiftKeys(int slot, int mask) {
+        int last = slot;
+        int current = (last + 1) & mask;
+        while (keys[current] != EMPTY) {
+            int home = slot(keys[current], mask);
+            boolean movable = last <= current
+                    ? last >= home || home > current
+                    : last >= home && home > current;
+            if (movable) {
+                keys[last] = keys[current];
+                last = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[last] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int slot = slot(key, mask);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+/**
+ * Отображение примитивных long в int на открытой адресации (линейное пробирование), устроено как
+ * {@link LongHashSet}. Отсутствие значения — {@link #NO_VALUE}. Не потокобезопасно — синхронизацию обеспечивает
+ * владелец.
+ */
+class LongIntHashMap {
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys;
+    private int[] values;
+    private boolean containsEmptyKey;
+    private int emptyKeyValue;
+    private int size;
+
+    LongIntHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                containsEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Удаляет ключ и возвращает его значение или {@link #NO_VALUE}, если ключа не было.
+     */
+    int remove(long key) {
+        if (key == EMPTY) {
+            if (!containsEmptyKey) {
+                return NO_VALUE;
+            }
+            containsEmptyKey = false;
+            size--;
+            return emptyKeyValue;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                int value = values[slot];
+                shiftKeys(slot, mask);
+                size--;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Удаляет все ключи со значением меньше bound; таблица пересобирается под оставшиеся ключи.
+     */
+    void removeValuesBelow(int bound) {
+        if (containsEmptyKey && emptyKeyValue < bound) {
+            containsEmptyKey = false;
+            size--;
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int kept = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && oldValues[i] >= bound) {
+                kept++;
+            }
+        }
+        if (kept == size - (containsEmptyKey ? 1 : 0)) {
+            return;
+        }
+        int capacity = MIN_CAPACITY;
+        while (kept * 4 > capacity * 3) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = containsEmptyKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && oldValues[i] >= bound) {
+                insert(oldKeys[i], oldValues[i]);
+                size++;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LongIntConsumer consumer) {
+        if (containsEmptyKey) {
+            consumer.accept(EMPTY, emptyKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+
+    // Удаление без «надгробий»: сдвигаем назад элементы, которые иначе стали бы недостижимы
+    private void shiftKeys(int slot, int mask) {
+        int last = slot;
+        int current = (last + 1) & mask;
+        while (keys[current] != EMPTY) {
+            int home = slot(keys[current], mask);
+            boolean movable = last <= current
+                    ? last >= home || home > current
+                    : last >= home && home > current;
+            if (movable) {
+                keys[last] = keys[current];
+                values[last] = values[current];
+                last = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[last] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // Вставка ключа, которого заведомо нет в таблице, без проверки заполнения
+    private void insert(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import org.springframework.context.SmartLifecycle;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.storage.WriteBehindQueue;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Отложенная запись лайков поверх любого {@link LikeStorage}: addLike и removeLike ставят изменение в очередь
+ * и сразу видны в hasLike и getLikesCount, а в хранилище пишутся пачками в фоне. Рейтинги (популярные, тренды,
+ * рекомендации) и общий счётчик читаются из хранилища и отстают на время до записи пачки.
+ * Пакетные операции и удаление фильма сначала записывают очередь, а затем идут в хранилище напрямую.
+ */
+public class WriteBehindLikeStorage implements LikeStorage, SmartLifecycle {
+    private final LikeStorage delegate;
+    private final WriteBehindQueue queue;
+
+    public WriteBehindLikeStorage(LikeStorage delegate, WriteBehindQueue.Settings settings) {
+        this.delegate = delegate;
+        this.queue = new WriteBehindQueue("likes", settings, delegate::hasLike, mutations ->
+                delegate.writeLikes(mutations.stream()
+                        .map(m -> new LikeMutation(m.type(), m.owner(), m.target()))
+                        .toList()));
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        return queue.submit(filmId, userId, MutationType.ADD);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        return queue.submit(filmId, userId, MutationType.REMOVE);
+    }
+
+    @Override
+    public void addLikes(Collection<Like> likes) {
+        queue.writeThrough(() -> {
+            delegate.addLikes(likes);
+            return null;
+        });
+    }
+
+    @Override
+    public void likesLoaded() {
+        delegate.likesLoaded();
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeMutation> mutations) {
+        return queue.writeThrough(() -> delegate.applyLikes(mutations));
+    }
+
+    @Override
+    public boolean hasLike(Long filmId, Long userId) {
+        MutationType queued = queue.queued(filmId, userId);
+        return queued != null ? queued == MutationType.ADD : delegate.hasLike(filmId, userId);
+    }
+
+    @Override
+    public int getLikesCount(Long filmId) {
+        return queue.count(filmId, () -> delegate.getLikesCount(filmId));
+    }
+
+    @Override
+    public long getTotalLikesCount() {
+        return delegate.getTotalLikesCount();
+    }
+
+    @Override
+    public List<Long> getPopularFilmIds(int count) {
+        return delegate.getPopularFilmIds(count);
+    }
+
+    @Override
+    public List<Long> getRecommendedFilmIds(Long userId, int count) {
+        return delegate.getRecommendedFilmIds(userId, count);
+    }
+
+    @Override
+    public List<Long> getTrendingFilmIds(TrendingPeriod period, int count) {
+        return delegate.getTrendingFilmIds(period, count);
+    }
+
+    @Override
+    public void deleteFilm(Long filmId) {
+        queue.writeThrough(() -> {
+            delegate.deleteFilm(filmId);
+            return null;
+        });
+    }
+
+    // Рейтинг популярных меняется при записи очереди, тогда же о лайках узнают и слушатели
+    @Override
+    public void addLikesListener(LikesListener listener) {
+        delegate.addLikesListener(listener);
+    }
+
+    /**
+     * Записывает в хранилище всё, что стоит в очереди.
+     */
+    public void flush() {
+        queue.flush();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public LikeStorage getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void start() {
+        queue.start();
+    }
+
+    @Override
+    public void stop() {
+        queue.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return queue.isRunning();
+    }
+
+    @Override
+    public int getPhase() {
+        return WriteBehindQueue.LIFECYCLE_PHASE;
+    }
+}
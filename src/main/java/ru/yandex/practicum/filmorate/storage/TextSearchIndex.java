@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс для поиска по словам: слово → битмап id документов. Находятся документы,
+ * содержащие все слова запроса; последнее слово может быть недописанным (поиск по мере ввода) и раскрывается
+ * в слова словаря с таким началом. Выше идут документы, у которых все слова нашлись в основном поле
+ * (название фильма, логин и имя пользователя), внутри группы — по возрастанию id.
+ * <p>
+ * Слова — непрерывные последовательности букв и цифр в нижнем регистре, «ё» не отличается от «е».
+ * Хранилище вызывает изменения под блокировкой записи документа и передаёт старый текст: индекс
+ * не хранит слов каждого документа.
+ */
+public class TextSearchIndex {
+    // Одна-две буквы раскрываются в тысячи слов; дальше первых по алфавиту не идём
+    private static final int MAX_PREFIX_TERMS = 1_024;
+
+    private final NavigableMap<String, RoaringBitmap> all = new TreeMap<>();
+    private final NavigableMap<String, RoaringBitmap> primary = new TreeMap<>();
+    private final RoaringBitmap indexed = new RoaringBitmap();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(long id, String primaryText, String secondaryText) {
+        lock.writeLock().lock();
+        try {
+            addUnlocked(toIndex(id), primaryText, secondaryText);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void update(long id, String oldPrimary, String oldSecondary, String newPrimary, String newSecondary) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(toIndex(id), oldPrimary, oldSecondary);
+            addUnlocked(toIndex(id), newPrimary, newSecondary);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id, String primaryText, String secondaryText) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(toIndex(id), primaryText, secondaryText);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return indexed.contains(toIndex(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> search(String query, int limit) {
+        List<String> words = tokens(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matched = match(all, words);
+            // Основное поле — часть полного текста, поэтому его совпадения уже лежат в matched
+            RoaringBitmap best = matched.isEmpty() ? matched : match(primary, words);
+            List<Long> result = new ArrayList<>(Math.min(limit, matched.getCardinality()));
+            collect(best, result, limit);
+            if (result.size() < limit) {
+                matched.andNot(best);
+                collect(matched, result, limit);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Слова текста в нижнем регистре; повторы не убираются.
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                char lower = Character.toLowerCase(c);
+                word.append(lower == 'ё' ? 'е' : lower);
+            } else if (!word.isEmpty()) {
+                tokens.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+        }
+        return tokens;
+    }
+
+    private void addUnlocked(int id, String primaryText, String secondaryText) {
+        for (String word : tokens(primaryText)) {
+            primary.computeIfAbsent(word, key -> new RoaringBitmap()).add(id);
+            all.computeIfAbsent(word, key -> new RoaringBitmap()).add(id);
+        }
+        for (String word : tokens(secondaryText)) {
+            all.computeIfAbsent(word, key -> new RoaringBitmap()).add(id);
+        }
+        indexed.add(id);
+    }
+
+    private void removeUnlocked(int id, String primaryText, String secondaryText) {
+        for (String word : tokens(primaryText)) {
+            removeFrom(primary, word, id);
+            removeFrom(all, word, id);
+        }
+        for (String word : tokens(secondaryText)) {
+            removeFrom(all, word, id);
+        }
+        indexed.remove(id);
+    }
+
+    private static void removeFrom(NavigableMap<String, RoaringBitmap> postings, String word, int id) {
+        RoaringBitmap ids = postings.get(word);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    private static RoaringBitmap match(NavigableMap<String, RoaringBitmap> postings, List<String> words) {
+        List<RoaringBitmap> required = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size() - 1; i++) {
+            RoaringBitmap ids = postings.get(words.get(i));
+            if (ids == null) {
+                return new RoaringBitmap();
+            }
+            required.add(ids);
+        }
+        // Пересекаем от самых редких слов: промежуточный результат сразу маленький
+        required.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+        RoaringBitmap result = required.isEmpty() ? null : required.get(0).clone();
+        for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+            result.and(required.get(i));
+        }
+        if (result != null && result.isEmpty()) {
+            return result;
+        }
+        RoaringBitmap prefixed = prefixed(postings, words.get(words.size() - 1));
+        if (result == null) {
+            return prefixed;
+        }
+        result.and(prefixed);
+        return result;
+    }
+
+    private static RoaringBitmap prefixed(NavigableMap<String, RoaringBitmap> postings, String prefix) {
+        List<RoaringBitmap> terms = new ArrayList<>();
+        for (RoaringBitmap ids : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            terms.add(ids);
+            if (terms.size() == MAX_PREFIX_TERMS) {
+                break;
+            }
+        }
+        // Результат дальше меняется, поэтому и единственный битмап словаря копируется
+        return switch (terms.size()) {
+            case 0 -> new RoaringBitmap();
+            case 1 -> terms.get(0).clone();
+            default -> FastAggregation.or(terms.iterator());
+        };
+    }
+
+    private static int toIndex(long id) {
+        if (id < 0 || id > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Некорректный id документа: " + id);
+        }
+        return (int) id;
+    }
+
+    private static void collect(RoaringBitmap ids, List<Long> result, int limit) {
+        IntIterator iterator = ids.getIntIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(Integer.toUnsignedLong(iterator.next()));
+        }
+    }
+}
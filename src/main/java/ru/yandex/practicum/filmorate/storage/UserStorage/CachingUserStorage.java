@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш чтения по id поверх любого {@link UserStorage}: ограничен по размеру (W-TinyLFU),
+ * сбрасывает запись при изменении или удалении пользователя.
+ */
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final Cache<Long, User> cache;
+    // Загрузка, пересёкшаяся со сбросом, не должна оставить в кэше устаревшее значение
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingUserStorage(UserStorage delegate, long maximumSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public User update(User user) {
+        try {
+            return delegate.update(user);
+        } finally {
+            invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public User getById(Long id) {
+        if (id == null) {
+            return delegate.getById(id);
+        }
+        // Не cache.get(id, loader): загрузчик выполнялся бы под synchronized внутри ConcurrentHashMap,
+        // и запрос к базе закреплял бы виртуальный поток. Одновременные промахи по одному id допустимы
+        User cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long before = invalidations.get();
+        User loaded = delegate.getById(id);
+        cache.put(id, loaded);
+        if (invalidations.get() != before) {
+            invalidations.incrementAndGet();
+            cache.invalidate(id);
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Long> ids) {
+        List<Long> keys = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        // Промахи догружаются из хранилища одним запросом
+        long before = invalidations.get();
+        Map<Long, User> found = cache.getAll(keys, missing -> delegate.getByIds(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity())));
+        if (invalidations.get() != before) {
+            cache.invalidateAll(keys);
+        }
+        List<User> result = new ArrayList<>(keys.size());
+        for (Long id : keys) {
+            User entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return id != null && cache.getIfPresent(id) != null || delegate.existsById(id);
+    }
+
+    @Override
+    public List<Long> searchIds(String query, int limit) {
+        return delegate.searchIds(query, limit);
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    public Cache<Long, User> getCache() {
+        return cache;
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    public UserStorage getDelegate() {
+        return delegate;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    private void invalidate(Long id) {
+        if (id != null) {
+            invalidations.incrementAndGet();
+            cache.invalidate(id);
+        }
+    }
+}
@@ -1,59 +1,322 @@
 package ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.persistence.Journal;
+import ru.yandex.practicum.filmorate.persistence.MappedCatalog;
+import ru.yandex.practicum.filmorate.storage.TextSearchIndex;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+@Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
-    private long idCounter = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    // Упорядоченная по id карта: конкурентный доступ без общей блокировки и стабильный порядок в findAll
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final AtomicLong idCounter = new AtomicLong(1);
+    // Число живых записей вместе с ещё не загруженными из каталога; size() у карты — полный обход
+    private final AtomicLong size = new AtomicLong();
+    // Изменения одной записи журналируются под блокировкой её полосы, в порядке применения.
+    // ReentrantLock, а не synchronized: под блокировкой читается отображённый каталог, а чтение страницы
+    // с диска внутри synchronized закрепило бы виртуальный поток за несущим
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private volatile Journal journal = Journal.NONE;
+    // Каталог на диске под картой: записи собираются из него при первом обращении и остаются в карте
+    private volatile MappedCatalog<User> catalog;
+    private volatile boolean catalogMaterialized = true;
+    private final Set<Long> deletedFromCatalog = ConcurrentHashMap.newKeySet();
+    // Меняется под блокировкой полосы записи; записи каталога индексируются в фоне после подключения
+    private final TextSearchIndex searchIndex = new TextSearchIndex();
+
+    public InMemoryUserStorage() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Подключает каталог, загруженный при старте; вызывается до восстановления журнала.
+     */
+    public void attachCatalog(MappedCatalog<User> catalog) {
+        this.catalog = catalog;
+        this.catalogMaterialized = catalog.size() == 0;
+        size.addAndGet(catalog.size());
+        idCounter.accumulateAndGet(catalog.maxId() + 1, Math::max);
+        if (catalog.size() > 0) {
+            ForkJoinPool.commonPool().execute(() -> indexCatalog(catalog));
+        }
+    }
 
     @Override
     public Collection<User> findAll() {
+        materializeAfter(0, Integer.MAX_VALUE);
         return users.values();
     }
 
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        materializeAfter(afterId, limit);
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public User create(User user) {
-        user.setId(generateId());
-        users.put(user.getId(), user);
+        insert(user);
+        journal.commit();
         return user;
     }
 
+    @Override
+    public List<User> createAll(List<User> users) {
+        users.forEach(this::insert);
+        journal.commit();
+        return users;
+    }
+
     @Override
     public User update(User user) {
-        if (!users.containsKey(user.getId())) {
-            throw new RuntimeException("Пользователь с таким id не найден: " + user.getId());
+        if (user.getId() == null) {
+            throw new NotFoundException("Пользователь с таким id не найден: " + user.getId());
+        }
+        ReentrantLock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            User old = find(user.getId());
+            if (old == null) {
+                throw new NotFoundException("Пользователь с таким id не найден: " + user.getId());
+            }
+            user.setVersion(old.getVersion() + 1);
+            // Сначала журнал: если запись не удалась, изменение не станет видимым
+            journal.userSaved(user);
+            users.put(user.getId(), user);
+            searchIndex.update(user.getId(), searchText(old), null, searchText(user), null);
+        } finally {
+            lock.unlock();
         }
-        users.put(user.getId(), user);
+        journal.commit();
         return user;
     }
 
     @Override
     public User getById(Long id) throws NotFoundException {
-        User user = users.get(id);
+        User user = id != null ? find(id) : null;
         if (user == null) {
             throw new NotFoundException("Пользователь с id=" + id + " не найден");
         }
         return user;
     }
 
+    @Override
+    public List<User> getByIds(Collection<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User entity = id != null ? find(id) : null;
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean existsById(Long id) {
-        return users.containsKey(id);
+        return id != null && find(id) != null;
     }
 
     @Override
     public void delete(Long id) {
-        users.remove(id);
+        if (id == null) {
+            return;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            User old = users.get(id);
+            MappedCatalog<User> base = catalog;
+            boolean inCatalog = base != null && base.contains(id) && !deletedFromCatalog.contains(id);
+            if (old == null && !inCatalog) {
+                return;
+            }
+            journal.userDeleted(id);
+            users.remove(id);
+            if (inCatalog) {
+                if (old == null && searchIndex.contains(id)) {
+                    old = base.get(id);
+                }
+                deletedFromCatalog.add(id);
+            }
+            if (old != null) {
+                searchIndex.remove(id, searchText(old), null);
+            }
+            size.decrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        journal.commit();
+    }
+
+    @Override
+    public long count() {
+        return size.get();
+    }
+
+    /**
+     * Восстанавливает запись из журнала или снимка с её прежним id, не журналируя её повторно.
+     */
+    public void restore(User user) {
+        ReentrantLock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            MappedCatalog<User> base = catalog;
+            boolean inCatalog = base != null && base.contains(user.getId())
+                    && !deletedFromCatalog.contains(user.getId());
+            User old = users.put(user.getId(), user);
+            if (old == null && !inCatalog) {
+                size.incrementAndGet();
+            }
+            // Запись каталога, ещё не проиндексированная в фоне, в индексе отсутствует — вычитать нечего
+            if (old == null && inCatalog && searchIndex.contains(user.getId())) {
+                old = base.get(user.getId());
+            }
+            if (old != null) {
+                searchIndex.update(user.getId(), searchText(old), null, searchText(user), null);
+            } else {
+                searchIndex.add(user.getId(), searchText(user), null);
+            }
+        } finally {
+            lock.unlock();
+        }
+        idCounter.accumulateAndGet(user.getId() + 1, Math::max);
+    }
+
+    @Override
+    public List<Long> searchIds(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Обходит все записи по возрастанию id, не собирая в карту ещё не загруженные записи каталога.
+     */
+    public void forEachOrdered(Consumer<User> consumer) {
+        MappedCatalog<User> base = catalog;
+        if (base == null || catalogMaterialized) {
+            users.values().forEach(consumer);
+        } else {
+            base.forEachMerged(users, deletedFromCatalog, consumer);
+        }
+    }
+
+    private User find(long id) {
+        User user = users.get(id);
+        return user != null || catalogMaterialized ? user : materialize(id);
+    }
+
+    private User materialize(long id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            User user = users.get(id);
+            if (user == null && !deletedFromCatalog.contains(id)) {
+                user = catalog.get(id);
+                if (user != null) {
+                    users.put(id, user);
+                }
+            }
+            return user;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Для страницы достаточно собрать limit живых записей каталога после курсора
+    private void materializeAfter(long afterId, int limit) {
+        if (catalogMaterialized) {
+            return;
+        }
+        MappedCatalog<User> base = catalog;
+        int found = 0;
+        int index = base.indexAfter(afterId);
+        for (; index < base.size() && found < limit; index++) {
+            if (find(base.idAt(index)) != null) {
+                found++;
+            }
+        }
+        if (afterId <= 0 && index == base.size()) {
+            catalogMaterialized = true;
+        }
+    }
+
+    private void insert(User user) {
+        user.setId(generateId());
+        ReentrantLock lock = lockFor(user.getId());
+        lock.lock();
+        try {
+            journal.userSaved(user);
+            users.put(user.getId(), user);
+            size.incrementAndGet();
+            searchIndex.add(user.getId(), searchText(user), null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Записи каталога не собираются в карту: индекс строится по отображённому файлу
+    private void indexCatalog(MappedCatalog<User> base) {
+        long started = System.nanoTime();
+        for (int index = 0; index < base.size(); index++) {
+            long id = base.idAt(index);
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                // Изменённые и восстановленные из журнала записи уже проиндексированы в новом виде
+                if (!deletedFromCatalog.contains(id) && !searchIndex.contains(id)) {
+                    User user = users.get(id);
+                    if (user == null) {
+                        user = base.get(id);
+                    }
+                    searchIndex.add(id, searchText(user), null);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("Поисковый индекс пользователей из каталога построен за {} мс: {} записей",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), base.size());
+    }
+
+    private static String searchText(User user) {
+        return user.getName() != null ? user.getLogin() + " " + user.getName() : user.getLogin();
+    }
+
+    private ReentrantLock lockFor(long id) {
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
     }
 
     private long generateId() {
-        return idCounter++;
+        return idCounter.getAndIncrement();
     }
-}
\ No newline at end of file
+}
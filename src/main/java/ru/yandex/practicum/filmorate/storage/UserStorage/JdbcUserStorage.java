@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.TextSearchIndex;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcUserStorage implements UserStorage {
+    private static final int BATCH_SIZE = 1000;
+    private static final int ID_ARRAY_LIMIT = 50_000;
+    private static final String INSERT = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JdbcUserStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return jdbcTemplate.query("SELECT * FROM users ORDER BY id", JdbcUserStorage::mapRow);
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                JdbcUserStorage::mapRow, afterId, limit);
+    }
+
+    @Override
+    public User create(User user) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"});
+            setValues(statement, user);
+            return statement;
+        }, keyHolder);
+        user.setId(keyHolder.getKeyAs(Long.class));
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+            List<User> batch = users.subList(from, Math.min(from + BATCH_SIZE, users.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            JdbcUserStorage.setValues(statement, batch.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    },
+                    keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) keys.get(i).get("ID")).longValue());
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public User update(User user) {
+        List<Long> version = jdbcTemplate.queryForList("SELECT version FROM FINAL TABLE (UPDATE users "
+                        + "SET email = ?, login = ?, name = ?, birthday = ?, version = version + 1 WHERE id = ?)",
+                Long.class, user.getEmail(), user.getLogin(), user.getName(), toDate(user), user.getId());
+        if (version.isEmpty()) {
+            throw new NotFoundException("Пользователь с таким id не найден: " + user.getId());
+        }
+        user.setVersion(version.get(0));
+        return user;
+    }
+
+    @Override
+    public User getById(Long id) throws NotFoundException {
+        return jdbcTemplate.query("SELECT * FROM users WHERE id = ?", JdbcUserStorage::mapRow, id).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Один запрос с массивом id вместо запроса на каждый id; массив в H2 не длиннее 65536 элементов
+        Map<Long, User> found = new HashMap<>();
+        Object[] allIds = ids.toArray();
+        for (int from = 0; from < allIds.length; from += ID_ARRAY_LIMIT) {
+            Object[] chunk = Arrays.copyOfRange(allIds, from, Math.min(from + ID_ARRAY_LIMIT, allIds.length));
+            jdbcTemplate.query("SELECT * FROM users WHERE id = ANY (?)",
+                    statement -> statement.setArray(1, statement.getConnection().createArrayOf("BIGINT", chunk)),
+                    rs -> {
+                        User entity = mapRow(rs, 0);
+                        found.put(entity.getId(), entity);
+                    });
+        }
+        List<User> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            User entity = found.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)", Boolean.class, id));
+    }
+
+    @Override
+    public List<Long> searchIds(String query, int limit) {
+        List<String> words = TextSearchIndex.tokens(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        // Без индекса: каждое слово ищется подстрокой в логине или имени
+        StringBuilder where = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        for (String word : words) {
+            where.append(where.isEmpty() ? "" : " AND ")
+                    .append("(REPLACE(LOWER(login), 'ё', 'е') LIKE ? OR REPLACE(LOWER(name), 'ё', 'е') LIKE ?)");
+            args.add("%" + word + "%");
+            args.add("%" + word + "%");
+        }
+        args.add(limit);
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE " + where + " ORDER BY id LIMIT ?",
+                Long.class, args.toArray());
+    }
+
+    @Override
+    public void delete(Long id) {
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", id);
+    }
+
+    @Override
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static void setValues(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getEmail());
+        statement.setString(2, user.getLogin());
+        statement.setString(3, user.getName());
+        statement.setDate(4, toDate(user));
+    }
+
+    private static Date toDate(User user) {
+        return user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null;
+    }
+
+    private static User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Date birthday = rs.getDate("birthday");
+        User user = User.builder()
+                .id(rs.getLong("id"))
+                .email(rs.getString("email"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .birthday(birthday != null ? birthday.toLocalDate() : null)
+                .build();
+        user.setVersion(rs.getLong("version"));
+        return user;
+    }
+}
@@ -5,17 +5,32 @@ import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    List<User> findPage(long afterId, int limit);
+
     User create(User user) throws DuplicatedDataException;
 
+    List<User> createAll(List<User> users);
+
     User update(User user) throws NotFoundException;
 
     User getById(Long id) throws NotFoundException;
 
+    List<User> getByIds(Collection<Long> ids);
+
+    /**
+     * Не больше limit id записей, содержащих все слова запроса; последнее слово может быть недописанным.
+     * Выше — записи, где все слова нашлись в логине или имени.
+     */
+    List<Long> searchIds(String query, int limit);
+
     boolean existsById(Long id);
 
     void delete(Long id);
+
+    long count();
 }
\ No newline at end of file
@@ -0,0 +1,389 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.MutationType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Отложенная запись изменений вида «владелец — цель: добавить или убрать» (лайки фильма, друзья пользователя).
+ * Изменение сразу видно через {@link #queued}, а в хранилище уходит пачкой из фонового потока — не позже чем через
+ * flushInterval или сразу, как наберётся batchSize изменений.
+ * <p>
+ * На каждую пару в очереди лежит не больше одного изменения, и ставится оно, только если меняет видимое состояние.
+ * Поэтому противоположное изменение той же пары просто убирает ожидающее: лайк и его снятие до записи в хранилище
+ * не дают ни одной записи. Все записи в хранилище идут под {@code flushLock}, так что изменения одной пары
+ * доходят до него в порядке поступления.
+ * <p>
+ * Хранилище читается до блокировки владельца: под ней нет ввода-вывода. Каждая запись в хранилище окружена
+ * двумя увеличениями счётчика {@code writes}, как в seqlock: нечётное значение — запись идёт, изменившееся —
+ * прошла. В обоих случаях прочитанное из хранилища могло устареть, и чтение повторяется.
+ */
+@Slf4j
+public class WriteBehindQueue {
+    // Останавливается после веб-сервера (его фаза — DEFAULT_PHASE - 2048), но до уничтожения бинов
+    public static final int LIFECYCLE_PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    public enum Overflow {
+        // Запрос ждёт, пока фоновая запись освободит место, но не дольше blockTimeout
+        BLOCK,
+        // Запрос сразу получает отказ
+        REJECT
+    }
+
+    /**
+     * @param capacity         сколько изменений может ждать записи; изменение уже стоящей в очереди пары места не занимает
+     * @param drainOnShutdown  записать ли очередь при остановке; иначе ожидающие изменения теряются
+     * @param shutdownTimeout  сколько ждать записи очереди при остановке
+     */
+    public record Settings(int capacity, int batchSize, Duration flushInterval, Overflow overflow,
+                           Duration blockTimeout, boolean drainOnShutdown, Duration shutdownTimeout) {
+    }
+
+    public record Mutation(long owner, long target, MutationType type) {
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final BiPredicate<Long, Long> stored;
+    private final Consumer<List<Mutation>> writer;
+    // Владелец → цель → изменение; вложенные карты меняются только внутри compute по владельцу
+    private final Map<Long, Map<Long, MutationType>> pending = new ConcurrentHashMap<>();
+    // Изменения, которые сейчас пишутся в хранилище: до конца записи их ещё нет в stored
+    private final Map<Long, Map<Long, MutationType>> inflight = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // Нечётный, пока идёт запись в хранилище, и растёт на два за каждую запись
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition spaceFreed = spaceLock.newCondition();
+    private volatile ScheduledExecutorService flusher;
+
+    /**
+     * @param stored состояние пары в хранилище
+     * @param writer пишет пачку изменений в хранилище; повтор пачки после ошибки не должен ничего ломать
+     */
+    public WriteBehindQueue(String name, Settings settings, BiPredicate<Long, Long> stored,
+                            Consumer<List<Mutation>> writer) {
+        this.name = name;
+        this.settings = settings;
+        this.stored = stored;
+        this.writer = writer;
+    }
+
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = settings.flushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает фоновую запись; по настройке сначала записывает всё, что ждёт в очереди.
+     */
+    public void stop() {
+        ScheduledExecutorService executor = flusher;
+        if (executor == null) {
+            return;
+        }
+        flusher = null;
+        if (settings.drainOnShutdown()) {
+            executor.execute(this::scheduledFlush);
+            executor.shutdown();
+        } else {
+            executor.shutdownNow();
+        }
+        try {
+            if (!executor.awaitTermination(settings.shutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (size.get() > 0) {
+            log.warn("Очередь отложенной записи {} остановлена, не записано изменений: {}", name, size.get());
+        } else {
+            log.info("Очередь отложенной записи {} остановлена, все изменения записаны", name);
+        }
+    }
+
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    /**
+     * Ставит изменение в очередь; возвращает, изменило ли оно видимое состояние пары.
+     *
+     * @throws OverloadedException если очередь полна и место не освободилось
+     */
+    public boolean submit(long owner, long target, MutationType type) {
+        awaitSpace(owner, target);
+        boolean[] changed = new boolean[1];
+        boolean[] stale = new boolean[1];
+        do {
+            long version = stableVersion();
+            boolean wasPending = isPending(owner, target);
+            boolean storedState = !wasPending && stored.test(owner, target);
+            stale[0] = false;
+            // Видимое состояние сверяется под блокировкой владельца: фоновая запись забирает его изменения тоже через compute
+            pending.compute(owner, (id, ops) -> {
+                Map<Long, MutationType> current = ops != null ? ops : new ConcurrentHashMap<>();
+                MutationType queued = current.get(target);
+                MutationType writing = inflightType(owner, target);
+                if (queued != null) {
+                    if (queued != type) {
+                        current.remove(target);
+                        release(1);
+                        changed[0] = true;
+                    }
+                } else if (writing == null && (wasPending || writes.get() != version)) {
+                    // Пока читали хранилище, пара ушла в запись или записалась пачка: прочитанное могло устареть
+                    stale[0] = true;
+                } else if ((writing != null ? writing == MutationType.ADD : storedState) != (type == MutationType.ADD)) {
+                    current.put(target, type);
+                    size.incrementAndGet();
+                    changed[0] = true;
+                }
+                return current.isEmpty() ? null : current;
+            });
+        } while (stale[0]);
+        if (size.get() >= settings.batchSize()) {
+            requestFlush();
+        }
+        return changed[0];
+    }
+
+    /**
+     * Изменение пары, которое ещё не дошло до хранилища, или null.
+     */
+    public MutationType queued(long owner, long target) {
+        Map<Long, MutationType> ops = pending.get(owner);
+        MutationType type = ops != null ? ops.get(target) : null;
+        if (type != null) {
+            return type;
+        }
+        ops = inflight.get(owner);
+        return ops != null ? ops.get(target) : null;
+    }
+
+    /**
+     * Все ещё не записанные изменения владельца: цель → изменение.
+     */
+    public Map<Long, MutationType> queued(long owner) {
+        Map<Long, MutationType> result = new HashMap<>();
+        Map<Long, MutationType> ops = inflight.get(owner);
+        if (ops != null) {
+            result.putAll(ops);
+        }
+        ops = pending.get(owner);
+        if (ops != null) {
+            result.putAll(ops);
+        }
+        return result;
+    }
+
+    /**
+     * Число целей владельца с учётом очереди; storedCount читает это число из хранилища.
+     */
+    public int count(long owner, IntSupplier storedCount) {
+        while (true) {
+            long version = stableVersion();
+            int count = storedCount.getAsInt() + queuedDelta(inflight.get(owner)) + queuedDelta(pending.get(owner));
+            if (writes.get() == version) {
+                return count;
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Записывает в хранилище всё, что стоит в очереди на момент вызова.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            // Пачка, не записанная из-за ошибки, повторяется первой
+            writeInflight();
+            List<Long> owners = new ArrayList<>();
+            int batch = 0;
+            for (Long owner : pending.keySet()) {
+                int[] taken = new int[1];
+                pending.computeIfPresent(owner, (id, ops) -> {
+                    // Владелец, удалённый и снова добавленный во время обхода, может встретиться дважды
+                    if (inflight.containsKey(id)) {
+                        return ops;
+                    }
+                    inflight.put(id, ops);
+                    taken[0] = ops.size();
+                    return null;
+                });
+                if (taken[0] == 0) {
+                    continue;
+                }
+                owners.add(owner);
+                batch += taken[0];
+                if (batch >= settings.batchSize()) {
+                    writeInflight();
+                    owners.clear();
+                    batch = 0;
+                }
+            }
+            if (!owners.isEmpty()) {
+                writeInflight();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает очередь и выполняет запись в хранилище в обход неё: так пакетные операции и удаления
+     * не обгоняют изменения, поставленные в очередь раньше.
+     */
+    public <T> T writeThrough(Supplier<T> write) {
+        flushLock.lock();
+        try {
+            flush();
+            writes.incrementAndGet();
+            try {
+                return write.get();
+            } finally {
+                writes.incrementAndGet();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeInflight() {
+        if (inflight.isEmpty()) {
+            return;
+        }
+        List<Mutation> mutations = new ArrayList<>();
+        inflight.forEach((owner, ops) -> ops.forEach((target, type) -> mutations.add(new Mutation(owner, target, type))));
+        writes.incrementAndGet();
+        try {
+            writer.accept(mutations);
+            inflight.clear();
+        } finally {
+            writes.incrementAndGet();
+        }
+        release(mutations.size());
+    }
+
+    // Чётное значение счётчика записей; если запись идёт, ждёт её конца на flushLock, а не крутится в цикле
+    private long stableVersion() {
+        long version = writes.get();
+        while ((version & 1) != 0) {
+            flushLock.lock();
+            flushLock.unlock();
+            version = writes.get();
+        }
+        return version;
+    }
+
+    private MutationType inflightType(long owner, long target) {
+        Map<Long, MutationType> ops = inflight.get(owner);
+        return ops != null ? ops.get(target) : null;
+    }
+
+    // Каждое изменение в очереди меняет видимое состояние своей пары, так что добавление — плюс одна цель, удаление — минус
+    private static int queuedDelta(Map<Long, MutationType> ops) {
+        if (ops == null) {
+            return 0;
+        }
+        int delta = 0;
+        for (MutationType type : ops.values()) {
+            delta += type == MutationType.ADD ? 1 : -1;
+        }
+        return delta;
+    }
+
+    private void awaitSpace(long owner, long target) {
+        if (size.get() < settings.capacity() || isPending(owner, target)) {
+            return;
+        }
+        if (settings.overflow() == Overflow.REJECT) {
+            throw new OverloadedException("Очередь записи " + name + " переполнена");
+        }
+        requestFlush();
+        long left = settings.blockTimeout().toNanos();
+        spaceLock.lock();
+        try {
+            while (size.get() >= settings.capacity()) {
+                if (left <= 0) {
+                    throw new OverloadedException("Очередь записи " + name + " не освободилась за "
+                            + settings.blockTimeout().toMillis() + " мс");
+                }
+                left = spaceFreed.awaitNanos(left);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Ожидание места в очереди записи " + name + " прервано");
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+
+    private boolean isPending(long owner, long target) {
+        Map<Long, MutationType> ops = pending.get(owner);
+        return ops != null && ops.containsKey(target);
+    }
+
+    private void release(int count) {
+        size.addAndGet(-count);
+        spaceLock.lock();
+        try {
+            spaceFreed.signalAll();
+        } finally {
+            spaceLock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        ScheduledExecutorService executor = flusher;
+        if (executor != null && flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::scheduledFlush);
+            } catch (RuntimeException e) {
+                // Очередь останавливается, последнюю запись сделает stop()
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка отложенной записи {}, не записано изменений: {}", name, size.get(), e);
+        }
+    }
+}
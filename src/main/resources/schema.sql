@@ -0,0 +1,42 @@
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE,
+    version  BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     BIGINT NOT NULL,
+    version      BIGINT DEFAULT 0 NOT NULL
+);
+
+-- Базы, созданные до появления версий: все записи начинают с нулевой версии
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id  BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id  BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    liked_at TIMESTAMP DEFAULT LOCALTIMESTAMP NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+
+-- Базы, созданные до появления времени лайка: старым лайкам достаётся время миграции
+ALTER TABLE likes ADD COLUMN IF NOT EXISTS liked_at TIMESTAMP DEFAULT LOCALTIMESTAMP NOT NULL;
+
+CREATE INDEX IF NOT EXISTS likes_user_id_idx ON likes (user_id);
+CREATE INDEX IF NOT EXISTS likes_liked_at_idx ON likes (liked_at);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_id_idx ON friendships (friend_id);
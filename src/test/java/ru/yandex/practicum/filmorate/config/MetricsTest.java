@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MetricsTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void shouldExposeServiceTimersStorageGaugesAndErrorCounters() throws Exception {
+        Film film = filmService.create(Film.builder()
+                .name("film")
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build());
+        for (int i = 1; i <= 2; i++) {
+            userService.create(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        userService.addFriend(1L, 2L);
+        filmService.addLike(film.getId(), 1L);
+        mockMvc.perform(get("/films/{id}", film.getId())).andExpect(status().isOk());
+        mockMvc.perform(get("/films/100000")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "filmorate_service_seconds_bucket{exception=\"none\",method=\"getById\",service=\"FilmService\",le=\"+Inf\",} 1.0")))
+                .andExpect(content().string(containsString(
+                        "filmorate_service_seconds_count{exception=\"NotFoundException\",method=\"getById\",service=\"FilmService\",} 1.0")))
+                .andExpect(content().string(containsString("filmorate_films 1.0")))
+                .andExpect(content().string(containsString("filmorate_users 2.0")))
+                .andExpect(content().string(containsString("filmorate_likes 1.0")))
+                .andExpect(content().string(containsString("filmorate_friendships 2.0")))
+                .andExpect(content().string(containsString(
+                        "filmorate_errors_total{exception=\"NotFoundException\",status=\"404\",} 1.0")));
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledRequestConditionTest {
+    private static final int REQUESTS = 100_000;
+
+    @Test
+    void shouldLogEveryRequestByDefault() {
+        SampledRequestCondition condition = new SampledRequestCondition(new MockEnvironment());
+
+        assertEquals(REQUESTS, sampled(condition));
+    }
+
+    @Test
+    void shouldLogRequestedShareOfRequests() {
+        SampledRequestCondition condition = new SampledRequestCondition(
+                new MockEnvironment().withProperty("filmorate.logging.sample-rate", "0.01"));
+
+        int sampled = sampled(condition);
+
+        assertTrue(sampled > REQUESTS / 200 && sampled < REQUESTS / 50, "Выбрано запросов: " + sampled);
+        assertEquals(0, sampled(new SampledRequestCondition(0)));
+    }
+
+    @Test
+    void shouldRejectRateOutsideUnitInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new SampledRequestCondition(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new SampledRequestCondition(-0.1));
+    }
+
+    private static int sampled(SampledRequestCondition condition) {
+        int sampled = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            if (condition.test(null)) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ConditionalGetTest {
+    private static final int FILMS = 20;
+    private static final int USERS = 20;
+    private static final int REQUESTS = 2_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= FILMS; i++) {
+            filmService.create(film(i, "film" + i));
+        }
+        for (int i = 1; i <= USERS; i++) {
+            userService.create(user(i, "name" + i));
+        }
+        for (long id = 1; id < USERS; id++) {
+            userService.addFriend(id, id + 1);
+            filmService.addLike(id, id);
+        }
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForUnchangedFilmAndRevalidateAfterUpdate() throws Exception {
+        MvcResult first = mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("\""), "Тег должен быть сильным: " + etag);
+
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        filmService.update(film(1, "renamed"));
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("renamed"));
+    }
+
+    /**
+     * Повтор нагрузки «в основном чтение»: клиенты помнят последний ответ и его ETag. Каждый 304 сверяется
+     * со свежим ответом без условия, а каждый 200 на запомненный адрес — с тем, что тело действительно изменилось.
+     */
+    @Test
+    void shouldServeReplayedReadHeavyWorkloadMostlyFromValidators() throws Exception {
+        Random random = new Random(42);
+        Map<String, MvcResult> cache = new HashMap<>();
+        int reads = 0;
+        int notModified = 0;
+        long servedBytes = 0;
+        long savedBytes = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            if (random.nextInt(100) < 5) {
+                mutate(random, i);
+                continue;
+            }
+            String url = switch (random.nextInt(4)) {
+                case 0 -> "/films/" + (1 + random.nextInt(FILMS));
+                case 1 -> "/films/popular?count=5";
+                case 2 -> "/users/" + (1 + random.nextInt(USERS));
+                default -> "/users/" + (1 + random.nextInt(USERS)) + "/friends";
+            };
+            MvcResult cached = cache.get(url);
+            MvcResult result = cached == null
+                    ? mockMvc.perform(get(url)).andReturn()
+                    : mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH,
+                            cached.getResponse().getHeader(HttpHeaders.ETAG))).andReturn();
+            reads++;
+            if (result.getResponse().getStatus() == 304) {
+                notModified++;
+                assertEquals(0, result.getResponse().getContentLength());
+                String fresh = mockMvc.perform(get(url)).andReturn().getResponse().getContentAsString();
+                assertEquals(fresh, cached.getResponse().getContentAsString(), "Устаревший ответ по " + url);
+                savedBytes += cached.getResponse().getContentAsByteArray().length;
+                continue;
+            }
+            assertEquals(200, result.getResponse().getStatus(), url);
+            if (cached != null) {
+                assertNotEquals(cached.getResponse().getContentAsString(), result.getResponse().getContentAsString(),
+                        "Тело не изменилось, а тег изменился: " + url);
+            }
+            servedBytes += result.getResponse().getContentAsByteArray().length;
+            cache.put(url, result);
+        }
+
+        double notModifiedRate = (double) notModified / reads;
+        double savedShare = (double) savedBytes / (savedBytes + servedBytes);
+        assertTrue(notModifiedRate > 0.8, "Доля 304: " + notModifiedRate + " из " + reads + " чтений");
+        assertTrue(savedShare > 0.8, "Доля несериализованных байт: " + savedShare
+                + " (" + savedBytes + " из " + (savedBytes + servedBytes) + ")");
+    }
+
+    private void mutate(Random random, int step) {
+        long filmId = 1 + random.nextInt(FILMS);
+        long userId = 1 + random.nextInt(USERS);
+        long otherId = 1 + random.nextInt(USERS);
+        switch (random.nextInt(4)) {
+            case 0 -> filmService.addLike(filmId, userId);
+            case 1 -> filmService.update(film(filmId, "film" + filmId + "-" + step));
+            case 2 -> userService.update(user(userId, "name" + userId + "-" + step));
+            default -> {
+                if (userId != otherId) {
+                    userService.addFriend(userId, otherId);
+                }
+            }
+        }
+    }
+
+    private static Film film(long id, String name) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description("description" + id)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+
+    private static User user(long id, String name) {
+        return User.builder()
+                .id(id)
+                .login("user" + id)
+                .email("user" + id + "@mail.ru")
+                .name(name)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serializer.SmileHttpMessageConverter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            filmService.create(Film.builder()
+                    .name("film" + i)
+                    .description("description" + i)
+                    .releaseDate(LocalDate.of(2000, 1, i))
+                    .duration(100)
+                    .build());
+        }
+    }
+
+    @Test
+    void shouldReturnAllFilmsWithoutPaginationParameters() throws Exception {
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(5));
+    }
+
+    @Test
+    void shouldReturnPageAfterCursor() throws Exception {
+        mockMvc.perform(get("/films").param("after", "2").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(4));
+    }
+
+    @Test
+    void shouldRejectTooLargePage() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectTooLargeTopCount() throws Exception {
+        for (String url : new String[]{"/films/popular", "/films/trending", "/films/search"}) {
+            mockMvc.perform(get(url).param("query", "film").param("count", "100000"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Validation failed"));
+        }
+        for (String type : new String[]{SmileHttpMessageConverter.APPLICATION_SMILE_VALUE,
+                MediaType.APPLICATION_NDJSON_VALUE}) {
+            mockMvc.perform(get("/films/popular").param("count", "100000").accept(type))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void shouldValidateTrendingPeriod() throws Exception {
+        mockMvc.perform(get("/films/trending").param("period", "WEEK"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/films/trending").param("period", "month"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldApplyLikeBatchWithPerItemResults() throws Exception {
+        userService.create(User.builder()
+                .login("user")
+                .email("user@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        mockMvc.perform(post("/films/likes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\": \"add\", \"filmId\": 2, \"userId\": 1},"
+                                + "{\"type\": \"add\", \"filmId\": 2, \"userId\": 1},"
+                                + "{\"type\": \"add\", \"filmId\": 99, \"userId\": 1},"
+                                + "{\"type\": \"remove\", \"filmId\": 3, \"userId\": 1},"
+                                + "{\"filmId\": 3, \"userId\": 1}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.unchanged").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[0].status").value("applied"))
+                .andExpect(jsonPath("$.results[1].status").value("unchanged"))
+                .andExpect(jsonPath("$.results[2].status").value("failed"))
+                .andExpect(jsonPath("$.results[2].message").value("Фильм с id 99 не найден"))
+                .andExpect(jsonPath("$.results[4].index").value(4));
+        mockMvc.perform(get("/films/popular").param("count", "1"))
+                .andExpect(jsonPath("$[0].id").value(2));
+        mockMvc.perform(post("/films/likes/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamFilmsAsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/films").param("after", "1")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":2,"));
+        assertTrue(lines[3].startsWith("{\"id\":5,"));
+    }
+}
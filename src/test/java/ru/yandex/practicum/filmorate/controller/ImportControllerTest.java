@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ImportControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void shouldImportValidLinesAndReportInvalidOnes() throws Exception {
+        String body = String.join("\n",
+                "{\"user\": {\"login\": \"alice\", \"email\": \"alice@mail.ru\", \"birthday\": \"1990-01-01\"}}",
+                "{\"user\": {\"login\": \"bob\", \"email\": \"bob@mail.ru\", \"birthday\": \"1991-01-01\"}}",
+                "{\"user\": {\"login\": \"with space\", \"email\": \"x@mail.ru\"}}",
+                "{\"film\": {\"name\": \"Film\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\", \"duration\": 90}}",
+                "{\"film\": {\"name\": \"Old\", \"description\": \"d\", \"releaseDate\": \"1800-01-01\", \"duration\": 90}}",
+                "",
+                "{\"like\": {\"filmId\": 1, \"userId\": 1}}",
+                "{\"like\": {\"filmId\": 1, \"userId\": 99}}",
+                "{\"friendship\": {\"userId\": 1, \"friendId\": 2}}",
+                "{\"friendship\": {\"userId\": 1, \"friendId\": 1}}",
+                "{\"review\": {}}",
+                "{not json");
+
+        mockMvc.perform(post("/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(12))
+                .andExpect(jsonPath("$.users").value(2))
+                .andExpect(jsonPath("$.films").value(1))
+                .andExpect(jsonPath("$.likes").value(1))
+                .andExpect(jsonPath("$.friendships").value(1))
+                .andExpect(jsonPath("$.errorCount").value(6))
+                .andExpect(jsonPath("$.errors[*].line", contains(3, 5, 8, 10, 11, 12)));
+
+        assertEquals(2, userService.findAll().size());
+        assertEquals(1, filmService.getPopularFilms(1).size());
+        assertEquals(1, userService.getFriends(2L).size());
+        assertEquals(1L, userService.getFriends(2L).get(0).getId());
+    }
+}
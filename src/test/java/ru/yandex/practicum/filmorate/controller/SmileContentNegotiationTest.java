@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serializer.SmileHttpMessageConverter;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SmileContentNegotiationTest {
+    private static final String SMILE = SmileHttpMessageConverter.APPLICATION_SMILE_VALUE;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            filmService.create(film(i));
+            userService.create(user(i));
+        }
+        for (long id = 1; id < 5; id++) {
+            userService.addFriend(1L, id + 1);
+            filmService.addLike(id, id);
+        }
+    }
+
+    @Test
+    void shouldServeSameSchemaInSmileAndJson() throws Exception {
+        for (String url : new String[]{"/films/1", "/films", "/films/popular?count=3", "/users/1", "/users",
+                "/users/1/friends"}) {
+            MvcResult json = mockMvc.perform(get(url).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andReturn();
+            MvcResult smile = mockMvc.perform(get(url).accept(SMILE))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(SMILE))
+                    .andReturn();
+
+            byte[] jsonBody = json.getResponse().getContentAsByteArray();
+            byte[] smileBody = smile.getResponse().getContentAsByteArray();
+            assertEquals(objectMapper.readTree(jsonBody), smileConverter.getObjectMapper().readTree(smileBody), url);
+            assertTrue(smileBody.length < jsonBody.length, url);
+        }
+        // Схема та же, что у JSON: дата строкой, длительность в секундах
+        MvcResult smile = mockMvc.perform(get("/films/1").accept(SMILE)).andReturn();
+        Film film = smileConverter.getObjectMapper().readValue(smile.getResponse().getContentAsByteArray(), Film.class);
+        assertEquals(LocalDate.of(2000, 1, 1), film.getReleaseDate());
+        assertEquals(101, film.getDurationSeconds());
+    }
+
+    @Test
+    void shouldKeepSeparateTagsPerFormat() throws Exception {
+        for (String url : new String[]{"/films/1", "/films/popular?count=3", "/users/1", "/users/1/friends"}) {
+            String jsonTag = mockMvc.perform(get(url).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            String smileTag = mockMvc.perform(get(url).accept(SMILE))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            assertNotEquals(jsonTag, smileTag, url);
+
+            mockMvc.perform(get(url).accept(SMILE).header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get(url).accept(SMILE).header(HttpHeaders.IF_NONE_MATCH, smileTag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get(url).accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                    .andExpect(status().isNotModified());
+        }
+    }
+
+    @Test
+    void shouldAcceptSmileRequestBody() throws Exception {
+        byte[] body = smileConverter.getObjectMapper().writeValueAsBytes(film(10));
+
+        mockMvc.perform(post("/films").contentType(SMILE).content(body).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("film10"))
+                .andExpect(jsonPath("$.duration").value(110));
+    }
+
+    private static Film film(int i) {
+        return Film.builder()
+                .name("film" + i)
+                .description("description" + i)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100 + i)
+                .build();
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .login("user" + i)
+                .email("user" + i + "@mail.ru")
+                .name("name" + i)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
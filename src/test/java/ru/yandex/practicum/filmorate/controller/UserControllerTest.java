@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class UserControllerTest {
+    private static final int FRIENDS = 600;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= FRIENDS + 2; i++) {
+            userService.create(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        for (long friendId = 3; friendId <= FRIENDS + 2; friendId++) {
+            userService.addFriend(1L, friendId);
+            if (friendId % 2 == 0) {
+                userService.addFriend(2L, friendId);
+            }
+        }
+    }
+
+    @Test
+    void shouldReturnFriendsAsJsonArrayByDefault() throws Exception {
+        mockMvc.perform(get("/users/1/friends").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(FRIENDS));
+    }
+
+    @Test
+    void shouldStreamFriendsAsNdjson() throws Exception {
+        String[] lines = streamLines("/users/1/friends");
+
+        assertEquals(FRIENDS, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":3,"));
+        assertTrue(lines[FRIENDS - 1].startsWith("{\"id\":" + (FRIENDS + 2) + ","));
+    }
+
+    @Test
+    void shouldStreamCommonFriendsAsNdjson() throws Exception {
+        String[] lines = streamLines("/users/1/friends/common/2");
+
+        assertEquals(FRIENDS / 2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":4,"));
+    }
+
+    @Test
+    void shouldReturnNotFoundBeforeStreamingFriendsOfUnknownUser() throws Exception {
+        // Тело ошибки — JSON, поэтому клиент потока должен его допускать
+        mockMvc.perform(get("/users/100000/friends")
+                        .header("Accept", "application/x-ndjson, application/json;q=0.9"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Объект не найден"));
+    }
+
+    @Test
+    void shouldRejectOutOfRangeCount() throws Exception {
+        for (String url : new String[]{"/users/1/friends/suggestions", "/users/search", "/users/1/recommendations"}) {
+            for (String count : new String[]{"0", "100000"}) {
+                mockMvc.perform(get(url).param("query", "user").param("count", count))
+                        .andExpect(status().isBadRequest())
+                        .andExpect(jsonPath("$.error").value("Validation failed"));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectSelfFriendship() throws Exception {
+        mockMvc.perform(put("/users/1/friends/1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Пользователь не может дружить сам с собой"));
+
+        assertTrue(userService.getFriends(1L).stream().noneMatch(user -> user.getId() == 1L));
+    }
+
+    @Test
+    void shouldApplyFriendBatchBothWays() throws Exception {
+        mockMvc.perform(post("/users/friends/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"type\": \"add\", \"userId\": 1, \"friendId\": 2},"
+                                + "{\"type\": \"remove\", \"userId\": 3, \"friendId\": 1},"
+                                + "{\"type\": \"add\", \"userId\": 1, \"friendId\": 1},"
+                                + "{\"type\": \"add\", \"userId\": 1, \"friendId\": 100000},"
+                                + "{\"type\": \"add\", \"userId\": 1, \"friendId\": 4}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.unchanged").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[3].message").value("Юзер с id 100000 не найден"));
+
+        assertTrue(userService.getFriends(2L).stream().anyMatch(user -> user.getId() == 1L));
+        assertTrue(userService.getFriends(3L).isEmpty());
+        assertEquals(FRIENDS, userService.getFriends(1L).size());
+    }
+
+    private String[] streamLines(String path) throws Exception {
+        MvcResult result = mockMvc.perform(get(path).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString()
+                .split("\n");
+    }
+}
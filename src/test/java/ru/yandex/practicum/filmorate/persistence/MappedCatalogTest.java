@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCatalogTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldFindRecordsByIdWithoutLoadingEverything() throws IOException {
+        MappedCatalog<Film> catalog = catalog(1, 2, 3, 5, 8);
+
+        assertEquals(5, catalog.size());
+        assertEquals(8, catalog.maxId());
+        assertEquals("film5", catalog.get(5).getName());
+        assertEquals(LocalDate.of(2000, 1, 5), catalog.get(5).getReleaseDate());
+        assertNull(catalog.get(4));
+        assertEquals(3, catalog.indexAfter(3));
+        assertEquals(3, catalog.indexAfter(4));
+        assertEquals(0, catalog.indexAfter(0));
+    }
+
+    @Test
+    void shouldOverlayStorageChangesOnCatalog() throws IOException {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        storage.attachCatalog(catalog(1, 2, 3, 4, 5));
+
+        assertEquals("film2", storage.getById(2L).getName());
+        Film updated = film(1);
+        updated.setName("Обновлённый");
+        storage.update(updated);
+        storage.delete(3L);
+        assertThrows(NotFoundException.class, () -> storage.getById(3L));
+        assertEquals(6L, storage.create(film(0)).getId());
+
+        assertEquals(List.of(4L, 5L), storage.findPage(2, 2).stream().map(Film::getId).toList());
+        List<Film> ordered = new ArrayList<>();
+        storage.forEachOrdered(ordered::add);
+        assertEquals(List.of(1L, 2L, 4L, 5L, 6L), ordered.stream().map(Film::getId).toList());
+        assertEquals("Обновлённый", ordered.get(0).getName());
+        assertEquals(5, storage.findAll().size());
+    }
+
+    private MappedCatalog<Film> catalog(long... ids) throws IOException {
+        Path file = directory.resolve("films.cat");
+        MappedCatalog.writeFilms(file,
+                consumer -> LongStream.of(ids).mapToObj(MappedCatalogTest::film).forEach(consumer));
+        return MappedCatalog.openFilms(file);
+    }
+
+    private static Film film(long id) {
+        return Film.builder()
+                .id(id == 0 ? null : id)
+                .name("film" + id)
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(id - 1))
+                .duration(5400)
+                .build();
+    }
+}
@@ -0,0 +1,259 @@
+package ru.yandex.practicum.filmorate.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceManagerTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReplayLogAfterCrash() throws IOException {
+        Instance first = start("always");
+        mutate(first);
+        first.manager.closeLog();
+
+        Instance second = start("always");
+        assertMutated(second);
+        assertEquals(4L, second.films.create(film("next")).getId());
+        second.manager.closeLog();
+    }
+
+    @Test
+    void shouldLoadSnapshotAndReplayTail() throws IOException {
+        Instance first = start("batch");
+        mutate(first);
+        long generation = first.manager.snapshot();
+        first.likes.addLike(3L, 1L);
+        first.friends.removeFriend(1L, 2L);
+        Film renamed = film("Поздний");
+        renamed.setId(3L);
+        first.films.update(renamed);
+        first.manager.closeLog();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).sorted().toList();
+            assertEquals(List.of(String.format("films-%012d.cat", generation),
+                    String.format("snapshot-%012d.bin", generation),
+                    String.format("users-%012d.cat", generation),
+                    WriteAheadLog.segmentName(generation)), names);
+        }
+
+        Instance second = start("interval");
+        assertEquals(List.of(1L, 3L), second.likes.getPopularFilmIds(10));
+        // Тренды восстановлены из снимка, лайк после снимка — из журнала со своим временем
+        assertEquals(List.of(1L, 3L), second.likes.getTrendingFilmIds(TrendingPeriod.DAY, 10));
+        assertTrue(second.friends.getFriendIds(1L).isEmpty());
+        assertEquals(List.of(1L, 3L), second.friends.getFriendIds(2L));
+        assertEquals("Обновлённый", second.films.getById(1L).getName());
+        // Каталог индексируется для поиска в фоне; запись, изменённая после снимка, — в новом виде
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (second.films.searchIds("обновленный", 10).isEmpty() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(List.of(1L), second.films.searchIds("обновленный", 10));
+        assertEquals(List.of(3L), second.films.searchIds("поздн", 10));
+        assertTrue(second.films.searchIds("film3", 10).isEmpty());
+        // Время лайков восстановлено из снимка: снятые лайки уходят из трендов
+        second.likes.removeLike(1L, 1L);
+        second.likes.removeLike(1L, 2L);
+        assertEquals(List.of(3L), second.likes.getTrendingFilmIds(TrendingPeriod.DAY, 10));
+        second.manager.stop();
+    }
+
+    @Test
+    void shouldNotApplyChangesThatFailedToReachJournal() {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        InMemoryLikeStorage likes = new InMemoryLikeStorage();
+        InMemoryFriendStorage friends = new InMemoryFriendStorage();
+        Film film = films.create(film("Фильм"));
+        users.create(user("alice"));
+        users.create(user("bob"));
+        likes.addLike(film.getId(), 1L);
+        friends.addFriend(1L, 2L);
+
+        // Так ведёт себя WalJournal после сбоя потока-писателя
+        Journal failed = new Journal() {
+            @Override
+            public void filmSaved(Film film) {
+                fail();
+            }
+
+            @Override
+            public void filmDeleted(long filmId) {
+                fail();
+            }
+
+            @Override
+            public void userDeleted(long userId) {
+                fail();
+            }
+
+            @Override
+            public void likeAdded(long filmId, long userId, long likedAt) {
+                fail();
+            }
+
+            @Override
+            public void likeRemoved(long filmId, long userId) {
+                fail();
+            }
+
+            @Override
+            public void friendAdded(long userId, long friendId) {
+                fail();
+            }
+
+            @Override
+            public void friendRemoved(long userId, long friendId) {
+                fail();
+            }
+
+            private void fail() {
+                throw new UncheckedIOException("Журнал недоступен", new IOException("диск"));
+            }
+        };
+        films.setJournal(failed);
+        users.setJournal(failed);
+        likes.setJournal(failed);
+        friends.setJournal(failed);
+
+        Film renamed = film("Другое название");
+        renamed.setId(film.getId());
+        assertThrows(UncheckedIOException.class, () -> films.update(renamed));
+        assertThrows(UncheckedIOException.class, () -> films.create(film("Новый")));
+        assertThrows(UncheckedIOException.class, () -> films.delete(film.getId()));
+        assertThrows(UncheckedIOException.class, () -> users.delete(2L));
+        assertThrows(UncheckedIOException.class, () -> likes.addLike(film.getId(), 2L));
+        assertThrows(UncheckedIOException.class, () -> likes.removeLike(film.getId(), 1L));
+        assertThrows(UncheckedIOException.class, () -> friends.addFriend(1L, 3L));
+        assertThrows(UncheckedIOException.class, () -> friends.removeFriend(1L, 2L));
+
+        assertEquals("Фильм", films.getById(film.getId()).getName());
+        assertEquals(1, films.count());
+        assertTrue(users.existsById(2L));
+        assertFalse(likes.hasLike(film.getId(), 2L));
+        assertTrue(likes.hasLike(film.getId(), 1L));
+        assertEquals(1, likes.getTotalLikesCount());
+        assertEquals(List.of(film.getId()), likes.getPopularFilmIds(10));
+        assertEquals(List.of(2L), friends.getFriendIds(1L));
+        assertEquals(1, friends.getTotalFriendsCount());
+    }
+
+    @Test
+    void shouldSkipTornTailOfSegment() throws IOException {
+        Instance first = start("always");
+        mutate(first);
+        first.manager.closeLog();
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(file -> file.getFileName().toString().startsWith("wal-")).findFirst().get();
+            Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        Instance second = start("always");
+        assertMutated(second);
+        second.manager.closeLog();
+    }
+
+    private void mutate(Instance instance) {
+        for (int i = 1; i <= 3; i++) {
+            instance.users.create(user("user" + i));
+            instance.films.create(film("film" + i));
+        }
+        Film updated = film("Обновлённый");
+        updated.setId(1L);
+        instance.films.update(updated);
+        instance.films.delete(2L);
+        instance.likes.addLike(1L, 1L);
+        instance.likes.addLike(1L, 2L);
+        instance.likes.addLike(2L, 1L);
+        instance.likes.deleteFilm(2L);
+        instance.likes.addLike(3L, 3L);
+        instance.likes.removeLike(3L, 3L);
+        instance.friends.addFriend(1L, 2L);
+        instance.friends.addFriend(2L, 1L);
+        instance.friends.addFriend(2L, 3L);
+    }
+
+    private void assertMutated(Instance instance) {
+        assertEquals(2, instance.films.findAll().size());
+        assertEquals("Обновлённый", instance.films.getById(1L).getName());
+        assertEquals(LocalDate.of(2000, 1, 1), instance.films.getById(3L).getReleaseDate());
+        assertEquals(5400, instance.films.getById(3L).getDurationSeconds());
+        assertEquals(3, instance.users.findAll().size());
+        assertEquals("user2@mail.ru", instance.users.getById(2L).getEmail());
+        assertNull(instance.users.getById(2L).getName());
+        assertEquals(List.of(1L), instance.likes.getPopularFilmIds(10));
+        assertEquals(2, instance.likes.getLikesCount(1L));
+        // Снятый лайк вычитается и из трендов
+        assertEquals(List.of(1L), instance.likes.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+        assertEquals(List.of(2L), instance.friends.getFriendIds(1L));
+        assertEquals(List.of(1L, 3L), instance.friends.getFriendIds(2L));
+    }
+
+    private Instance start(String fsync) throws IOException {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("filmorate.persistence.dir", directory.toString())
+                .withProperty("filmorate.persistence.fsync", fsync)
+                .withProperty("filmorate.persistence.fsync-batch-size", "2");
+        Instance instance = new Instance(new InMemoryFilmStorage(), new InMemoryUserStorage(),
+                new InMemoryLikeStorage(), new InMemoryFriendStorage(), environment);
+        instance.manager.start();
+        return instance;
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(5400)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .login(login)
+                .email(login + "@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static class Instance {
+        private final InMemoryFilmStorage films;
+        private final InMemoryUserStorage users;
+        private final InMemoryLikeStorage likes;
+        private final InMemoryFriendStorage friends;
+        private final PersistenceManager manager;
+
+        Instance(InMemoryFilmStorage films, InMemoryUserStorage users, InMemoryLikeStorage likes,
+                 InMemoryFriendStorage friends, MockEnvironment environment) {
+            this.films = films;
+            this.users = users;
+            this.likes = likes;
+            this.friends = friends;
+            this.manager = new PersistenceManager(films, users, likes, friends, environment);
+        }
+    }
+}
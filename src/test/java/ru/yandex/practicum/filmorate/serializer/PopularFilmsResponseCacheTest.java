@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.serializer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularFilmsResponseCacheTest {
+    private static final int FILMS = 30;
+    private static final int USERS = 20;
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final InMemoryLikeStorage likeStorage = new InMemoryLikeStorage();
+    private final FilmService filmService = new FilmService(filmStorage, userStorage, likeStorage);
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SmileHttpMessageConverter smileConverter =
+            new SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.json());
+    private final PopularFilmsResponseCache cache = new PopularFilmsResponseCache(filmService, likeStorage,
+            objectMapper, smileConverter);
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= FILMS; i++) {
+            filmService.create(film(i, "film" + i));
+        }
+        for (int i = 1; i <= USERS; i++) {
+            userStorage.create(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        // Фильм 1 — 5 лайков, 2 — 4, 3 — 3, 4 — 2, 5 — 1
+        for (long filmId = 1; filmId <= 5; filmId++) {
+            for (long userId = 1; userId <= 6 - filmId; userId++) {
+                filmService.addLike(filmId, userId);
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepResponseWhileLikesStayOutsideTop() throws Exception {
+        byte[] top3 = cache.get(3).body();
+        assertSame(top3, cache.get(3).body());
+
+        // Фильм 5 поднимается до 2 лайков — всё ещё ниже третьего места (3 лайка)
+        filmService.addLike(5L, 10L);
+        filmService.addLike(20L, 10L);
+        assertSame(top3, cache.get(3).body());
+
+        // Лайк фильма из ответа меняет порядок
+        filmService.addLike(3L, 10L);
+        filmService.addLike(3L, 11L);
+        assertNotSame(top3, cache.get(3).body());
+        assertFresh(3);
+
+        // Фильм вне ответа обгоняет последний
+        byte[] reordered = cache.get(3).body();
+        for (long userId = 10; userId <= 14; userId++) {
+            filmService.addLike(6L, userId);
+        }
+        assertNotSame(reordered, cache.get(3).body());
+        assertFresh(3);
+    }
+
+    @Test
+    void shouldRebuildAfterFilmUpdate() throws Exception {
+        String etag = cache.get(3).etag();
+        filmService.update(film(2, "renamed"));
+
+        assertNotEquals(etag, cache.get(3).etag());
+        assertTrue(new String(cache.get(3).body()).contains("renamed"));
+        assertFresh(3);
+    }
+
+    @Test
+    void shouldServeSmileFromSameSnapshot() throws Exception {
+        PopularFilmsResponseCache.Response json = cache.get(5);
+        PopularFilmsResponseCache.Response smile = cache.getSmile(5);
+
+        assertNotEquals(json.etag(), smile.etag());
+        assertTrue(smile.body().length < json.body().length);
+        assertSame(smile.body(), cache.getSmile(5).body());
+        TypeReference<List<Film>> films = new TypeReference<>() {
+        };
+        assertEquals(objectMapper.readValue(json.body(), films),
+                smileConverter.getObjectMapper().readValue(smile.body(), films));
+
+        filmService.addLike(5L, 10L);
+        filmService.addLike(5L, 11L);
+        assertNotSame(smile.body(), cache.getSmile(5).body());
+        assertEquals(filmService.getPopularFilms(5),
+                smileConverter.getObjectMapper().readValue(cache.getSmile(5).body(), films));
+    }
+
+    @Test
+    void shouldMatchFreshSerializationUnderRandomLikes() throws Exception {
+        Random random = new Random(42);
+        int hits = 0;
+        int requests = 0;
+        for (int step = 0; step < 2_000; step++) {
+            long filmId = 1 + random.nextInt(FILMS);
+            long userId = 1 + random.nextInt(USERS);
+            if (random.nextBoolean()) {
+                filmService.addLike(filmId, userId);
+            } else {
+                filmService.removeLike(filmId, userId);
+            }
+            for (int count : new int[]{1, 5, FILMS + 5}) {
+                byte[] before = cache.get(count).body();
+                assertFresh(count);
+                requests++;
+                if (before == cache.get(count).body()) {
+                    hits++;
+                }
+            }
+        }
+        assertTrue(hits > requests / 2, "Попаданий в кэш: " + hits + " из " + requests);
+    }
+
+    private void assertFresh(int count) throws Exception {
+        assertArrayEquals(objectMapper.writeValueAsBytes(filmService.getPopularFilms(count)), cache.get(count).body(),
+                "Ответ для count=" + count + " устарел");
+    }
+
+    private static Film film(long id, String name) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description("description" + id)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+}
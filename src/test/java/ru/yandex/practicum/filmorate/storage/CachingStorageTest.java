@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingStorageTest {
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .login(login)
+                .email(login + "@mail.ru")
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @Test
+    void shouldReadFilmFromDelegateOnlyOnce() {
+        FilmStorage delegate = spy(new InMemoryFilmStorage());
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 100);
+        Long id = storage.create(film("film")).getId();
+
+        storage.getById(id);
+        storage.getById(id);
+        storage.getById(id);
+
+        verify(delegate, times(1)).getById(id);
+        assertEquals(2, storage.getStats().hitCount());
+        assertEquals(1, storage.getStats().missCount());
+    }
+
+    @Test
+    void shouldInvalidateFilmOnUpdateAndDelete() {
+        FilmStorage delegate = spy(new InMemoryFilmStorage());
+        CachingFilmStorage storage = new CachingFilmStorage(delegate, 100);
+        Long id = storage.create(film("film")).getId();
+        storage.getById(id);
+
+        Film renamed = film("renamed");
+        renamed.setId(id);
+        storage.update(renamed);
+        assertEquals("renamed", storage.getById(id).getName());
+
+        storage.delete(id);
+        assertThrows(NotFoundException.class, () -> storage.getById(id));
+        verify(delegate, times(3)).getById(id);
+    }
+
+    @Test
+    void shouldLoadOnlyMissingIdsInOneBatch() {
+        UserStorage delegate = spy(new InMemoryUserStorage());
+        CachingUserStorage storage = new CachingUserStorage(delegate, 100);
+        Long first = storage.create(user("first")).getId();
+        Long second = storage.create(user("second")).getId();
+        Long third = storage.create(user("third")).getId();
+        storage.getById(second);
+
+        List<User> found = storage.getByIds(List.of(third, second, 42L, first));
+
+        assertEquals(List.of(third, second, first), found.stream().map(User::getId).toList());
+        verify(delegate).getByIds(argThat(ids -> ids.size() == 3 && !ids.contains(second)));
+    }
+
+    @Test
+    void shouldEvictWhenSizeBoundIsReached() {
+        CachingUserStorage storage = new CachingUserStorage(new InMemoryUserStorage(), 10);
+        for (int i = 0; i < 100; i++) {
+            storage.getById(storage.create(user("user" + i)).getId());
+        }
+        storage.getCache().cleanUp();
+
+        assertTrue(storage.getCache().estimatedSize() <= 10);
+        assertTrue(storage.getStats().evictionCount() >= 90);
+    }
+
+    @Test
+    void shouldAnswerExistsFromCache() {
+        UserStorage delegate = spy(new InMemoryUserStorage());
+        CachingUserStorage storage = new CachingUserStorage(delegate, 100);
+        Long id = storage.create(user("user")).getId();
+        storage.getById(id);
+
+        assertTrue(storage.existsById(id));
+        verify(delegate, never()).existsById(id);
+        assertFalse(storage.existsById(42L));
+    }
+}
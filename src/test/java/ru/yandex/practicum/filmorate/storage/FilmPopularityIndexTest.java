@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.FilmPopularityIndex;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmPopularityIndexTest {
+    private final FilmPopularityIndex index = new FilmPopularityIndex();
+
+    @Test
+    void shouldOrderByLikesThenById() {
+        index.increment(3);
+        index.increment(3);
+        index.increment(5);
+        index.increment(1);
+
+        assertEquals(List.of(3L, 1L, 5L), index.top(10));
+        assertEquals(List.of(3L, 1L), index.top(2));
+    }
+
+    @Test
+    void shouldMoveFilmDownAfterDecrement() {
+        index.increment(2);
+        index.increment(4);
+        index.increment(4);
+        index.decrement(4);
+
+        assertEquals(List.of(2L, 4L), index.top(3));
+        assertEquals(1, index.getLikesCount(4));
+    }
+
+    @Test
+    void shouldDropFilmWithoutLikes() {
+        index.increment(1);
+        index.decrement(1);
+        index.decrement(1);
+
+        assertEquals(0, index.getLikesCount(1));
+        assertTrue(index.top(10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void shouldForgetRemovedFilm() {
+        index.increment(1);
+        index.increment(2);
+        index.remove(1);
+
+        assertEquals(List.of(2L), index.top(10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void shouldKeepCountsConsistentUnderConcurrentUpdates() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8_000; i++) {
+            long filmId = i % 5 + 1;
+            executor.execute(() -> index.increment(filmId));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), index.top(10));
+        for (long id = 1; id <= 5; id++) {
+            assertEquals(1_600, index.getLikesCount(id));
+        }
+    }
+}
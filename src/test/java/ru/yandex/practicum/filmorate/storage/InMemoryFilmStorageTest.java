@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFilmStorageTest {
+    private static final int THREADS = 16;
+    private static final int FILMS_PER_THREAD = 5_000;
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+
+    @Test
+    void shouldSearchByWordsAndPrefix() {
+        Film matrix = storage.create(film("Матрица"));
+        Film reloaded = storage.create(film("Матрица: Перезагрузка"));
+        Film hedgehog = storage.create(Film.builder()
+                .name("Ёжик в тумане")
+                .description("Про матрицу здесь ни слова, только туман")
+                .releaseDate(LocalDate.of(1975, 1, 1))
+                .duration(600)
+                .build());
+
+        assertEquals(List.of(matrix.getId(), reloaded.getId(), hedgehog.getId()), storage.searchIds("матр", 10));
+        assertEquals(List.of(reloaded.getId()), storage.searchIds("матрица ПЕРЕЗ", 10));
+        assertEquals(List.of(hedgehog.getId()), storage.searchIds("ежик", 10));
+        assertEquals(List.of(hedgehog.getId()), storage.searchIds("туман", 10));
+        assertEquals(List.of(matrix.getId()), storage.searchIds("матр", 1));
+
+        Film renamed = film("Бегущий по лезвию");
+        renamed.setId(matrix.getId());
+        storage.update(renamed);
+        assertEquals(1, storage.getById(matrix.getId()).getVersion());
+        storage.delete(reloaded.getId());
+        assertEquals(List.of(hedgehog.getId()), storage.searchIds("матр", 10));
+        assertEquals(List.of(matrix.getId()), storage.searchIds("лезв", 10));
+        assertTrue(storage.searchIds("перезагрузка", 10).isEmpty());
+        assertTrue(storage.searchIds(" ,. ", 10).isEmpty());
+    }
+
+    @Test
+    void shouldNotLoseFilmsOrDuplicateIdsUnderConcurrentCreate() throws InterruptedException {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < FILMS_PER_THREAD; i++) {
+                    ids.add(storage.create(film("film" + thread + "-" + i)).getId());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int expected = THREADS * FILMS_PER_THREAD;
+        assertEquals(expected, ids.size());
+        assertEquals(expected, storage.findAll().size());
+        assertEquals(expected, storage.count());
+        for (long id = 1; id <= expected; id++) {
+            assertEquals(id, storage.getById(id).getId());
+        }
+    }
+
+    @Test
+    void shouldReturnFilmsOrderedById() {
+        for (int i = 0; i < 20; i++) {
+            storage.create(film("film" + i));
+        }
+
+        long previous = 0;
+        for (Film film : storage.findAll()) {
+            assertTrue(film.getId() > previous);
+            previous = film.getId();
+        }
+    }
+
+    @Test
+    void shouldFetchFilmsByIdsSkippingUnknown() {
+        for (int i = 0; i < 5; i++) {
+            storage.create(film("film" + i));
+        }
+
+        List<Film> found = storage.getByIds(List.of(4L, 42L, 2L));
+
+        assertEquals(List.of(4L, 2L), found.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldNotUpdateUnknownFilm() {
+        Film film = film("film");
+        film.setId(42L);
+
+        assertThrows(NotFoundException.class, () -> storage.update(film));
+        assertTrue(storage.findAll().isEmpty());
+        assertEquals(0, storage.count());
+    }
+}
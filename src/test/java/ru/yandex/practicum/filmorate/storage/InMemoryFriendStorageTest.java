@@ -0,0 +1,296 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFriendStorageTest {
+    private final InMemoryFriendStorage storage = new InMemoryFriendStorage();
+
+    @Test
+    void shouldReturnFriendsInIdOrder() {
+        assertTrue(storage.addFriend(1L, 30L));
+        assertTrue(storage.addFriend(1L, 2L));
+        assertFalse(storage.addFriend(1L, 2L));
+        assertTrue(storage.addFriend(1L, 100_000L));
+
+        assertEquals(List.of(2L, 30L, 100_000L), storage.getFriendIds(1L));
+        assertEquals(3, storage.getFriendsCount(1L));
+        assertTrue(storage.getFriendIds(2L).isEmpty());
+    }
+
+    @Test
+    void shouldFindCommonFriends() {
+        storage.addFriend(1L, 3L);
+        storage.addFriend(1L, 4L);
+        storage.addFriend(1L, 5L);
+        storage.addFriend(2L, 4L);
+        storage.addFriend(2L, 5L);
+        storage.addFriend(2L, 6L);
+
+        assertEquals(List.of(4L, 5L), storage.getCommonFriendIds(1L, 2L));
+        assertTrue(storage.getCommonFriendIds(1L, 7L).isEmpty());
+    }
+
+    @Test
+    void shouldRemoveFriend() {
+        storage.addFriend(1L, 2L);
+        assertEquals(1, storage.getTotalFriendsCount());
+
+        assertTrue(storage.removeFriend(1L, 2L));
+        assertFalse(storage.removeFriend(1L, 2L));
+        assertFalse(storage.removeFriend(5L, 2L));
+        assertEquals(0, storage.getFriendsCount(1L));
+        assertEquals(0, storage.getTotalFriendsCount());
+    }
+
+    @Test
+    void shouldSuggestNonFriendsByMutualFriends() {
+        befriend(1L, 2L);
+        befriend(1L, 3L);
+        befriend(1L, 4L);
+        befriend(5L, 2L);
+        befriend(5L, 3L);
+        befriend(6L, 4L);
+        befriend(2L, 3L);
+
+        assertEquals(List.of(5L, 6L), storage.getSuggestedFriendIds(1L, 10));
+        assertEquals(List.of(5L), storage.getSuggestedFriendIds(1L, 1));
+
+        befriend(6L, 2L);
+        befriend(6L, 3L);
+        assertEquals(List.of(6L, 5L), storage.getSuggestedFriendIds(1L, 10));
+
+        befriend(1L, 6L);
+        unfriend(1L, 3L);
+        assertEquals(List.of(3L, 5L), storage.getSuggestedFriendIds(1L, 10));
+    }
+
+    @Test
+    void shouldKeepSuggestionsInLineWithRecomputation() {
+        int users = 60;
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            befriend(1L + random.nextInt(users), 1L + random.nextInt(users));
+        }
+        // Счётчики всех пользователей уже в индексе и дальше только поддерживаются
+        for (long user = 1; user <= users; user++) {
+            assertEquals(recomputeSuggestions(user, users), storage.getSuggestedFriendIds(user, users));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            long user = 1L + random.nextInt(users);
+            long friend = 1L + random.nextInt(users);
+            if (random.nextBoolean()) {
+                befriend(user, friend);
+            } else {
+                unfriend(user, friend);
+            }
+        }
+        storage.addFriends(List.of(new Friendship(1L, 2L), new Friendship(2L, 1L)));
+
+        for (long user = 1; user <= users; user++) {
+            assertEquals(recomputeSuggestions(user, users), storage.getSuggestedFriendIds(user, users));
+        }
+    }
+
+    @Test
+    void shouldApplyBatchedMutationsInOrder() {
+        storage.addFriend(1L, 2L);
+
+        boolean[] changed = storage.applyFriends(List.of(
+                new FriendMutation(MutationType.ADD, 1L, 3L),
+                new FriendMutation(MutationType.ADD, 1L, 2L),
+                new FriendMutation(MutationType.REMOVE, 1L, 2L),
+                new FriendMutation(MutationType.ADD, 4L, 1L),
+                new FriendMutation(MutationType.REMOVE, 5L, 1L)));
+
+        assertArrayEquals(new boolean[]{true, false, true, true, false}, changed);
+        assertEquals(List.of(3L), storage.getFriendIds(1L));
+        assertEquals(List.of(1L), storage.getFriendIds(4L));
+        assertEquals(2, storage.getTotalFriendsCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> storage.applyFriends(List.of(new FriendMutation(MutationType.ADD, 1L, -1L))));
+        assertEquals(2, storage.getTotalFriendsCount());
+    }
+
+    @Test
+    void shouldKeepSuggestionsInLineAfterBatchedMutations() {
+        int users = 60;
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            befriend(1L + random.nextInt(users), 1L + random.nextInt(users));
+        }
+        for (long user = 1; user <= users; user++) {
+            storage.getSuggestedFriendIds(user, users);
+        }
+
+        List<FriendMutation> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long user = 1L + random.nextInt(users);
+            long friend = 1L + random.nextInt(users);
+            if (user != friend) {
+                MutationType type = random.nextBoolean() ? MutationType.ADD : MutationType.REMOVE;
+                batch.add(new FriendMutation(type, user, friend));
+                batch.add(new FriendMutation(type, friend, user));
+            }
+        }
+        storage.applyFriends(batch);
+
+        for (long user = 1; user <= users; user++) {
+            assertEquals(recomputeSuggestions(user, users), storage.getSuggestedFriendIds(user, users));
+        }
+    }
+
+    @Test
+    void shouldRejectIdsOutsideBitmapRange() {
+        assertThrows(IllegalArgumentException.class, () -> storage.addFriend(1L, -1L));
+        assertThrows(IllegalArgumentException.class, () -> storage.addFriend(1L, 1L << 32));
+    }
+
+    @Test
+    void shouldNotLoseFriendsUnderConcurrentUpdates() throws InterruptedException {
+        int threads = 8;
+        int friendsPerThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long first = (long) t * friendsPerThread + 2;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long friendId = first; friendId < first + friendsPerThread; friendId++) {
+                    storage.addFriend(1L, friendId);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * friendsPerThread, storage.getFriendsCount(1L));
+    }
+
+    @Test
+    void shouldKeepSuggestionsInLineUnderConcurrentUpdates() throws InterruptedException {
+        // У каждого потока свой блок пользователей: befriend — две записи, и встречные вызовы из разных потоков
+        // оставили бы дружбу односторонней, а индекс считает её взаимной. Полосы блокировок у блоков общие
+        int threads = 8;
+        int usersPerThread = 20;
+        int users = threads * usersPerThread;
+        Random random = new Random(11);
+        for (int i = 0; i < 600; i++) {
+            long block = (long) random.nextInt(threads) * usersPerThread;
+            befriend(block + 1 + random.nextInt(usersPerThread), block + 1 + random.nextInt(usersPerThread));
+        }
+        for (long user = 1; user <= users; user++) {
+            storage.getSuggestedFriendIds(user, users);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            Random own = new Random(t);
+            long block = (long) t * usersPerThread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 2_000; i++) {
+                    long user = block + 1 + own.nextInt(usersPerThread);
+                    long friend = block + 1 + own.nextInt(usersPerThread);
+                    if (own.nextBoolean()) {
+                        befriend(user, friend);
+                    } else {
+                        unfriend(user, friend);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        for (long user = 1; user <= users; user++) {
+            assertEquals(recomputeSuggestions(user, users), storage.getSuggestedFriendIds(user, users));
+        }
+    }
+
+    @Test
+    void shouldEvictCandidatesThatOutgrewWeightLimit() throws InterruptedException {
+        Map<Integer, RoaringBitmap> graph = new HashMap<>();
+        graph.put(1, RoaringBitmap.bitmapOf(2));
+        graph.put(2, RoaringBitmap.bitmapOf(1));
+        FriendSuggestionIndex index = new FriendSuggestionIndex(
+                user -> graph.getOrDefault(user, new RoaringBitmap()), new ReentrantLock(), 64);
+        index.suggest(1, 10);
+        assertEquals(1, index.indexedUsers());
+
+        // У нового друга сотня друзей: таблица счётчиков пользователя 1 вырастает сверх ограничения
+        RoaringBitmap friendsOfThird = new RoaringBitmap();
+        friendsOfThird.add(100L, 200L);
+        index.friendChanged(1, 3, friendsOfThird, 1);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (index.indexedUsers() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, index.indexedUsers());
+    }
+
+    private void befriend(long user, long friend) {
+        if (user != friend) {
+            storage.addFriend(user, friend);
+            storage.addFriend(friend, user);
+        }
+    }
+
+    private void unfriend(long user, long friend) {
+        storage.removeFriend(user, friend);
+        storage.removeFriend(friend, user);
+    }
+
+    private List<Long> recomputeSuggestions(long user, int count) {
+        Set<Long> friends = new HashSet<>(storage.getFriendIds(user));
+        Map<Long, Integer> mutual = new HashMap<>();
+        for (Long friend : friends) {
+            for (Long candidate : storage.getFriendIds(friend)) {
+                if (candidate != user && !friends.contains(candidate)) {
+                    mutual.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return mutual.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryLikeStorageTest {
+    private static final int FILMS = 1_000;
+    private static final int LIKES = 100_000;
+    private static final int USERS = 20_000;
+
+    private final InMemoryLikeStorage storage = new InMemoryLikeStorage();
+
+    static {
+        // Рейтинг внутри хранилища построен на record, для них JOL нужен обходной способ чтения смещений полей
+        System.setProperty("jol.magicFieldOffset", "true");
+    }
+
+    @Test
+    void shouldAddAndRemoveLikes() {
+        assertTrue(storage.addLike(1L, 10L));
+        assertFalse(storage.addLike(1L, 10L));
+        assertTrue(storage.addLike(1L, 11L));
+        assertTrue(storage.hasLike(1L, 11L));
+        assertEquals(2, storage.getLikesCount(1L));
+        assertEquals(2, storage.getTotalLikesCount());
+
+        assertTrue(storage.removeLike(1L, 10L));
+        assertFalse(storage.removeLike(1L, 10L));
+        assertFalse(storage.removeLike(2L, 10L));
+        assertEquals(1, storage.getLikesCount(1L));
+
+        assertEquals(1, storage.getTotalLikesCount());
+
+        storage.deleteFilm(1L);
+        assertEquals(0, storage.getLikesCount(1L));
+        assertEquals(0, storage.getTotalLikesCount());
+        assertFalse(storage.hasLike(1L, 11L));
+    }
+
+    @Test
+    void shouldApplyBatchedMutationsInOrder() {
+        storage.addLike(2L, 10L);
+
+        boolean[] changed = storage.applyLikes(List.of(
+                new LikeMutation(MutationType.ADD, 1L, 10L),
+                new LikeMutation(MutationType.ADD, 2L, 11L),
+                new LikeMutation(MutationType.ADD, 1L, 10L),
+                new LikeMutation(MutationType.REMOVE, 2L, 10L),
+                new LikeMutation(MutationType.ADD, 1L, 11L),
+                new LikeMutation(MutationType.REMOVE, 3L, 10L)));
+
+        assertArrayEquals(new boolean[]{true, true, false, true, true, false}, changed);
+        assertEquals(2, storage.getLikesCount(1L));
+        assertEquals(1, storage.getLikesCount(2L));
+        assertFalse(storage.hasLike(2L, 10L));
+        assertEquals(3, storage.getTotalLikesCount());
+        assertEquals(List.of(1L, 2L), storage.getPopularFilmIds(10));
+        assertEquals(List.of(1L, 2L), storage.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedTogether() {
+        likeAll(storage, new long[][]{{10, 20}, {10, 20, 30}, {10, 40}, {20, 30}});
+
+        assertEquals(List.of(30L, 40L), storage.getRecommendedFilmIds(1L, 10));
+        assertEquals(List.of(30L), storage.getRecommendedFilmIds(1L, 1));
+        storage.rebuildRecommendations();
+        assertEquals(List.of(30L, 40L), storage.getRecommendedFilmIds(1L, 10));
+
+        storage.deleteFilm(30L);
+        assertEquals(List.of(40L), storage.getRecommendedFilmIds(1L, 10));
+        storage.removeLike(40L, 3L);
+        assertTrue(storage.getRecommendedFilmIds(1L, 10).isEmpty());
+    }
+
+    @Test
+    void shouldRecommendAfterBulkLoad() throws InterruptedException {
+        List<Like> batch = new ArrayList<>();
+        long[][] liked = {{10, 20}, {10, 20, 30}, {10, 40}, {20, 30}};
+        for (int user = 0; user < liked.length; user++) {
+            for (long film : liked[user]) {
+                batch.add(new Like(film, user + 1L));
+            }
+        }
+        storage.addLikes(batch);
+        // Пачка соседей не пересчитывает, это делает фоновая пересборка после конца загрузки
+        assertTrue(storage.getRecommendedFilmIds(1L, 10).isEmpty());
+        storage.likesLoaded();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (storage.getRecommendedFilmIds(1L, 10).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(List.of(30L, 40L), storage.getRecommendedFilmIds(1L, 10));
+        storage.addLike(50L, 2L);
+        assertEquals(List.of(30L, 50L, 40L), storage.getRecommendedFilmIds(1L, 10));
+    }
+
+    @Test
+    void shouldKeepLikesMadeDuringRebuild() throws InterruptedException {
+        // Фильмов меньше, чем соседей в списке, так что обновления между пересборками точные
+        int films = 20;
+        int users = 200;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(42);
+            for (int step = 0; step < 200_000; step++) {
+                long filmId = 1 + random.nextInt(films);
+                long userId = 1 + random.nextInt(users);
+                if (random.nextBoolean()) {
+                    storage.addLike(filmId, userId);
+                } else {
+                    storage.removeLike(filmId, userId);
+                }
+            }
+            done.set(true);
+        });
+        writer.start();
+        while (!done.get()) {
+            storage.rebuildRecommendations();
+        }
+        writer.join();
+
+        Map<Long, List<Long>> live = new HashMap<>();
+        for (long userId = 1; userId <= users; userId++) {
+            live.put(userId, storage.getRecommendedFilmIds(userId, films));
+        }
+        storage.rebuildRecommendations();
+        for (long userId = 1; userId <= users; userId++) {
+            assertEquals(storage.getRecommendedFilmIds(userId, films), live.get(userId), "Пользователь " + userId);
+        }
+    }
+
+    @Test
+    void shouldRankTrendingFilmsWithinWindow() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        InMemoryLikeStorage storage = new InMemoryLikeStorage(clock);
+        storage.addLike(1L, 1L);
+        storage.addLike(1L, 2L);
+        storage.addLike(2L, 1L);
+        assertEquals(List.of(1L, 2L), storage.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+
+        // Окна сдвигает планировщик; до поворота новые лайки попадают в текущую корзину
+        clock.advance(Duration.ofMinutes(30));
+        storage.rotateTrending();
+        storage.addLike(2L, 2L);
+        storage.addLike(2L, 3L);
+        assertEquals(List.of(2L, 1L), storage.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+
+        // Час спустя лайки первых минут выпали из часового окна, но остались в дневном
+        clock.advance(Duration.ofMinutes(40));
+        storage.rotateTrending();
+        assertEquals(List.of(2L), storage.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+        assertEquals(List.of(2L, 1L), storage.getTrendingFilmIds(TrendingPeriod.DAY, 10));
+
+        storage.addLikes(List.of(new Like(3L, 1L), new Like(3L, 2L), new Like(3L, 3L)));
+        storage.deleteFilm(2L);
+        assertEquals(List.of(1L), storage.getTrendingFilmIds(TrendingPeriod.DAY, 10));
+        assertEquals(List.of(3L, 1L), storage.getPopularFilmIds(10));
+
+        clock.advance(Duration.ofDays(8));
+        storage.rotateTrending();
+        assertTrue(storage.getTrendingFilmIds(TrendingPeriod.WEEK, 10).isEmpty());
+    }
+
+    @Test
+    void shouldNotInflateTrendingOnRepeatedLikeAndUnlike() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        InMemoryLikeStorage storage = new InMemoryLikeStorage(clock);
+        storage.addLike(2L, 1L);
+        storage.addLike(2L, 2L);
+        for (int i = 0; i < 5; i++) {
+            storage.addLike(1L, 1L);
+            storage.removeLike(1L, 1L);
+        }
+        storage.addLike(1L, 1L);
+        assertEquals(List.of(2L, 1L), storage.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+
+        // Лайк, поставленный в прошлой корзине, снимается оттуда же и через пачку
+        clock.advance(Duration.ofMinutes(10));
+        storage.rotateTrending();
+        storage.applyLikes(List.of(new LikeMutation(MutationType.REMOVE, 2L, 1L),
+                new LikeMutation(MutationType.REMOVE, 2L, 2L)));
+        assertEquals(List.of(1L), storage.getTrendingFilmIds(TrendingPeriod.HOUR, 10));
+        assertEquals(List.of(1L), storage.getTrendingFilmIds(TrendingPeriod.WEEK, 10));
+    }
+
+    @Test
+    void shouldKeepAllLikesAfterManyRemovals() {
+        for (long userId = 1; userId <= 10_000; userId++) {
+            storage.addLike(1L, userId);
+        }
+        for (long userId = 1; userId <= 10_000; userId += 2) {
+            assertTrue(storage.removeLike(1L, userId));
+        }
+
+        assertEquals(5_000, storage.getLikesCount(1L));
+        for (long userId = 1; userId <= 10_000; userId++) {
+            assertEquals(userId % 2 == 0, storage.hasLike(1L, userId));
+        }
+    }
+
+    @Test
+    void shouldNotLoseLikesUnderConcurrentUpdates() throws InterruptedException {
+        int threads = 8;
+        int usersPerThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long firstUser = (long) t * usersPerThread + 1;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (long userId = firstUser; userId < firstUser + usersPerThread; userId++) {
+                    storage.addLike(userId % 3, userId);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int total = storage.getLikesCount(0L) + storage.getLikesCount(1L) + storage.getLikesCount(2L);
+        assertEquals(threads * usersPerThread, total);
+    }
+
+    @Test
+    void shouldNotWriteIntoLikesOfDeletedFilm() throws InterruptedException {
+        int threads = 3;
+        int usersPerThread = 50_000;
+        AtomicBoolean adding = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch added = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int method = t;
+            long firstUser = (long) t * usersPerThread + 1;
+            executor.execute(() -> {
+                for (long userId = firstUser; userId < firstUser + usersPerThread; userId++) {
+                    switch (method) {
+                        case 0 -> storage.addLike(1L, userId);
+                        case 1 -> storage.applyLikes(List.of(new LikeMutation(MutationType.ADD, 1L, userId)));
+                        default -> storage.addLikes(List.of(new Like(1L, userId)));
+                    }
+                }
+                added.countDown();
+            });
+        }
+        executor.execute(() -> {
+            while (adding.get()) {
+                storage.deleteFilm(1L);
+            }
+        });
+        assertTrue(added.await(60, TimeUnit.SECONDS));
+        adding.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Лайк, записанный в множество удалённого фильма, попал бы в счётчики, но не в сам фильм
+        assertEquals(storage.getLikesCount(1L), storage.getTotalLikesCount());
+    }
+
+    @Test
+    void shouldUseLessHeapPerLikeThanBoxedSets() {
+        // Хранилище держит лайки в обе стороны (по фильму и, для рекомендаций, по пользователю) и время
+        // свежих лайков для трендов — как и эталон
+        Map<Long, Set<Long>> boxed = new HashMap<>();
+        Map<Long, Set<Long>> boxedByUser = new HashMap<>();
+        Map<Long, Map<Long, Long>> boxedTimes = new HashMap<>();
+        Random random = new Random(42);
+        int added = 0;
+        while (added < LIKES) {
+            long filmId = 1 + random.nextInt(FILMS);
+            long userId = 1 + random.nextInt(USERS);
+            if (boxed.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId)) {
+                boxedByUser.computeIfAbsent(userId, k -> new HashSet<>()).add(filmId);
+                boxedTimes.computeIfAbsent(filmId, k -> new HashMap<>()).put(userId, System.currentTimeMillis());
+                assertTrue(storage.addLike(filmId, userId));
+                added++;
+            }
+        }
+
+        long boxedBytes = GraphLayout.parseInstance(boxed, boxedByUser, boxedTimes).totalSize();
+        long primitiveBytes = GraphLayout.parseInstance(storage).totalSize();
+        assertTrue(primitiveBytes * 3 < boxedBytes, String.format(
+                "Байт на лайк: HashMap и HashSet — %.1f, InMemoryLikeStorage — %.1f",
+                (double) boxedBytes / LIKES, (double) primitiveBytes / LIKES));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static void likeAll(InMemoryLikeStorage storage, long[][] filmsByUser) {
+        for (int user = 0; user < filmsByUser.length; user++) {
+            for (long film : filmsByUser[user]) {
+                storage.addLike(film, user + 1L);
+            }
+        }
+    }
+}
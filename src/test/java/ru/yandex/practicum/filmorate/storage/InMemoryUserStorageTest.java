@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserStorageTest {
+    private static final int THREADS = 16;
+    private static final int USERS_PER_THREAD = 5_000;
+
+    private final InMemoryUserStorage storage = new InMemoryUserStorage();
+
+    private static User user(String login) {
+        return User.builder()
+                .login(login)
+                .email(login + "@mail.ru")
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @Test
+    void shouldSearchByLoginAndName() {
+        User alice = storage.create(user("alice"));
+        User bob = storage.create(User.builder()
+                .login("bob_smith")
+                .email("bob@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        assertEquals(List.of(alice.getId()), storage.searchIds("ali", 10));
+        assertEquals(List.of(bob.getId()), storage.searchIds("smi", 10));
+        assertTrue(storage.searchIds("null", 10).isEmpty());
+
+        storage.delete(alice.getId());
+        assertTrue(storage.searchIds("alice", 10).isEmpty());
+    }
+
+    @Test
+    void shouldNotLoseUpdatesUnderConcurrentCreateAndUpdate() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < USERS_PER_THREAD; i++) {
+                    User created = storage.create(user("user" + thread + "-" + i));
+                    User renamed = user("renamed" + thread + "-" + i);
+                    renamed.setId(created.getId());
+                    storage.update(renamed);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int expected = THREADS * USERS_PER_THREAD;
+        assertEquals(expected, storage.findAll().size());
+        for (long id = 1; id <= expected; id++) {
+            User user = storage.getById(id);
+            assertTrue(user.getLogin().startsWith("renamed"));
+        }
+    }
+
+    @Test
+    void shouldThrowNotFoundForUnknownUser() {
+        User user = user("login");
+        user.setId(42L);
+
+        assertThrows(NotFoundException.class, () -> storage.update(user));
+        assertThrows(NotFoundException.class, () -> storage.getById(42L));
+        assertFalse(storage.existsById(null));
+    }
+}
@@ -0,0 +1,326 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendMutation;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.model.TrendingPeriod;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.JdbcFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.JdbcLikeStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage.JdbcUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest(properties = "filmorate.storage.type=jdbc")
+@Import({JdbcFilmStorage.class, JdbcUserStorage.class, JdbcLikeStorage.class, JdbcFriendStorage.class})
+class JdbcStorageTest {
+    @Autowired
+    private JdbcFilmStorage filmStorage;
+
+    @Autowired
+    private JdbcUserStorage userStorage;
+
+    @Autowired
+    private JdbcLikeStorage likeStorage;
+
+    @Autowired
+    private JdbcFriendStorage friendStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Film> films = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 4; i++) {
+            films.add(Film.builder()
+                    .name("film" + i)
+                    .description("description" + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1 + i))
+                    .duration(5400)
+                    .build());
+            users.add(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .name("name" + i)
+                    .birthday(LocalDate.of(1990, 1, 1 + i))
+                    .build());
+        }
+        filmStorage.createAll(films);
+        userStorage.createAll(users);
+    }
+
+    @Test
+    void shouldCreateAndReadFilm() {
+        Film film = filmStorage.create(Film.builder()
+                .name("new film")
+                .description("description")
+                .releaseDate(LocalDate.of(1999, 3, 31))
+                .duration(8160)
+                .build());
+
+        assertEquals(film, filmStorage.getById(film.getId()));
+        assertEquals(5, filmStorage.findAll().size());
+    }
+
+    @Test
+    void shouldAssignIdsInBatchInsert() {
+        for (Film film : films) {
+            assertNotNull(film.getId());
+            assertEquals(film.getName(), filmStorage.getById(film.getId()).getName());
+        }
+        for (User user : users) {
+            assertTrue(userStorage.existsById(user.getId()));
+        }
+    }
+
+    @Test
+    void shouldFetchUsersByIdsInRequestedOrder() {
+        List<Long> ids = List.of(users.get(2).getId(), -1L, users.get(0).getId());
+
+        List<User> found = userStorage.getByIds(ids);
+
+        assertEquals(List.of(users.get(2).getId(), users.get(0).getId()), found.stream().map(User::getId).toList());
+        assertTrue(filmStorage.getByIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void shouldReturnPageAfterCursor() {
+        List<Film> page = filmStorage.findPage(films.get(0).getId(), 2);
+
+        assertEquals(List.of(films.get(1).getId(), films.get(2).getId()), page.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldUpdateUserAndRejectUnknown() {
+        User user = users.get(0);
+        user.setName("renamed");
+        userStorage.update(user);
+
+        assertEquals("renamed", userStorage.getById(user.getId()).getName());
+        assertEquals(1, user.getVersion());
+        assertEquals(1, userStorage.getById(user.getId()).getVersion());
+
+        user.setId(-1L);
+        assertThrows(NotFoundException.class, () -> userStorage.update(user));
+        assertThrows(NotFoundException.class, () -> userStorage.getById(-1L));
+    }
+
+    @Test
+    void shouldBumpFilmVersionOnEachUpdate() {
+        Film film = films.get(1);
+        assertEquals(0, filmStorage.getById(film.getId()).getVersion());
+
+        filmStorage.update(film);
+        film.setName("renamed");
+        filmStorage.update(film);
+
+        assertEquals(2, film.getVersion());
+        assertEquals(2, filmStorage.getByIds(List.of(film.getId())).get(0).getVersion());
+        assertEquals(0, filmStorage.getById(films.get(0).getId()).getVersion());
+    }
+
+    @Test
+    void shouldRankPopularFilmsInSql() {
+        Long first = films.get(0).getId();
+        Long third = films.get(2).getId();
+        assertTrue(likeStorage.addLike(third, users.get(0).getId()));
+        assertFalse(likeStorage.addLike(third, users.get(0).getId()));
+        likeStorage.addLike(third, users.get(1).getId());
+        likeStorage.addLike(first, users.get(0).getId());
+
+        assertEquals(2, likeStorage.getLikesCount(third));
+        assertEquals(List.of(third, first, films.get(1).getId()), likeStorage.getPopularFilmIds(3));
+
+        assertTrue(likeStorage.removeLike(third, users.get(0).getId()));
+        assertTrue(likeStorage.removeLike(third, users.get(1).getId()));
+        assertEquals(first, likeStorage.getPopularFilmIds(1).get(0));
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedTogetherInSql() {
+        long[][] liked = {{0, 1}, {0, 1, 2}, {0, 3}, {1, 2}};
+        for (int user = 0; user < liked.length; user++) {
+            for (long film : liked[user]) {
+                likeStorage.addLike(films.get((int) film).getId(), users.get(user).getId());
+            }
+        }
+
+        assertEquals(List.of(films.get(2).getId(), films.get(3).getId()),
+                likeStorage.getRecommendedFilmIds(users.get(0).getId(), 10));
+    }
+
+    @Test
+    void shouldRankTrendingFilmsByLikeTimeInSql() {
+        Long film0 = films.get(0).getId();
+        Long film1 = films.get(1).getId();
+        for (int user = 0; user < 3; user++) {
+            likeStorage.addLike(film1, users.get(user).getId());
+        }
+        likeStorage.addLike(film0, users.get(0).getId());
+        likeStorage.addLike(film0, users.get(1).getId());
+        jdbcTemplate.update("UPDATE likes SET liked_at = DATEADD(DAY, -2, LOCALTIMESTAMP) "
+                + "WHERE film_id = ? AND user_id <> ?", film1, users.get(0).getId());
+
+        assertEquals(List.of(film0, film1), likeStorage.getTrendingFilmIds(TrendingPeriod.DAY, 10));
+        assertEquals(List.of(film1, film0), likeStorage.getTrendingFilmIds(TrendingPeriod.WEEK, 10));
+        assertEquals(List.of(film0), likeStorage.getTrendingFilmIds(TrendingPeriod.HOUR, 1));
+    }
+
+    @Test
+    void shouldSearchFilmsAndUsersInSql() {
+        Film film = films.get(2);
+        film.setDescription("Про film1 и ёлки");
+        filmStorage.update(film);
+
+        assertEquals(List.of(films.get(1).getId(), film.getId()), filmStorage.searchIds("FILM1", 10));
+        assertEquals(List.of(film.getId()), filmStorage.searchIds("елки fil", 10));
+        assertEquals(List.of(users.get(3).getId()), userStorage.searchIds("name3", 10));
+        assertTrue(userStorage.searchIds("nobody", 10).isEmpty());
+    }
+
+    @Test
+    void shouldFindCommonFriendsInSql() {
+        Long user1 = users.get(0).getId();
+        Long user2 = users.get(1).getId();
+        Long common = users.get(2).getId();
+        friendStorage.addFriend(user1, common);
+        friendStorage.addFriend(user2, common);
+        friendStorage.addFriend(user1, users.get(3).getId());
+
+        assertEquals(List.of(common), friendStorage.getCommonFriendIds(user1, user2));
+        assertEquals(2, friendStorage.getFriendsCount(user1));
+
+        assertTrue(friendStorage.removeFriend(user1, common));
+        assertTrue(friendStorage.getCommonFriendIds(user1, user2).isEmpty());
+    }
+
+    @Test
+    void shouldSuggestFriendsOfFriendsInSql() {
+        Long user = users.get(0).getId();
+        Long friend1 = users.get(1).getId();
+        Long friend2 = users.get(2).getId();
+        Long stranger = users.get(3).getId();
+        for (Long[] pair : new Long[][]{{user, friend1}, {user, friend2}, {stranger, friend1}, {stranger, friend2}}) {
+            friendStorage.addFriend(pair[0], pair[1]);
+            friendStorage.addFriend(pair[1], pair[0]);
+        }
+
+        assertEquals(List.of(stranger), friendStorage.getSuggestedFriendIds(user, 10));
+        assertEquals(List.of(user), friendStorage.getSuggestedFriendIds(stranger, 1));
+    }
+
+    @Test
+    void shouldApplyMutationsInOrderInSql() {
+        Long film = films.get(0).getId();
+        Long user1 = users.get(0).getId();
+        Long user2 = users.get(1).getId();
+
+        assertArrayEquals(new boolean[]{true, false, true, true}, likeStorage.applyLikes(List.of(
+                new LikeMutation(MutationType.ADD, film, user1),
+                new LikeMutation(MutationType.ADD, film, user1),
+                new LikeMutation(MutationType.REMOVE, film, user1),
+                new LikeMutation(MutationType.ADD, film, user2))));
+        assertArrayEquals(new boolean[]{true, false}, friendStorage.applyFriends(List.of(
+                new FriendMutation(MutationType.ADD, user1, user2),
+                new FriendMutation(MutationType.REMOVE, user2, user1))));
+
+        assertFalse(likeStorage.hasLike(film, user1));
+        assertTrue(likeStorage.hasLike(film, user2));
+        assertEquals(List.of(user2), friendStorage.getFriendIds(user1));
+    }
+
+    @Test
+    void shouldWriteBehindBatchInSql() {
+        Long film = films.get(0).getId();
+        Long user1 = users.get(0).getId();
+        Long user2 = users.get(1).getId();
+        Long user3 = users.get(2).getId();
+        likeStorage.addLike(film, user1);
+        friendStorage.addFriend(user1, user2);
+
+        likeStorage.writeLikes(List.of(
+                new LikeMutation(MutationType.REMOVE, film, user1),
+                new LikeMutation(MutationType.ADD, film, user2),
+                new LikeMutation(MutationType.ADD, film, user3)));
+        friendStorage.writeFriends(List.of(
+                new FriendMutation(MutationType.REMOVE, user1, user2),
+                new FriendMutation(MutationType.ADD, user1, user3)));
+
+        assertFalse(likeStorage.hasLike(film, user1));
+        assertEquals(2, likeStorage.getLikesCount(film));
+        assertEquals(List.of(user3), friendStorage.getFriendIds(user1));
+    }
+
+    @Test
+    void shouldMergeBatchedLikesAndFriendships() {
+        Long film = films.get(0).getId();
+        Long user1 = users.get(0).getId();
+        Long user2 = users.get(1).getId();
+        likeStorage.addLike(film, user1);
+
+        likeStorage.addLikes(List.of(new Like(film, user1), new Like(film, user2)));
+        friendStorage.addFriends(List.of(new Friendship(user1, user2), new Friendship(user1, user2)));
+
+        assertEquals(2, likeStorage.getLikesCount(film));
+        assertEquals(List.of(user2), friendStorage.getFriendIds(user1));
+    }
+
+    // Вне транзакции теста: потоки ходят в базу через свои соединения и должны видеть фильмы и пользователей
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldAddSameLikeAndFriendshipOnceUnderConcurrentRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> requests = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                requests.add(() -> {
+                    int added = 0;
+                    for (Film film : films) {
+                        for (User user : users) {
+                            added += likeStorage.addLike(film.getId(), user.getId()) ? 1 : 0;
+                            if (!user.getId().equals(users.get(0).getId())) {
+                                added += friendStorage.addFriend(users.get(0).getId(), user.getId()) ? 1 : 0;
+                            }
+                        }
+                    }
+                    return added;
+                });
+            }
+            int added = 0;
+            for (Future<Integer> result : executor.invokeAll(requests)) {
+                added += result.get();
+            }
+
+            assertEquals(films.size() * users.size() + users.size() - 1, added);
+            assertEquals(users.size(), likeStorage.getLikesCount(films.get(0).getId()));
+        } finally {
+            executor.shutdown();
+            jdbcTemplate.update("DELETE FROM films");
+            jdbcTemplate.update("DELETE FROM users");
+        }
+    }
+}
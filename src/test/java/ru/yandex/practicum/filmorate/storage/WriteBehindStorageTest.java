@@ -0,0 +1,341 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MutationType;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.InMemoryFriendStorage;
+import ru.yandex.practicum.filmorate.storage.FriendStorage.WriteBehindFriendStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage.WriteBehindLikeStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindStorageTest {
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final InMemoryLikeStorage likes = new InMemoryLikeStorage();
+    private final List<WriteBehindLikeStorage> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(WriteBehindLikeStorage::stop);
+    }
+
+    @Test
+    void shouldShowQueuedLikesAndCancelOppositePairs() {
+        WriteBehindLikeStorage storage = new WriteBehindLikeStorage(likes,
+                settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+
+        assertTrue(storage.addLike(1L, 10L));
+        assertFalse(storage.addLike(1L, 10L));
+        assertTrue(storage.hasLike(1L, 10L));
+        assertEquals(1, storage.getLikesCount(1L));
+        assertFalse(likes.hasLike(1L, 10L));
+
+        // Лайк и его снятие до записи взаимно уничтожаются
+        assertTrue(storage.removeLike(1L, 10L));
+        assertFalse(storage.removeLike(1L, 10L));
+        assertEquals(0, storage.getQueueSize());
+
+        storage.addLike(1L, 11L);
+        storage.flush();
+        assertTrue(likes.hasLike(1L, 11L));
+        assertEquals(0, storage.getQueueSize());
+
+        assertTrue(storage.removeLike(1L, 11L));
+        assertEquals(0, storage.getLikesCount(1L));
+        storage.flush();
+        assertFalse(likes.hasLike(1L, 11L));
+        assertEquals(0, likes.getTotalLikesCount());
+    }
+
+    @Test
+    void shouldFlushAfterIntervalOrFullBatch() {
+        WriteBehindLikeStorage byInterval = start(settings(100, 100, Duration.ofMillis(20),
+                WriteBehindQueue.Overflow.REJECT, true));
+        byInterval.addLike(1L, 10L);
+        awaitTrue(() -> likes.hasLike(1L, 10L));
+
+        WriteBehindLikeStorage byBatch = start(settings(100, 3, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+        byBatch.addLike(2L, 10L);
+        byBatch.addLike(2L, 11L);
+        sleep(100);
+        assertEquals(0, likes.getLikesCount(2L));
+
+        byBatch.addLike(3L, 10L);
+        awaitTrue(() -> likes.getLikesCount(2L) == 2 && likes.hasLike(3L, 10L));
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() {
+        WriteBehindLikeStorage storage = new WriteBehindLikeStorage(likes,
+                settings(2, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+        storage.addLike(1L, 10L);
+        storage.addLike(1L, 11L);
+
+        assertThrows(OverloadedException.class, () -> storage.addLike(1L, 12L));
+        // Изменение пары, уже стоящей в очереди, места не требует
+        assertTrue(storage.removeLike(1L, 10L));
+        assertTrue(storage.addLike(1L, 12L));
+    }
+
+    @Test
+    void shouldBlockUntilBackgroundWriterFreesSpace() {
+        WriteBehindLikeStorage idle = new WriteBehindLikeStorage(likes,
+                settings(1, 100, NEVER, WriteBehindQueue.Overflow.BLOCK, true));
+        idle.addLike(1L, 10L);
+        long startedAt = System.nanoTime();
+        assertThrows(OverloadedException.class, () -> idle.addLike(1L, 11L));
+        assertTrue(System.nanoTime() - startedAt >= Duration.ofMillis(50).toNanos());
+
+        WriteBehindLikeStorage running = start(new WriteBehindQueue.Settings(1, 100, NEVER,
+                WriteBehindQueue.Overflow.BLOCK, Duration.ofSeconds(10), true, Duration.ofSeconds(10)));
+        running.addLike(2L, 10L);
+        // Полная очередь сама запрашивает запись, не дожидаясь интервала
+        assertTrue(running.addLike(2L, 11L));
+        awaitTrue(() -> likes.hasLike(2L, 10L));
+    }
+
+    @Test
+    void shouldDrainQueueOnShutdownWhenConfigured() {
+        WriteBehindLikeStorage draining = start(settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+        draining.addLike(1L, 10L);
+        draining.addLike(2L, 10L);
+        draining.stop();
+        assertTrue(likes.hasLike(1L, 10L));
+        assertTrue(likes.hasLike(2L, 10L));
+
+        WriteBehindLikeStorage discarding = start(settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, false));
+        discarding.addLike(3L, 10L);
+        discarding.stop();
+        assertFalse(likes.hasLike(3L, 10L));
+        assertEquals(1, discarding.getQueueSize());
+    }
+
+    @Test
+    void shouldRetryBatchAfterStorageFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        List<WriteBehindQueue.Mutation> written = new ArrayList<>();
+        WriteBehindQueue queue = new WriteBehindQueue("test",
+                settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true), (owner, target) -> false,
+                mutations -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new IllegalStateException("хранилище недоступно");
+                    }
+                    written.addAll(mutations);
+                });
+        queue.submit(1L, 10L, MutationType.ADD);
+
+        assertThrows(IllegalStateException.class, queue::flush);
+        assertEquals(1, queue.size());
+        assertEquals(MutationType.ADD, queue.queued(1L, 10L));
+
+        queue.flush();
+        assertEquals(List.of(new WriteBehindQueue.Mutation(1L, 10L, MutationType.ADD)), written);
+        assertEquals(0, queue.size());
+        assertNull(queue.queued(1L, 10L));
+    }
+
+    @Test
+    void shouldReadStorageOutsideOwnerLock() {
+        // Пока читается хранилище, изменения того же владельца из других потоков не ждут
+        AtomicReference<WriteBehindQueue> queue = new AtomicReference<>();
+        queue.set(new WriteBehindQueue("test", settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true),
+                (owner, target) -> {
+                    if (target == 10L) {
+                        Thread other = new Thread(() -> queue.get().submit(owner, 11L, MutationType.ADD));
+                        other.start();
+                        try {
+                            other.join(1_000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        assertFalse(other.isAlive(), "Изменение другого потока ждёт чтения хранилища");
+                    }
+                    return false;
+                },
+                mutations -> {
+                }));
+
+        assertTrue(queue.get().submit(1L, 10L, MutationType.ADD));
+        assertEquals(MutationType.ADD, queue.get().queued(1L, 11L));
+        assertEquals(2, queue.get().size());
+        assertEquals(2, queue.get().count(1L, () -> 0));
+    }
+
+    @Test
+    void shouldKeepVisibleStateWhileFlushAndWriteThroughRace() throws Exception {
+        WriteBehindLikeStorage storage = new WriteBehindLikeStorage(likes,
+                settings(100_000, 16, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+        int threads = 4;
+        int users = 20;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread flusher = new Thread(() -> {
+            while (!done.get()) {
+                storage.flush();
+            }
+        });
+        flusher.start();
+        // У каждого потока свой фильм, поэтому ожидаемое состояние его пар известно без синхронизации
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long filmId = t + 1;
+            workers.add(executor.submit(() -> {
+                Random random = new Random(filmId);
+                boolean[] liked = new boolean[users + 1];
+                int count = 0;
+                for (int step = 0; step < 20_000; step++) {
+                    if (random.nextInt(500) == 0) {
+                        storage.deleteFilm(filmId);
+                        liked = new boolean[users + 1];
+                        count = 0;
+                        continue;
+                    }
+                    int userId = 1 + random.nextInt(users);
+                    boolean add = random.nextBoolean();
+                    boolean changed = add ? storage.addLike(filmId, (long) userId)
+                            : storage.removeLike(filmId, (long) userId);
+                    assertEquals(liked[userId] != add, changed, "Фильм " + filmId + ", шаг " + step);
+                    if (changed) {
+                        liked[userId] = add;
+                        count += add ? 1 : -1;
+                    }
+                    assertEquals(add, storage.hasLike(filmId, (long) userId));
+                    assertEquals(count, storage.getLikesCount(filmId), "Фильм " + filmId + ", шаг " + step);
+                }
+                storage.flush();
+                assertEquals(count, likes.getLikesCount(filmId));
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            done.set(true);
+            flusher.join();
+            executor.shutdownNow();
+        }
+        assertEquals(0, storage.getQueueSize());
+    }
+
+    @Test
+    void shouldWriteQueueBeforeDeletingFilm() {
+        WriteBehindLikeStorage storage = new WriteBehindLikeStorage(likes,
+                settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+        storage.addLike(1L, 10L);
+        storage.deleteFilm(1L);
+        storage.flush();
+
+        assertFalse(likes.hasLike(1L, 10L));
+        assertEquals(0, likes.getTotalLikesCount());
+    }
+
+    @Test
+    void shouldMergeQueuedFriendsIntoLists() {
+        InMemoryFriendStorage friends = new InMemoryFriendStorage();
+        friends.addFriend(1L, 2L);
+        friends.addFriend(1L, 3L);
+        friends.addFriend(4L, 3L);
+        WriteBehindFriendStorage storage = new WriteBehindFriendStorage(friends,
+                settings(100, 100, NEVER, WriteBehindQueue.Overflow.REJECT, true));
+
+        storage.addFriend(1L, 5L);
+        storage.removeFriend(1L, 2L);
+        storage.addFriend(4L, 5L);
+
+        assertEquals(List.of(3L, 5L), storage.getFriendIds(1L));
+        assertEquals(List.of(3L, 5L), storage.getCommonFriendIds(1L, 4L));
+        assertEquals(2, storage.getFriendsCount(1L));
+        assertEquals(List.of(2L, 3L), friends.getFriendIds(1L));
+
+        storage.flush();
+        assertEquals(List.of(3L, 5L), friends.getFriendIds(1L));
+        assertEquals(List.of(3L, 5L), friends.getFriendIds(4L));
+    }
+
+    @Test
+    void shouldDrainQueueWhenContextCloses() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--filmorate.write-behind.enabled=true",
+                        "--filmorate.write-behind.flush-interval-ms=3600000");
+        LikeStorage storage = context.getBean(LikeStorage.class);
+        assertInstanceOf(WriteBehindLikeStorage.class, storage);
+        WriteBehindLikeStorage writeBehind = (WriteBehindLikeStorage) storage;
+        assertTrue(writeBehind.isRunning());
+
+        Film film = context.getBean(FilmService.class).create(Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build());
+        User user = context.getBean(UserService.class).create(User.builder()
+                .login("user")
+                .email("user@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+        context.getBean(FilmService.class).addLike(film.getId(), user.getId());
+        assertFalse(writeBehind.getDelegate().hasLike(film.getId(), user.getId()));
+
+        context.close();
+        assertTrue(writeBehind.getDelegate().hasLike(film.getId(), user.getId()));
+        assertFalse(writeBehind.isRunning());
+    }
+
+    private WriteBehindLikeStorage start(WriteBehindQueue.Settings settings) {
+        WriteBehindLikeStorage storage = new WriteBehindLikeStorage(likes, settings);
+        storage.start();
+        started.add(storage);
+        return storage;
+    }
+
+    private static WriteBehindQueue.Settings settings(int capacity, int batchSize, Duration flushInterval,
+                                                      WriteBehindQueue.Overflow overflow, boolean drain) {
+        return new WriteBehindQueue.Settings(capacity, batchSize, flushInterval, overflow, Duration.ofMillis(50),
+                drain, Duration.ofSeconds(10));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Изменения не записаны за 5 с");
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}